@@ -0,0 +1,73 @@
+package android.app;
+
+import android.content.Context;
+
+public class Notification {
+
+    // 真实实现保存在 extras 中，这里只保留测试用到的字段
+    public CharSequence contentTitle;
+    public CharSequence contentText;
+    public int number;
+
+    public static class Style {
+    }
+
+    public static class InboxStyle extends Style {
+        public InboxStyle addLine(CharSequence line) {
+            return this;
+        }
+
+        public InboxStyle setSummaryText(CharSequence text) {
+            return this;
+        }
+    }
+
+    public static class Builder {
+        private final Notification notification = new Notification();
+
+        public Builder(Context context) {
+        }
+
+        public Builder(Context context, String channelId) {
+        }
+
+        public Builder setSmallIcon(int icon) {
+            return this;
+        }
+
+        public Builder setContentTitle(CharSequence title) {
+            notification.contentTitle = title;
+            return this;
+        }
+
+        public Builder setContentText(CharSequence text) {
+            notification.contentText = text;
+            return this;
+        }
+
+        public Builder setStyle(Style style) {
+            return this;
+        }
+
+        public Builder setNumber(int number) {
+            notification.number = number;
+            return this;
+        }
+
+        public Builder setAutoCancel(boolean autoCancel) {
+            return this;
+        }
+
+        public Builder setOnlyAlertOnce(boolean onlyAlertOnce) {
+            return this;
+        }
+
+        public Builder setContentIntent(PendingIntent intent) {
+            return this;
+        }
+
+        public Notification build() {
+            return notification;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package android.app;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class NotificationManager {
+    public static final int IMPORTANCE_DEFAULT = 3;
+
+    private final Map<Integer, Notification> posted = new HashMap<>();
+    private final Map<String, NotificationChannel> channels = new HashMap<>();
+
+    public synchronized void notify(int id, Notification notification) {
+        posted.put(id, notification);
+    }
+
+    public synchronized void cancel(int id) {
+        posted.remove(id);
+    }
+
+    public synchronized void createNotificationChannel(NotificationChannel channel) {
+        channels.put(channel.getId(), channel);
+    }
+
+    public synchronized NotificationChannel getNotificationChannel(String channelId) {
+        return channels.get(channelId);
+    }
+
+    public synchronized Map<Integer, Notification> posted() {
+        return new HashMap<>(posted);
+    }
+}
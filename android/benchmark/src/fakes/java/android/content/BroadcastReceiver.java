@@ -0,0 +1,18 @@
+package android.content;
+
+public abstract class BroadcastReceiver {
+
+    public abstract void onReceive(Context context, Intent intent);
+
+    /**
+     * 与不在广播分发过程中调用时的行为一致，返回 null。
+     */
+    public final PendingResult goAsync() {
+        return null;
+    }
+
+    public static class PendingResult {
+        public final void finish() {
+        }
+    }
+}
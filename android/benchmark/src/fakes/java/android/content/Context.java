@@ -0,0 +1,30 @@
+package android.content;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+
+import java.io.File;
+
+public abstract class Context {
+    public static final int MODE_PRIVATE = 0;
+    public static final String NOTIFICATION_SERVICE = "notification";
+
+    public abstract Context getApplicationContext();
+
+    public abstract String getPackageName();
+
+    public abstract PackageManager getPackageManager();
+
+    public abstract ApplicationInfo getApplicationInfo();
+
+    public abstract AssetManager getAssets();
+
+    public abstract SharedPreferences getSharedPreferences(String name, int mode);
+
+    public abstract File getFilesDir();
+
+    public abstract Object getSystemService(String name);
+
+    public abstract void startActivity(Intent intent);
+}
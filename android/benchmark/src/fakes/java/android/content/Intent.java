@@ -0,0 +1,60 @@
+package android.content;
+
+import android.os.Bundle;
+
+public class Intent {
+    public static final String CATEGORY_LAUNCHER = "android.intent.category.LAUNCHER";
+    public static final int FLAG_ACTIVITY_NEW_TASK = 0x10000000;
+    public static final int FLAG_ACTIVITY_SINGLE_TOP = 0x20000000;
+
+    private String action;
+    private final Bundle extras = new Bundle();
+
+    public Intent() {
+    }
+
+    public Intent(String action) {
+        this.action = action;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public Intent setAction(String action) {
+        this.action = action;
+        return this;
+    }
+
+    public Intent addCategory(String category) {
+        return this;
+    }
+
+    public Intent setFlags(int flags) {
+        return this;
+    }
+
+    public Intent putExtra(String key, String value) {
+        extras.putString(key, value);
+        return this;
+    }
+
+    public Intent putExtra(String key, int value) {
+        extras.putInt(key, value);
+        return this;
+    }
+
+    public String getStringExtra(String key) {
+        Object value = extras.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public int getIntExtra(String key, int defaultValue) {
+        Object value = extras.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    public Bundle getExtras() {
+        return extras;
+    }
+}
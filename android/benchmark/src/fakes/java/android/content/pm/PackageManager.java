@@ -0,0 +1,13 @@
+package android.content.pm;
+
+import android.content.Intent;
+
+public abstract class PackageManager {
+
+    public abstract Intent getLaunchIntentForPackage(String packageName);
+
+    public abstract PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException;
+
+    public static class NameNotFoundException extends Exception {
+    }
+}
@@ -0,0 +1,20 @@
+package android.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+public class DatabaseUtils {
+    public static long queryNumEntries(SQLiteDatabase db, String table) {
+        return queryNumEntries(db, table, null);
+    }
+
+    public static long queryNumEntries(SQLiteDatabase db, String table, String selection) {
+        Cursor cursor = db.rawQuery("SELECT count(*) FROM " + table
+                + (selection == null ? "" : " WHERE " + selection), null);
+        try {
+            cursor.moveToNext();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
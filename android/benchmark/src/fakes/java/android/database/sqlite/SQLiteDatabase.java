@@ -0,0 +1,216 @@
+package android.database.sqlite;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JVM 上没有 SQLite，这里是内存中的最小实现，只支持插件用到的 SQL 子集：
+ * CREATE 语句只登记表名，INSERT 按列名写入并分配自增 id，
+ * 条件为以 AND 连接的 `1`、`列 = ?`、`列 < ?`、`列 = 整数`，查询支持 `ORDER BY id DESC`、`LIMIT n` 与 `count(*)`。
+ * 不支持的语句抛出 SQLiteException。事务不做回滚。
+ */
+public final class SQLiteDatabase {
+
+    public interface CursorFactory {
+    }
+
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE (\\w+) .*", Pattern.DOTALL);
+    private static final Pattern INSERT = Pattern.compile("INSERT INTO (\\w+) \\(([^)]*)\\) VALUES .*");
+    private static final Pattern SELECT = Pattern.compile(
+            "SELECT (.+?) FROM (\\w+)(?: WHERE (.+?))?( ORDER BY id DESC)?(?: LIMIT (\\d+))?");
+
+    private final Map<String, List<Map<String, Object>>> tables = new HashMap<>();
+    private long nextId = 1;
+
+    public synchronized void execSQL(String sql) {
+        Matcher create = CREATE_TABLE.matcher(sql);
+        if (create.matches()) {
+            tables.put(create.group(1), new ArrayList<Map<String, Object>>());
+        } else if (!sql.startsWith("CREATE INDEX")) {
+            throw unsupported(sql);
+        }
+    }
+
+    public SQLiteStatement compileStatement(String sql) {
+        Matcher insert = INSERT.matcher(sql);
+        if (!insert.matches()) {
+            throw unsupported(sql);
+        }
+        table(insert.group(1));
+        return new SQLiteStatement(this, insert.group(1), insert.group(2).split(",\\s*"));
+    }
+
+    public void beginTransaction() {
+    }
+
+    public void setTransactionSuccessful() {
+    }
+
+    public void endTransaction() {
+    }
+
+    public synchronized Cursor rawQuery(String sql, String[] selectionArgs) {
+        Matcher select = SELECT.matcher(sql);
+        if (!select.matches()) {
+            throw unsupported(sql);
+        }
+        List<Map<String, Object>> rows = filter(table(select.group(2)), select.group(3), selectionArgs);
+        if (select.group(1).equalsIgnoreCase("count(*)")) {
+            List<Object[]> count = new ArrayList<>();
+            count.add(new Object[]{(long) rows.size()});
+            return new RowCursor(count);
+        }
+        if (select.group(4) != null) {
+            List<Map<String, Object>> reversed = new ArrayList<>();
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                reversed.add(rows.get(i));
+            }
+            rows = reversed;
+        }
+        int limit = select.group(5) == null ? rows.size() : Integer.parseInt(select.group(5));
+        String[] columns = select.group(1).split(",\\s*");
+        List<Object[]> result = new ArrayList<>();
+        for (Map<String, Object> row : rows.subList(0, Math.min(limit, rows.size()))) {
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = row.get(columns[i]);
+            }
+            result.add(values);
+        }
+        return new RowCursor(result);
+    }
+
+    public synchronized int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        List<Map<String, Object>> rows = filter(table(table), whereClause, whereArgs);
+        for (Map<String, Object> row : rows) {
+            for (String key : values.keySet()) {
+                row.put(key, toLong(values.get(key)));
+            }
+        }
+        return rows.size();
+    }
+
+    public synchronized int delete(String table, String whereClause, String[] whereArgs) {
+        List<Map<String, Object>> rows = table(table);
+        List<Map<String, Object>> matched = filter(rows, whereClause, whereArgs);
+        rows.removeAll(matched);
+        return matched.size();
+    }
+
+    synchronized long insert(String table, String[] columns, Object[] values) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        long id = nextId++;
+        row.put("id", id);
+        row.put("read", 0L);
+        for (int i = 0; i < columns.length; i++) {
+            row.put(columns[i], values[i]);
+        }
+        table(table).add(row);
+        return id;
+    }
+
+    private List<Map<String, Object>> table(String name) {
+        List<Map<String, Object>> rows = tables.get(name);
+        if (rows == null) {
+            throw new SQLiteException("no such table: " + name);
+        }
+        return rows;
+    }
+
+    private static List<Map<String, Object>> filter(List<Map<String, Object>> rows, String where, String[] args) {
+        List<Map<String, Object>> matched = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            if (where == null || matches(row, where, args)) {
+                matched.add(row);
+            }
+        }
+        return matched;
+    }
+
+    private static boolean matches(Map<String, Object> row, String where, String[] args) {
+        int arg = 0;
+        for (String term : where.split(" AND ")) {
+            if (term.equals("1")) {
+                continue;
+            }
+            String[] parts = term.split(" ");
+            if (parts.length != 3) {
+                throw unsupported(term);
+            }
+            Object value = parts[2].equals("?") ? args[arg++] : parts[2];
+            int cmp = compare(row.get(parts[0]), value);
+            if (parts[1].equals("=") ? cmp != 0 : (parts[1].equals("<") ? cmp >= 0 : fail(term))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean fail(String term) {
+        throw unsupported(term);
+    }
+
+    private static int compare(Object column, Object value) {
+        if (column instanceof Long) {
+            return Long.compare((Long) column, Long.parseLong(value.toString()));
+        }
+        return String.valueOf(column).compareTo(String.valueOf(value));
+    }
+
+    private static Object toLong(Object value) {
+        return value instanceof Integer ? Long.valueOf((Integer) value) : value;
+    }
+
+    private static SQLiteException unsupported(String sql) {
+        return new SQLiteException("unsupported SQL: " + sql);
+    }
+
+    private static final class RowCursor implements Cursor {
+        private final List<Object[]> rows;
+        private int position = -1;
+
+        RowCursor(List<Object[]> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int getCount() {
+            return rows.size();
+        }
+
+        @Override
+        public boolean moveToNext() {
+            position += 1;
+            return position < rows.size();
+        }
+
+        @Override
+        public int getInt(int columnIndex) {
+            return (int) getLong(columnIndex);
+        }
+
+        @Override
+        public long getLong(int columnIndex) {
+            Object value = rows.get(position)[columnIndex];
+            return value == null ? 0 : ((Number) value).longValue();
+        }
+
+        @Override
+        public String getString(int columnIndex) {
+            Object value = rows.get(position)[columnIndex];
+            return value == null ? null : value.toString();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package android.database.sqlite;
+
+import android.content.Context;
+
+/**
+ * 每个 helper 对应一个内存数据库，首次打开时调用 onCreate。
+ */
+public abstract class SQLiteOpenHelper {
+
+    private SQLiteDatabase db;
+
+    public SQLiteOpenHelper(Context context, String name, SQLiteDatabase.CursorFactory factory, int version) {
+    }
+
+    public abstract void onCreate(SQLiteDatabase db);
+
+    public abstract void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion);
+
+    public synchronized SQLiteDatabase getWritableDatabase() {
+        if (db == null) {
+            db = new SQLiteDatabase();
+            onCreate(db);
+        }
+        return db;
+    }
+
+    public SQLiteDatabase getReadableDatabase() {
+        return getWritableDatabase();
+    }
+
+    public void close() {
+    }
+}
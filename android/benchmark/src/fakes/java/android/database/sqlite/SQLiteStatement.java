@@ -0,0 +1,43 @@
+package android.database.sqlite;
+
+import java.io.Closeable;
+
+public final class SQLiteStatement implements Closeable {
+    private final SQLiteDatabase db;
+    private final String table;
+    private final String[] columns;
+    private final Object[] values;
+
+    SQLiteStatement(SQLiteDatabase db, String table, String[] columns) {
+        this.db = db;
+        this.table = table;
+        this.columns = columns;
+        this.values = new Object[columns.length];
+    }
+
+    public void bindLong(int index, long value) {
+        values[index - 1] = value;
+    }
+
+    public void bindString(int index, String value) {
+        values[index - 1] = value;
+    }
+
+    public void bindNull(int index) {
+        values[index - 1] = null;
+    }
+
+    public void clearBindings() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = null;
+        }
+    }
+
+    public long executeInsert() {
+        return db.insert(table, columns, values.clone());
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+public class Build {
+
+    public static class VERSION {
+        public static final String RELEASE = "9";
+        public static final int SDK_INT = 28;
+    }
+
+    public static class VERSION_CODES {
+        public static final int KITKAT = 19;
+        public static final int LOLLIPOP = 21;
+        public static final int N = 24;
+        public static final int O = 26;
+    }
+}
@@ -0,0 +1,50 @@
+package android.os;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有 Handler 都把任务投递到 Looper 的单线程 executor 上执行。
+ */
+public class Handler {
+    private final Looper looper;
+    private final Map<Runnable, ScheduledFuture<?>> delayed = new ConcurrentHashMap<>();
+
+    public Handler() {
+        this(Looper.getMainLooper());
+    }
+
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+
+    public final boolean post(Runnable r) {
+        looper.executor().execute(r);
+        return true;
+    }
+
+    public final boolean postAtFrontOfQueue(Runnable r) {
+        return post(r);
+    }
+
+    public final boolean postDelayed(final Runnable r, long delayMillis) {
+        ScheduledFuture<?> future = looper.executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                delayed.remove(r);
+                r.run();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+        delayed.put(r, future);
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable r) {
+        ScheduledFuture<?> future = delayed.remove(r);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package android.os;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 主线程由一个单线程的 ScheduledExecutorService 模拟。
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+
+    private final AtomicReference<Thread> thread = new AtomicReference<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "main");
+            t.setDaemon(true);
+            thread.set(t);
+            return t;
+        }
+    });
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static Looper myLooper() {
+        return Thread.currentThread() == MAIN.thread.get() ? MAIN : null;
+    }
+
+    public Thread getThread() {
+        return thread.get();
+    }
+
+    ScheduledExecutorService executor() {
+        return executor;
+    }
+}
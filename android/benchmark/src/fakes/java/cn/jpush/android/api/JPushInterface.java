@@ -0,0 +1,126 @@
+package cn.jpush.android.api;
+
+import android.content.Context;
+
+import java.util.Set;
+
+import cn.jpush.android.data.JPushLocalNotification;
+
+/**
+ * 只保留插件用到的常量与方法，常量值与 SDK 一致。
+ * tag/alias 请求在设置了 tagAliasListener 时转交给它，由它模拟 SDK 通过 JPushMessageReceiver 回调结果。
+ * 设置了 initFailure 时 init 抛出该异常。
+ */
+public class JPushInterface {
+    public static final String ACTION_REGISTRATION_ID = "cn.jpush.android.intent.REGISTRATION";
+    public static final String ACTION_MESSAGE_RECEIVED = "cn.jpush.android.intent.MESSAGE_RECEIVED";
+    public static final String ACTION_NOTIFICATION_RECEIVED = "cn.jpush.android.intent.NOTIFICATION_RECEIVED";
+    public static final String ACTION_NOTIFICATION_OPENED = "cn.jpush.android.intent.NOTIFICATION_OPENED";
+
+    public static final String EXTRA_REGISTRATION_ID = "cn.jpush.android.REGISTRATION_ID";
+    public static final String EXTRA_MESSAGE = "cn.jpush.android.MESSAGE";
+    public static final String EXTRA_TITLE = "cn.jpush.android.TITLE";
+    public static final String EXTRA_CONTENT_TYPE = "cn.jpush.android.CONTENT_TYPE";
+    public static final String EXTRA_EXTRA = "cn.jpush.android.EXTRA";
+    public static final String EXTRA_MSG_ID = "cn.jpush.android.MSG_ID";
+    public static final String EXTRA_NOTIFICATION_ID = "cn.jpush.android.NOTIFICATION_ID";
+    public static final String EXTRA_NOTIFICATION_TITLE = "cn.jpush.android.NOTIFICATION_CONTENT_TITLE";
+    public static final String EXTRA_ALERT = "cn.jpush.android.ALERT";
+
+    public static volatile String registrationId = "";
+
+    public interface TagAliasListener {
+        void onRequest(Context context, int sequence, String operation);
+    }
+
+    public static volatile TagAliasListener tagAliasListener;
+
+    public static volatile RuntimeException initFailure;
+
+    private static void request(Context context, int sequence, String operation) {
+        TagAliasListener listener = tagAliasListener;
+        if (listener != null) {
+            listener.onRequest(context, sequence, operation);
+        }
+    }
+
+    public static void setDebugMode(boolean debug) {
+    }
+
+    public static void init(Context context) {
+        RuntimeException failure = initFailure;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public static void setChannel(Context context, String channel) {
+    }
+
+    public static String getRegistrationID(Context context) {
+        return registrationId;
+    }
+
+    public static void setTags(Context context, int sequence, Set<String> tags) {
+        request(context, sequence, "setTags");
+    }
+
+    public static void addTags(Context context, int sequence, Set<String> tags) {
+        request(context, sequence, "addTags");
+    }
+
+    public static void deleteTags(Context context, int sequence, Set<String> tags) {
+        request(context, sequence, "deleteTags");
+    }
+
+    public static void cleanTags(Context context, int sequence) {
+        request(context, sequence, "cleanTags");
+    }
+
+    public static void getAllTags(Context context, int sequence) {
+        request(context, sequence, "getAllTags");
+    }
+
+    public static void setAlias(Context context, int sequence, String alias) {
+        request(context, sequence, "setAlias");
+    }
+
+    public static void deleteAlias(Context context, int sequence) {
+        request(context, sequence, "deleteAlias");
+    }
+
+    public static void getAlias(Context context, int sequence) {
+        request(context, sequence, "getAlias");
+    }
+
+    public static void stopPush(Context context) {
+    }
+
+    public static void resumePush(Context context) {
+    }
+
+    public static void clearAllNotifications(Context context) {
+    }
+
+    public static void clearNotificationById(Context context, int notificationId) {
+    }
+
+    public static void addLocalNotification(Context context, JPushLocalNotification notification) {
+    }
+
+    public static void removeLocalNotification(Context context, long notificationId) {
+    }
+
+    public static void clearLocalNotifications(Context context) {
+    }
+
+    public static void setBadgeNumber(Context context, int number) {
+    }
+
+    public static int isNotificationEnabled(Context context) {
+        return 1;
+    }
+
+    public static void goToAppNotificationSettings(Context context) {
+    }
+}
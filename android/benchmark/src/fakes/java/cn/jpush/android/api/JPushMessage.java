@@ -0,0 +1,52 @@
+package cn.jpush.android.api;
+
+import java.util.Set;
+
+public class JPushMessage {
+    private int sequence;
+    private int errorCode;
+    private Set<String> tags;
+    private String alias;
+    private String checkTag;
+    private boolean tagCheckStateResult;
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(int errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(Set<String> tags) {
+        this.tags = tags;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    public String getCheckTag() {
+        return checkTag;
+    }
+
+    public boolean getTagCheckStateResult() {
+        return tagCheckStateResult;
+    }
+}
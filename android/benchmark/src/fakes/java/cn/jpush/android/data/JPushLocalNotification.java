@@ -0,0 +1,21 @@
+package cn.jpush.android.data;
+
+public class JPushLocalNotification {
+    public void setBuilderId(long builderId) {
+    }
+
+    public void setNotificationId(long notificationId) {
+    }
+
+    public void setTitle(String title) {
+    }
+
+    public void setContent(String content) {
+    }
+
+    public void setExtras(String extras) {
+    }
+
+    public void setBroadcastTime(long broadcastTime) {
+    }
+}
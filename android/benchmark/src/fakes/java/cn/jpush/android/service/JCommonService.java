@@ -0,0 +1,4 @@
+package cn.jpush.android.service;
+
+public class JCommonService {
+}
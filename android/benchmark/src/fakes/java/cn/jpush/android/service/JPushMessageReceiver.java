@@ -0,0 +1,19 @@
+package cn.jpush.android.service;
+
+import android.content.Context;
+
+import cn.jpush.android.api.JPushMessage;
+
+public class JPushMessageReceiver {
+    public void onTagOperatorResult(Context context, JPushMessage message) {
+    }
+
+    public void onCheckTagOperatorResult(Context context, JPushMessage message) {
+    }
+
+    public void onAliasOperatorResult(Context context, JPushMessage message) {
+    }
+
+    public void onNotificationSettingsCheck(Context context, boolean isOn, int source) {
+    }
+}
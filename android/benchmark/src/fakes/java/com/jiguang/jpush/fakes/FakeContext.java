@@ -0,0 +1,110 @@
+package com.jiguang.jpush.fakes;
+
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 应用 Context 的本地实现：SharedPreferences 在内存中，filesDir 为临时目录，启动 Activity 只计数，
+ * NotificationManager 只记录展示的通知与创建的渠道。
+ */
+public class FakeContext extends Context {
+
+    private final Map<String, FakeSharedPreferences> prefs = new HashMap<>();
+    private final ApplicationInfo applicationInfo = new ApplicationInfo();
+    private final AssetManager assets = new AssetManager();
+    private final NotificationManager notificationManager = new NotificationManager();
+    private File filesDir;
+    private int startedActivities;
+
+    private final PackageManager packageManager = new PackageManager() {
+        @Override
+        public Intent getLaunchIntentForPackage(String packageName) {
+            return new Intent("android.intent.action.MAIN");
+        }
+
+        @Override
+        public PackageInfo getPackageInfo(String packageName, int flags) {
+            PackageInfo info = new PackageInfo();
+            info.firstInstallTime = System.currentTimeMillis();
+            return info;
+        }
+    };
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    @Override
+    public String getPackageName() {
+        return "com.jiguang.jpush.benchmark";
+    }
+
+    @Override
+    public PackageManager getPackageManager() {
+        return packageManager;
+    }
+
+    @Override
+    public ApplicationInfo getApplicationInfo() {
+        return applicationInfo;
+    }
+
+    @Override
+    public AssetManager getAssets() {
+        return assets;
+    }
+
+    @Override
+    public synchronized SharedPreferences getSharedPreferences(String name, int mode) {
+        FakeSharedPreferences sp = prefs.get(name);
+        if (sp == null) {
+            sp = new FakeSharedPreferences();
+            prefs.put(name, sp);
+        }
+        return sp;
+    }
+
+    @Override
+    public synchronized File getFilesDir() {
+        if (filesDir == null) {
+            try {
+                filesDir = Files.createTempDirectory("jpush_flutter").toFile();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            filesDir.deleteOnExit();
+        }
+        return filesDir;
+    }
+
+    @Override
+    public Object getSystemService(String name) {
+        return NOTIFICATION_SERVICE.equals(name) ? notificationManager : null;
+    }
+
+    public NotificationManager notificationManager() {
+        return notificationManager;
+    }
+
+    @Override
+    public synchronized void startActivity(Intent intent) {
+        startedActivities += 1;
+    }
+
+    public synchronized int startedActivities() {
+        return startedActivities;
+    }
+}
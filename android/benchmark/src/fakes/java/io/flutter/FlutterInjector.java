@@ -0,0 +1,16 @@
+package io.flutter;
+
+import io.flutter.embedding.engine.loader.FlutterLoader;
+
+public final class FlutterInjector {
+    private static final FlutterInjector INSTANCE = new FlutterInjector();
+    private final FlutterLoader loader = new FlutterLoader();
+
+    public static FlutterInjector instance() {
+        return INSTANCE;
+    }
+
+    public FlutterLoader flutterLoader() {
+        return loader;
+    }
+}
@@ -0,0 +1,22 @@
+package io.flutter.embedding.engine;
+
+import android.content.Context;
+
+import io.flutter.embedding.engine.dart.DartExecutor;
+
+public class FlutterEngine {
+    private final DartExecutor dartExecutor = new DartExecutor();
+
+    public FlutterEngine(Context context) {
+    }
+
+    public FlutterEngine(Context context, String[] dartVmArgs, boolean automaticallyRegisterPlugins) {
+    }
+
+    public DartExecutor getDartExecutor() {
+        return dartExecutor;
+    }
+
+    public void destroy() {
+    }
+}
@@ -0,0 +1,15 @@
+package io.flutter.embedding.engine.loader;
+
+import android.content.Context;
+
+public class FlutterLoader {
+    public void startInitialization(Context context) {
+    }
+
+    public void ensureInitializationComplete(Context context, String[] args) {
+    }
+
+    public String findAppBundlePath() {
+        return "flutter_assets";
+    }
+}
@@ -0,0 +1,28 @@
+package io.flutter.plugin.common;
+
+public final class BasicMessageChannel<T> {
+    private final BinaryMessenger messenger;
+    private final String name;
+    private final MessageCodec<T> codec;
+
+    public BasicMessageChannel(BinaryMessenger messenger, String name, MessageCodec<T> codec) {
+        this.messenger = messenger;
+        this.name = name;
+        this.codec = codec;
+    }
+
+    public void send(T message) {
+        messenger.send(name, codec.encodeMessage(message));
+    }
+
+    public void setMessageHandler(MessageHandler<T> handler) {
+    }
+
+    public interface Reply<T> {
+        void reply(T reply);
+    }
+
+    public interface MessageHandler<T> {
+        void onMessage(T message, Reply<T> reply);
+    }
+}
@@ -0,0 +1,7 @@
+package io.flutter.plugin.common;
+
+import java.nio.ByteBuffer;
+
+public interface BinaryMessenger {
+    void send(String channel, ByteBuffer message);
+}
@@ -0,0 +1,49 @@
+package io.flutter.plugin.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * invokeMethod 只计数，带 Result 的调用立即以 success(null) 应答，相当于 dart 回调瞬间执行完。
+ * 设置 dart 后改为交给它处理，由它决定何时应答，用于压测时模拟 dart 层。
+ */
+public class MethodChannel {
+    public static final AtomicLong invocations = new AtomicLong();
+
+    public interface Dart {
+        void onInvoke(String method, Object arguments, Result callback);
+    }
+
+    public static volatile Dart dart;
+
+    public MethodChannel(BinaryMessenger messenger, String name) {
+    }
+
+    public void setMethodCallHandler(MethodCallHandler handler) {
+    }
+
+    public void invokeMethod(String method, Object arguments) {
+        invokeMethod(method, arguments, null);
+    }
+
+    public void invokeMethod(String method, Object arguments, Result callback) {
+        invocations.incrementAndGet();
+        Dart current = dart;
+        if (current != null) {
+            current.onInvoke(method, arguments, callback);
+        } else if (callback != null) {
+            callback.success(null);
+        }
+    }
+
+    public interface Result {
+        void success(Object result);
+
+        void error(String errorCode, String errorMessage, Object errorDetails);
+
+        void notImplemented();
+    }
+
+    public interface MethodCallHandler {
+        void onMethodCall(MethodCall call, Result result);
+    }
+}
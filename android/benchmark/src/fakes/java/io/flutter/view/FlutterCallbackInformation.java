@@ -0,0 +1,9 @@
+package io.flutter.view;
+
+public final class FlutterCallbackInformation {
+    public String callbackName;
+
+    public static FlutterCallbackInformation lookupCallbackInformation(long handle) {
+        return null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.jiguang.jpush;
+
+import android.content.Intent;
+
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+
+/**
+ * 基准与测试共用的合成消息：字段与 SDK 下发的通知广播一致，EXTRA 为包含 extraFields 个字段的 JSON。
+ */
+final class BenchmarkPayloads {
+
+    private BenchmarkPayloads() {
+    }
+
+    static String extraJson(int extraFields) {
+        Map<String, Object> extra = new HashMap<>();
+        for (int i = 0; i < extraFields; i++) {
+            extra.put("field_" + i, i % 3 == 0 ? "value_" + i + "_中文内容" : String.valueOf(i * 7919));
+        }
+        return new JSONObject(extra).toString();
+    }
+
+    static Intent notificationIntent(int seq, String extraJson) {
+        Intent intent = new Intent(JPushInterface.ACTION_NOTIFICATION_RECEIVED);
+        intent.putExtra(JPushInterface.EXTRA_MSG_ID, "58546795" + seq);
+        intent.putExtra(JPushInterface.EXTRA_NOTIFICATION_ID, 508000 + seq);
+        intent.putExtra(JPushInterface.EXTRA_NOTIFICATION_TITLE, "订单状态更新");
+        intent.putExtra(JPushInterface.EXTRA_ALERT, "您的订单 #" + seq + " 已发货，预计明天送达");
+        intent.putExtra(JPushInterface.EXTRA_EXTRA, extraJson);
+        intent.putExtra(JPushInterface.EXTRA_CONTENT_TYPE, "");
+        intent.putExtra("cn.jpush.android.APPKEY", "a1703c14b186a68a66ef86c1");
+        intent.putExtra("cn.jpush.android.TITLE", "订单状态更新");
+        intent.putExtra("cn.jpush.android.MESSAGE", "");
+        intent.putExtra("key_show_entity", "{\"ad_id\":\"58546795\",\"n_content\":\"...\"}");
+        intent.putExtra("platform", "0");
+        return intent;
+    }
+}
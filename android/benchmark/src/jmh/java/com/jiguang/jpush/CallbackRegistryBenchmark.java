@@ -0,0 +1,70 @@
+package com.jiguang.jpush;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * 待回调请求表在多线程下的吞吐：4 个线程同时注册并取回各自的请求，
+ * 相当于平台线程注册 tag/alias 操作、SDK 回调线程取回回调。
+ * synchronizedMap 为改造前的 callbackMap 加锁后的写法，作为对照。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CallbackRegistryBenchmark {
+
+    private static final Result RESULT = new Result() {
+        @Override
+        public void success(Object result) {
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+        }
+
+        @Override
+        public void notImplemented() {
+        }
+    };
+
+    private final JPushPendingRequests pendingRequests = new JPushPendingRequests();
+
+    private final Map<Integer, Result> callbackMap = new HashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Benchmark
+    public Result pendingRequests() {
+        int seq = pendingRequests.register(RESULT);
+        return pendingRequests.take(seq);
+    }
+
+    @Benchmark
+    public Result synchronizedMap() {
+        int seq = sequence.incrementAndGet();
+        synchronized (callbackMap) {
+            callbackMap.put(seq, RESULT);
+        }
+        synchronized (callbackMap) {
+            return callbackMap.remove(seq);
+        }
+    }
+}
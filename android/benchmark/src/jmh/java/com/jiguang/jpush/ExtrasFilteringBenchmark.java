@@ -0,0 +1,63 @@
+package com.jiguang.jpush;
+
+import android.content.Intent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 广播 extras 的过滤与 EXTRA 解析，即 JPushReceiver 在后台流水线上对每条通知做的工作。
+ * parse=none 时 EXTRA 原样下发，full 时解析为 Map，projected 时只保留两个字段。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtrasFilteringBenchmark {
+
+    @Param({"4", "64"})
+    public int extraFields;
+
+    @Param({"none", "full", "projected"})
+    public String parse;
+
+    private final JPushPlugin.JPushReceiver receiver = new JPushPlugin.JPushReceiver();
+    private Intent intent;
+
+    @Setup
+    public void setup() {
+        intent = BenchmarkPayloads.notificationIntent(1, BenchmarkPayloads.extraJson(extraFields));
+        if ("none".equals(parse)) {
+            JPushExtrasParser.configure(false, null);
+        } else if ("full".equals(parse)) {
+            JPushExtrasParser.configure(true, null);
+        } else {
+            JPushExtrasParser.configure(true, Arrays.asList("field_0", "field_1"));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> getNotificationExtras() {
+        return receiver.getNotificationExtras(intent);
+    }
+
+    @Benchmark
+    public Map<String, Object> buildNotification() {
+        return receiver.buildNotification(intent);
+    }
+}
@@ -0,0 +1,68 @@
+package com.jiguang.jpush;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * SDK 回调线程连续提交一批回调，直到全部在主线程执行完的耗时。
+ * coalesce=false 为每个回调新建 Handler 单独投递的原有方式。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MainDispatchBenchmark {
+
+    private static final int BURST = 64;
+
+    @Param({"true", "false"})
+    public boolean coalesce;
+
+    @Setup
+    public void setup() {
+        JPushMainDispatcher.setCoalesce(coalesce);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void burst() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(BURST);
+        Result result = new Result() {
+            @Override
+            public void success(Object o) {
+                done.countDown();
+            }
+
+            @Override
+            public void error(String s, String s1, Object o) {
+                done.countDown();
+            }
+
+            @Override
+            public void notImplemented() {
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < BURST; i++) {
+            JPushMainDispatcher.success(result, null);
+        }
+        done.await();
+    }
+}
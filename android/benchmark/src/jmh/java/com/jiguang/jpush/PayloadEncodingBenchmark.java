@@ -0,0 +1,76 @@
+package com.jiguang.jpush;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.BinaryMessenger;
+
+/**
+ * 下发数据的编码：二进制事件流的编码、StandardMessageCodec 字节数估算，
+ * 以及把整条消息序列化为 JSON 字符串作为对照。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadEncodingBenchmark {
+
+    @Param({"4", "64"})
+    public int extraFields;
+
+    private JPushMessageStream stream;
+    private Map<String, Object> message;
+    private Map<String, Object> extras;
+    private String msgId;
+    private String body;
+
+    @Setup
+    public void setup() {
+        stream = new JPushMessageStream(new BinaryMessenger() {
+            @Override
+            public void send(String channel, ByteBuffer message) {
+            }
+        });
+        JPushExtrasParser.configure(true, null);
+        extras = new JPushPlugin.JPushReceiver().getNotificationExtras(
+                BenchmarkPayloads.notificationIntent(1, BenchmarkPayloads.extraJson(extraFields)));
+        msgId = (String) extras.get(JPushInterface.EXTRA_MSG_ID);
+        body = "{\"type\":\"order\",\"status\":\"shipped\",\"orderId\":\"20261018000123\"}";
+        message = new HashMap<>();
+        message.put("message", body);
+        message.put("extras", extras);
+    }
+
+    @Benchmark
+    public boolean messageStreamEncode() {
+        return stream.encode(msgId, body, extras);
+    }
+
+    @Benchmark
+    public long standardCodecSize() {
+        return JPushExtrasParser.encodedSize(message);
+    }
+
+    @Benchmark
+    public String jsonBaseline() {
+        return new JSONObject(message).toString();
+    }
+}
@@ -0,0 +1,647 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import cn.jpush.android.api.JPushInterface;
+import cn.jpush.android.api.JPushMessage;
+import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * 端到端压测：不依赖 JPush 服务与 Android 设备，在普通 JVM 上按设定速率向 JPushReceiver 注入合成广播，
+ * 同时以 dart 层的 getAllTags 调用驱动 tag 请求，由本地的 JPushInterface 替身经 JPushEventReceiver 回调结果。
+ * dart 层由单线程的 "dart" executor 模拟，每个事件处理 dartMicros 微秒后应答。
+ * 统计每秒事件数、从广播到达到 dart 层收到的延迟分位数、丢失与重复下发的事件数以及堆内存增长。
+ *
+ *   gradle -p android/benchmark load -Pload.args='--rate 5000 --seconds 10 --payload 1024 --duplicates 0.1'
+ *   gradle -p android/benchmark load -Pload.args='--rate 5000 --seconds 10 --batch-ms 5 --batch-size 20'
+ */
+public final class LoadHarness {
+
+    static final class Options {
+        int rate = 2000;
+        double seconds = 10;
+        int payloadBytes = 256;
+        double duplicateRatio = 0.05;
+        double notificationRatio = 0.3;
+        double openRatio = 0.01;
+        int tagRate = 20;
+        long sdkDelayMicros = 2000;
+        long dartMicros = 20;
+        // 批量下发的 flushInterval（毫秒），0 表示不开启
+        long batchMillis = 0;
+        int batchSize = 20;
+        long seed = 42;
+        double maxDropRatio = -1;
+        double maxP99Millis = -1;
+        String output;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String key = args[i];
+                String value;
+                int eq = key.indexOf('=');
+                if (eq > 0) {
+                    value = key.substring(eq + 1);
+                    key = key.substring(0, eq);
+                } else if (i + 1 < args.length) {
+                    value = args[++i];
+                } else {
+                    throw new IllegalArgumentException("missing value for " + key);
+                }
+                switch (key) {
+                    case "--rate":
+                        options.rate = Integer.parseInt(value);
+                        break;
+                    case "--seconds":
+                        options.seconds = Double.parseDouble(value);
+                        break;
+                    case "--payload":
+                        options.payloadBytes = Integer.parseInt(value);
+                        break;
+                    case "--duplicates":
+                        options.duplicateRatio = Double.parseDouble(value);
+                        break;
+                    case "--notifications":
+                        options.notificationRatio = Double.parseDouble(value);
+                        break;
+                    case "--opens":
+                        options.openRatio = Double.parseDouble(value);
+                        break;
+                    case "--tag-rate":
+                        options.tagRate = Integer.parseInt(value);
+                        break;
+                    case "--sdk-delay-us":
+                        options.sdkDelayMicros = Long.parseLong(value);
+                        break;
+                    case "--dart-us":
+                        options.dartMicros = Long.parseLong(value);
+                        break;
+                    case "--batch-ms":
+                        options.batchMillis = Long.parseLong(value);
+                        break;
+                    case "--batch-size":
+                        options.batchSize = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        options.seed = Long.parseLong(value);
+                        break;
+                    case "--max-drop-ratio":
+                        options.maxDropRatio = Double.parseDouble(value);
+                        break;
+                    case "--max-p99-ms":
+                        options.maxP99Millis = Double.parseDouble(value);
+                        break;
+                    case "--output":
+                        options.output = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + key);
+                }
+            }
+            return options;
+        }
+    }
+
+    private static final String[] KIND_NAMES = {"message", "notification", "open"};
+
+    // 以下字段只在 dart 线程访问
+    private static final class Latencies {
+        long[] values = new long[1024];
+        int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        Map<String, Object> snapshot() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            Map<String, Object> map = new HashMap<>();
+            map.put("count", size);
+            map.put("p50Micros", percentile(sorted, 0.5) / 1000);
+            map.put("p90Micros", percentile(sorted, 0.9) / 1000);
+            map.put("p99Micros", percentile(sorted, 0.99) / 1000);
+            map.put("maxMicros", size == 0 ? 0 : sorted[size - 1] / 1000);
+            return map;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(sorted.length * p) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+
+    private final Options options;
+    private final Context context = new FakeContext();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final ExecutorService dart = Executors.newSingleThreadExecutor(daemon("dart"));
+    private final ScheduledExecutorService sdk = Executors.newSingleThreadScheduledExecutor(daemon("pushcore"));
+
+    private final int capacity;
+    private final long[] sentAt;
+    private final byte[] kinds;
+    private final boolean[] original;
+    private final AtomicIntegerArray deliveries;
+
+    private final Latencies[] latencies = {new Latencies(), new Latencies(), new Latencies()};
+    private final Latencies tagLatencies = new Latencies();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong lastDeliveredAt = new AtomicLong();
+    private final AtomicLong tagsRequested = new AtomicLong();
+    private final AtomicLong tagsCompleted = new AtomicLong();
+    private final AtomicLong heapPeak = new AtomicLong();
+
+    LoadHarness(Options options) {
+        this.options = options;
+        this.capacity = (int) Math.ceil(options.rate * options.seconds) + 1;
+        this.sentAt = new long[capacity];
+        this.kinds = new byte[capacity];
+        this.original = new boolean[capacity];
+        this.deliveries = new AtomicIntegerArray(capacity);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Map<String, Object> report = new LoadHarness(options).run();
+        String json = new JSONObject(report).toString(2);
+        System.out.println(json);
+        if (options.output != null) {
+            File file = new File(options.output);
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                writer.write(json);
+            }
+        }
+        String failure = check(options, report);
+        if (failure != null) {
+            System.err.println("FAILED: " + failure);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 返回不满足 --max-drop-ratio / --max-p99-ms 的原因，都满足时返回 null。
+     */
+    @SuppressWarnings("unchecked")
+    static String check(Options options, Map<String, Object> report) {
+        long expected = ((Number) report.get("expected")).longValue();
+        long dropped = ((Number) report.get("dropped")).longValue();
+        if (options.maxDropRatio >= 0 && expected > 0 && (double) dropped / expected > options.maxDropRatio) {
+            return "dropped " + dropped + " of " + expected;
+        }
+        if (options.maxP99Millis >= 0) {
+            Map<String, Object> byKind = (Map<String, Object>) report.get("latency");
+            for (String kind : KIND_NAMES) {
+                long p99 = ((Number) ((Map<String, Object>) byKind.get(kind)).get("p99Micros")).longValue();
+                if (p99 > options.maxP99Millis * 1000) {
+                    return kind + " p99 " + p99 + "us";
+                }
+            }
+        }
+        return null;
+    }
+
+    Map<String, Object> run() throws Exception {
+        final JPushPlugin plugin = new JPushPlugin();
+        final JPushPlugin.JPushReceiver receiver = new JPushPlugin.JPushReceiver();
+        final JPushEventReceiver eventReceiver = new JPushEventReceiver();
+
+        MethodChannel.dart = new MethodChannel.Dart() {
+            @Override
+            public void onInvoke(final String method, final Object arguments, final MethodChannel.Result callback) {
+                dart.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDartEvent(method, arguments);
+                        if (callback != null) {
+                            main.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    callback.success(null);
+                                }
+                            });
+                        }
+                    }
+                });
+            }
+        };
+        JPushInterface.tagAliasListener = new JPushInterface.TagAliasListener() {
+            @Override
+            public void onRequest(final Context context, final int sequence, String operation) {
+                sdk.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        final JPushMessage message = new JPushMessage();
+                        message.setSequence(sequence);
+                        message.setTags(new HashSet<>(Collections.singletonList("load")));
+                        main.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                eventReceiver.onTagOperatorResult(context, message);
+                            }
+                        });
+                    }
+                }, options.sdkDelayMicros, TimeUnit.MICROSECONDS);
+            }
+        };
+
+        try {
+            onMain(new Runnable() {
+                @Override
+                public void run() {
+                    plugin.onAttachedToEngine(new FlutterPlugin.FlutterPluginBinding(context, new BinaryMessenger() {
+                        @Override
+                        public void send(String channel, ByteBuffer message) {
+                        }
+                    }));
+                    Map<String, Object> rateLimit = new HashMap<>();
+                    rateLimit.put("minInterval", 0);
+                    rateLimit.put("maxRetries", 0);
+                    rateLimit.put("retryBackoff", 0);
+                    plugin.onMethodCall(new MethodCall("setTagAliasRateLimit", rateLimit), IGNORE);
+                    HashMap<String, Object> dedup = new HashMap<>();
+                    dedup.put("enable", true);
+                    dedup.put("capacity", 512);
+                    dedup.put("persist", false);
+                    plugin.onMethodCall(new MethodCall("setMessageDeduplication", dedup), IGNORE);
+                    if (options.batchMillis > 0) {
+                        HashMap<String, Object> batching = new HashMap<>();
+                        batching.put("enable", true);
+                        batching.put("flushInterval", options.batchMillis);
+                        batching.put("maxBatchSize", options.batchSize);
+                        plugin.onMethodCall(new MethodCall("setEventBatching", batching), IGNORE);
+                    }
+                    plugin.onMethodCall(new MethodCall("setEventHandlerReady", null), IGNORE);
+                }
+            });
+
+            long heapBefore = usedHeap(true);
+            heapPeak.set(heapBefore);
+            Thread sampler = startSampler();
+
+            long start = System.nanoTime();
+            long sent = produce(receiver, plugin, start);
+            long sendNanos = System.nanoTime() - start;
+            awaitQuiescence();
+
+            sampler.interrupt();
+            sampler.join();
+            long heapAfter = usedHeap(true);
+
+            final AtomicReference<Object> bufferStats = new AtomicReference<>();
+            final AtomicReference<Object> laneStats = new AtomicReference<>();
+            onMain(new Runnable() {
+                @Override
+                public void run() {
+                    plugin.onMethodCall(new MethodCall("getEventBufferStats", null), capture(bufferStats));
+                    plugin.onMethodCall(new MethodCall("getDeliveryLaneStats", null), capture(laneStats));
+                    plugin.onDetachedFromEngine(null);
+                }
+            });
+
+            return report(sent, sendNanos, start, heapBefore, heapAfter, bufferStats.get(), laneStats.get());
+        } finally {
+            MethodChannel.dart = null;
+            JPushInterface.tagAliasListener = null;
+            dart.shutdownNow();
+            sdk.shutdownNow();
+        }
+    }
+
+    // 在 "pushcore" 线程按设定速率投递广播，广播与 dart 调用都在主线程执行
+    private long produce(final JPushPlugin.JPushReceiver receiver, final JPushPlugin plugin, long start) {
+        SyntheticPushGenerator generator = new SyntheticPushGenerator(options.seed, options.payloadBytes,
+                options.notificationRatio, options.openRatio, options.duplicateRatio);
+        long interval = (long) (1e9 / options.rate);
+        long tagInterval = options.tagRate > 0 ? (long) (1e9 / options.tagRate) : Long.MAX_VALUE;
+        long nextTag = start;
+        int seq = 0;
+        for (; seq < capacity - 1; seq++) {
+            long due = start + seq * interval;
+            long now;
+            while ((now = System.nanoTime()) < due) {
+                LockSupport.parkNanos(due - now);
+            }
+            int kind = generator.nextKind();
+            long msgSeq = generator.msgSeq(kind, seq);
+            final Intent intent = generator.build(kind, msgSeq);
+            kinds[seq] = (byte) kind;
+            original[seq] = msgSeq == seq;
+            sentAt[seq] = System.nanoTime();
+            main.post(new Runnable() {
+                @Override
+                public void run() {
+                    receiver.onReceive(context, intent);
+                }
+            });
+
+            if (now >= nextTag) {
+                nextTag += tagInterval;
+                requestTags(plugin);
+            }
+        }
+        return seq;
+    }
+
+    private void requestTags(final JPushPlugin plugin) {
+        tagsRequested.incrementAndGet();
+        final long requestedAt = System.nanoTime();
+        main.post(new Runnable() {
+            @Override
+            public void run() {
+                plugin.onMethodCall(new MethodCall("getAllTags", Collections.singletonMap("refresh", true)),
+                        new MethodChannel.Result() {
+                            @Override
+                            public void success(Object result) {
+                                complete();
+                            }
+
+                            @Override
+                            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                                complete();
+                            }
+
+                            @Override
+                            public void notImplemented() {
+                                complete();
+                            }
+
+                            private void complete() {
+                                final long nanos = System.nanoTime() - requestedAt;
+                                tagsCompleted.incrementAndGet();
+                                dart.execute(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        tagLatencies.add(nanos);
+                                    }
+                                });
+                            }
+                        });
+            }
+        });
+    }
+
+    // 在 dart 线程执行
+    @SuppressWarnings("unchecked")
+    private void onDartEvent(String method, Object arguments) {
+        if (JPushEventBatcher.BATCH_METHOD.equals(method)) {
+            for (Object item : (List<Object>) arguments) {
+                Map<String, Object> event = (Map<String, Object>) item;
+                onDartEvent((String) event.get("method"), event.get("arguments"));
+            }
+            return;
+        }
+        if (!(arguments instanceof Map)) {
+            return;
+        }
+        Map<String, Object> map = (Map<String, Object>) arguments;
+        if ("onReceiveNotificationGroup".equals(method)) {
+            for (Object notification : (List<Object>) map.get("notifications")) {
+                onDartEvent("onReceiveNotification", notification);
+            }
+            return;
+        }
+        if ("onRuleEvent".equals(method)) {
+            map = (Map<String, Object>) map.get("payload");
+        }
+        Object extras = map.get("extras");
+        if (!(extras instanceof Map)) {
+            return;
+        }
+        long seq = SyntheticPushGenerator.seqOf(((Map<String, Object>) extras).get(JPushInterface.EXTRA_MSG_ID));
+        if (seq < 0 || seq >= capacity) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (deliveries.getAndIncrement((int) seq) == 0) {
+            latencies[kinds[(int) seq]].add(now - sentAt[(int) seq]);
+        }
+        delivered.incrementAndGet();
+        lastDeliveredAt.set(now);
+
+        long spinUntil = now + options.dartMicros * 1000;
+        while (System.nanoTime() < spinUntil) {
+            // 模拟 dart 回调的处理耗时
+        }
+    }
+
+    // 连续 500ms 没有新的下发且 tag 请求都已回调时认为处理完毕，最多等 10s
+    private void awaitQuiescence() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        long last = -1;
+        long stableSince = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            long current = delivered.get();
+            if (current != last || tagsCompleted.get() < tagsRequested.get()) {
+                last = current;
+                stableSince = System.nanoTime();
+            } else if (System.nanoTime() - stableSince > TimeUnit.MILLISECONDS.toNanos(500)) {
+                return;
+            }
+        }
+    }
+
+    private Map<String, Object> report(long sent, long sendNanos, long start, long heapBefore, long heapAfter,
+                                       Object bufferStats, Object laneStats) throws Exception {
+        final Map<String, Object> latency = new HashMap<>();
+        final Map<String, Object> tags = new HashMap<>();
+        dart.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < KIND_NAMES.length; i++) {
+                    latency.put(KIND_NAMES[i], latencies[i].snapshot());
+                }
+                tags.putAll(tagLatencies.snapshot());
+            }
+        }).get();
+        tags.put("requested", tagsRequested.get());
+        tags.put("completed", tagsCompleted.get());
+
+        long[] sentByKind = new long[KIND_NAMES.length];
+        long duplicatesSent = 0;
+        long expected = 0;
+        long deliveredUnique = 0;
+        long duplicateDeliveries = 0;
+        for (int seq = 0; seq < sent; seq++) {
+            sentByKind[kinds[seq]] += 1;
+            if (!original[seq]) {
+                duplicatesSent += 1;
+                continue;
+            }
+            expected += 1;
+            int count = deliveries.get(seq);
+            if (count > 0) {
+                deliveredUnique += 1;
+                duplicateDeliveries += count - 1;
+            }
+        }
+        Map<String, Object> sentMap = new HashMap<>();
+        for (int i = 0; i < KIND_NAMES.length; i++) {
+            sentMap.put(KIND_NAMES[i], sentByKind[i]);
+        }
+        sentMap.put("total", sent);
+        sentMap.put("duplicates", duplicatesSent);
+
+        double deliverSeconds = Math.max(1, lastDeliveredAt.get() - start) / 1e9;
+        Map<String, Object> memory = new HashMap<>();
+        memory.put("heapBeforeKb", heapBefore / 1024);
+        memory.put("heapAfterKb", heapAfter / 1024);
+        memory.put("heapPeakKb", heapPeak.get() / 1024);
+        memory.put("growthKb", (heapAfter - heapBefore) / 1024);
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("rate", options.rate);
+        config.put("seconds", options.seconds);
+        config.put("payloadBytes", options.payloadBytes);
+        config.put("duplicateRatio", options.duplicateRatio);
+        config.put("notificationRatio", options.notificationRatio);
+        config.put("openRatio", options.openRatio);
+        config.put("tagRate", options.tagRate);
+        config.put("dartMicros", options.dartMicros);
+        config.put("batchMillis", options.batchMillis);
+        config.put("batchSize", options.batchSize);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("config", config);
+        report.put("sent", sentMap);
+        report.put("sendRate", sent / (sendNanos / 1e9));
+        report.put("expected", expected);
+        report.put("delivered", deliveredUnique);
+        report.put("deliveredPerSecond", deliveredUnique / deliverSeconds);
+        report.put("dropped", expected - deliveredUnique);
+        report.put("duplicateDeliveries", duplicateDeliveries);
+        report.put("latency", latency);
+        report.put("tags", tags);
+        report.put("memory", memory);
+        report.put("eventBuffer", bufferStats);
+        report.put("lanes", laneStats);
+        return report;
+    }
+
+    private Thread startSampler() {
+        Thread sampler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long used = usedHeap(false);
+                    if (used > heapPeak.get()) {
+                        heapPeak.set(used);
+                    }
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "heap-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+        return sampler;
+    }
+
+    private static long usedHeap(boolean gc) {
+        Runtime runtime = Runtime.getRuntime();
+        if (gc) {
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void onMain(final Runnable task) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        main.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        done.await();
+    }
+
+    private static MethodChannel.Result capture(final AtomicReference<Object> ref) {
+        return new MethodChannel.Result() {
+            @Override
+            public void success(Object result) {
+                ref.set(result);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                ref.set(errorCode);
+            }
+
+            @Override
+            public void notImplemented() {
+            }
+        };
+    }
+
+    private static final MethodChannel.Result IGNORE = capture(new AtomicReference<>());
+
+    private static ThreadFactory daemon(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+}
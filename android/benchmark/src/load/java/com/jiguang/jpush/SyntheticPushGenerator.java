@@ -0,0 +1,117 @@
+package com.jiguang.jpush;
+
+import android.content.Intent;
+
+import org.json.JSONObject;
+
+import java.util.Random;
+
+import cn.jpush.android.api.JPushInterface;
+
+/**
+ * 生成与 JPush SDK 广播格式一致的合成 Intent。
+ * 每个事件分配一个序号，msgId 为 "load-" + 本次运行的标识 + "-" + 序号，压测据此把 dart 层收到的事件对应回发送时间；
+ * 运行标识保证同一进程中多次运行不会被去重缓存误判为重复。
+ * 自定义消息与通知按 duplicateRatio 的概率复用最近同类事件的 msgId，模拟厂商通道与 JPush 通道的重复投递。
+ */
+final class SyntheticPushGenerator {
+
+    static final int KIND_MESSAGE = 0;
+    static final int KIND_NOTIFICATION = 1;
+    static final int KIND_OPEN = 2;
+
+    static final String MSG_ID_PREFIX = "load-";
+
+    private static final int RECENT = 64;
+
+    private final Random random;
+    private final int payloadBytes;
+    private final double notificationRatio;
+    private final double openRatio;
+    private final double duplicateRatio;
+    private final String prefix;
+    private final String filler;
+
+    // 按事件类型分别保存，去重以 类型 + msgId 为键
+    private final long[][] recent = new long[2][RECENT];
+    private final int[] recentCount = new int[2];
+
+    SyntheticPushGenerator(long seed, int payloadBytes, double notificationRatio, double openRatio,
+                           double duplicateRatio) {
+        this.random = new Random(seed);
+        this.payloadBytes = payloadBytes;
+        this.notificationRatio = notificationRatio;
+        this.openRatio = openRatio;
+        this.duplicateRatio = duplicateRatio;
+        this.prefix = MSG_ID_PREFIX + Long.toHexString(System.nanoTime()) + '-';
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < payloadBytes; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        this.filler = sb.toString();
+    }
+
+    /**
+     * 下一个事件的类型。
+     */
+    int nextKind() {
+        double r = random.nextDouble();
+        if (r < openRatio) {
+            return KIND_OPEN;
+        }
+        return r < openRatio + notificationRatio ? KIND_NOTIFICATION : KIND_MESSAGE;
+    }
+
+    /**
+     * 返回 seq 号事件的 msgId 所用的序号：重复投递时为最近某个事件的序号，否则为 seq 本身。
+     */
+    long msgSeq(int kind, long seq) {
+        if (kind == KIND_OPEN) {
+            return seq;
+        }
+        if (recentCount[kind] > 0 && random.nextDouble() < duplicateRatio) {
+            return recent[kind][random.nextInt(Math.min(recentCount[kind], RECENT))];
+        }
+        recent[kind][recentCount[kind] % RECENT] = seq;
+        recentCount[kind] += 1;
+        return seq;
+    }
+
+    Intent build(int kind, long msgSeq) {
+        String msgId = prefix + msgSeq;
+        Intent intent;
+        if (kind == KIND_MESSAGE) {
+            intent = new Intent(JPushInterface.ACTION_MESSAGE_RECEIVED);
+            intent.putExtra(JPushInterface.EXTRA_MESSAGE, "message " + msgSeq);
+            intent.putExtra(JPushInterface.EXTRA_CONTENT_TYPE, "text");
+        } else {
+            intent = new Intent(kind == KIND_OPEN
+                    ? JPushInterface.ACTION_NOTIFICATION_OPENED : JPushInterface.ACTION_NOTIFICATION_RECEIVED);
+            intent.putExtra(JPushInterface.EXTRA_NOTIFICATION_TITLE, "title " + msgSeq);
+            intent.putExtra(JPushInterface.EXTRA_ALERT, "alert " + msgSeq);
+            intent.putExtra(JPushInterface.EXTRA_NOTIFICATION_ID, (int) msgSeq);
+        }
+        intent.putExtra(JPushInterface.EXTRA_MSG_ID, msgId);
+        intent.putExtra(JPushInterface.EXTRA_EXTRA, extra(msgSeq));
+        return intent;
+    }
+
+    static long seqOf(Object msgId) {
+        if (!(msgId instanceof String) || !((String) msgId).startsWith(MSG_ID_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(((String) msgId).substring(((String) msgId).lastIndexOf('-') + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String extra(long msgSeq) {
+        JSONObject json = new JSONObject();
+        json.put("type", msgSeq % 2 == 0 ? "order" : "news");
+        json.put("id", msgSeq);
+        json.put("body", filler);
+        return json.toString();
+    }
+}
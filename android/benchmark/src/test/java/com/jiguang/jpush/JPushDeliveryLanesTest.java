@@ -0,0 +1,84 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class JPushDeliveryLanesTest {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Test
+    public void assignsLanesByEvent() {
+        assertEquals(JPushDeliveryLanes.INTERACTIVE, JPushDeliveryLanes.laneOf("onOpenNotification"));
+        assertEquals(JPushDeliveryLanes.INTERACTIVE, JPushDeliveryLanes.laneOf("onReceiveNotificationAuthorization"));
+        assertEquals(JPushDeliveryLanes.BULK, JPushDeliveryLanes.laneOf("onReceiveMessage"));
+        assertEquals(JPushDeliveryLanes.DEFAULT, JPushDeliveryLanes.laneOf("onReceiveNotification"));
+    }
+
+    @Test
+    public void capsBulkInFlightUntilAcked() {
+        JPushDeliveryLanes lanes = new JPushDeliveryLanes(NOOP);
+        lanes.configure(0, 32, 2);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(lanes.canSendBulk());
+            lanes.onSent(JPushDeliveryLanes.BULK, false);
+        }
+        assertFalse(lanes.canSendBulk());
+        lanes.onAck(JPushDeliveryLanes.BULK, System.nanoTime());
+        assertTrue(lanes.canSendBulk());
+    }
+
+    @Test
+    public void countsOneBulkInFlightPerBatch() {
+        JPushDeliveryLanes lanes = new JPushDeliveryLanes(NOOP);
+        lanes.configure(0, 32, 2);
+        // 批次中的事件不单独占用 in-flight，超过上限也可以继续加入批次
+        for (int i = 0; i < 20; i++) {
+            assertTrue(lanes.canSendBulk());
+            lanes.onSent(JPushDeliveryLanes.BULK, true);
+        }
+        lanes.onBatchSent(true);
+        lanes.onBatchSent(true);
+        assertFalse(lanes.canSendBulk());
+        lanes.onBatchAck(true);
+        assertTrue(lanes.canSendBulk());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void throttlesBulkAndDrainsAfterRefill() throws InterruptedException {
+        final CountDownLatch refilled = new CountDownLatch(1);
+        JPushDeliveryLanes lanes = new JPushDeliveryLanes(new Runnable() {
+            @Override
+            public void run() {
+                refilled.countDown();
+            }
+        });
+        lanes.configure(10, 2, 100);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(lanes.canSendBulk());
+            lanes.onSent(JPushDeliveryLanes.BULK, false);
+            lanes.onAck(JPushDeliveryLanes.BULK, System.nanoTime());
+        }
+        assertFalse(lanes.canSendBulk());
+        assertTrue(refilled.await(2, TimeUnit.SECONDS));
+        assertTrue(lanes.canSendBulk());
+
+        Map<String, Object> bulk = (Map<String, Object>) lanes.stats(new JPushEventBuffer()).get("bulk");
+        assertEquals(2L, bulk.get("delivered"));
+        assertEquals(1L, bulk.get("throttled"));
+        assertNotNull(bulk.get("latency"));
+    }
+}
@@ -0,0 +1,241 @@
+package com.jiguang.jpush;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.embedding.engine.plugins.FlutterPlugin.FlutterPluginBinding;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JPushEngineRegistryTest {
+
+    private final List<JPushPlugin> attached = new ArrayList<>();
+    private final List<FlutterPluginBinding> bindings = new ArrayList<>();
+
+    private static final Result IGNORE = new Result() {
+        @Override
+        public void success(Object result) {
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+        }
+
+        @Override
+        public void notImplemented() {
+        }
+    };
+
+    private JPushPlugin attach(boolean subscribe) {
+        JPushPlugin plugin = new JPushPlugin();
+        FlutterPluginBinding binding = new FlutterPluginBinding(new FakeContext(), new BinaryMessenger() {
+            @Override
+            public void send(String channel, ByteBuffer message) {
+            }
+        });
+        plugin.onAttachedToEngine(binding);
+        if (subscribe) {
+            plugin.onMethodCall(new MethodCall("setEventHandlerReady", null), IGNORE);
+        }
+        attached.add(plugin);
+        bindings.add(binding);
+        return plugin;
+    }
+
+    @After
+    public void tearDown() {
+        MethodChannel.dart = null;
+        JPushPlugin.payloadStore.configure(false, null, 0);
+        for (int i = 0; i < attached.size(); i++) {
+            attached.get(i).onDetachedFromEngine(bindings.get(i));
+        }
+        JPushPlugin.engines.configure(JPushEngineRegistry.ROUTE_ALL, Collections.<String, String>emptyMap());
+    }
+
+    @Test
+    public void routesToSubscribedEngines() {
+        JPushPlugin main = attach(true);
+        attach(false);
+        JPushPlugin second = attach(true);
+
+        assertEquals(2, JPushPlugin.engines.route("onReceiveMessage", true).size());
+
+        Map<String, String> routes = new HashMap<>();
+        routes.put("onOpenNotification", JPushEngineRegistry.ROUTE_FIRST);
+        JPushPlugin.engines.configure(JPushEngineRegistry.ROUTE_LAST, routes);
+        assertSame(main, JPushPlugin.engines.route("onOpenNotification", true).get(0));
+        assertSame(second, JPushPlugin.engines.route("onReceiveMessage", true).get(0));
+        assertEquals(1, JPushPlugin.engines.route("onReceiveMessage", true).size());
+    }
+
+    @Test
+    public void fallsBackToAttachedEnginesForBuffering() {
+        attach(false);
+        attach(false);
+        assertTrue(JPushPlugin.engines.route("onReceiveNotification", true).isEmpty());
+        assertEquals(2, JPushPlugin.engines.route("onReceiveNotification", false).size());
+    }
+
+    @Test
+    public void detachHandsOverOrJournalsBufferedEvents() throws InterruptedException {
+        Map<String, String> routes = new HashMap<>();
+        routes.put("onReceiveNotification", JPushEngineRegistry.ROUTE_LAST);
+        JPushPlugin.engines.configure(JPushEngineRegistry.ROUTE_ALL, routes);
+        JPushPlugin first = attach(false);
+        attach(false);
+        JPushPlugin.dispatchToEngines("onReceiveNotification", new HashMap<String, Object>());
+        assertEquals(0, bufferDepth(first));
+
+        // 按 last 路由只进入了第二个引擎的缓冲区，卸载后转交给第一个
+        attached.get(1).onDetachedFromEngine(bindings.get(1));
+        attached.remove(1);
+        bindings.remove(1);
+        assertEquals(1, bufferDepth(first));
+
+        // 没有挂载的引擎时写入事件日志
+        JPushEventJournal journal = JPushEventJournal.getInstance(new FakeContext());
+        long appended = (Long) journal.stats().get("appended");
+        first.onDetachedFromEngine(bindings.get(0));
+        attached.clear();
+        bindings.clear();
+        JPushPlugin.dispatchToEngines("onReceiveNotificationGroup", new HashMap<String, Object>());
+        long deadline = System.currentTimeMillis() + 2000;
+        while ((Long) journal.stats().get("appended") < appended + 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(appended + 2, journal.stats().get("appended"));
+    }
+
+    @Test
+    public void marksReplayedDetachedEvents() throws InterruptedException {
+        JPushPlugin detached = attach(false);
+        detached.onDetachedFromEngine(bindings.get(0));
+        attached.clear();
+        bindings.clear();
+        Map<String, Object> group = new HashMap<>();
+        group.put("group", "replay-marker");
+        JPushPlugin.dispatchToEngines("onReceiveNotificationGroup", group);
+
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final List<Object> replayed = Collections.synchronizedList(new ArrayList<Object>());
+        MethodChannel.dart = new MethodChannel.Dart() {
+            @Override
+            public void onInvoke(String method, Object arguments, MethodChannel.Result callback) {
+                if ("onReceiveNotificationGroup".equals(method)
+                        && "replay-marker".equals(((Map<?, ?>) arguments).get("group"))) {
+                    replayed.add(((Map<?, ?>) arguments).get("replayed"));
+                    delivered.countDown();
+                }
+                if (callback != null) {
+                    callback.success(null);
+                }
+            }
+        };
+        JPushPlugin plugin = attach(true);
+        Map<String, Object> setup = new HashMap<>();
+        setup.put("debug", false);
+        setup.put("channel", "developer-default");
+        plugin.onMethodCall(new MethodCall("setup", setup), IGNORE);
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.<Object>singletonList(true), replayed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void journalsFullPayloadOfBufferedLazyEvents() throws InterruptedException {
+        JPushPlugin.payloadStore.configure(true, Collections.<String>emptyList(), 16);
+        JPushPlugin detached = attach(false);
+        Map<String, Object> extras = new HashMap<>();
+        extras.put("cn.jpush.android.MSG_ID", "lazy-journal");
+        extras.put("body", "full body");
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("title", "title");
+        notification.put("extras", extras);
+        JPushPlugin.dispatchToEngines("onReceiveNotification", notification);
+        assertEquals(1, bufferDepth(detached));
+
+        // 缓冲区中是完整的通知，卸载后写入日志的同样是完整数据
+        detached.onDetachedFromEngine(bindings.get(0));
+        attached.clear();
+        bindings.clear();
+        JPushPlugin.payloadStore.configure(false, null, 0);
+
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final List<Map<String, Object>> replayed = Collections.synchronizedList(new ArrayList<Map<String, Object>>());
+        MethodChannel.dart = new MethodChannel.Dart() {
+            @Override
+            public void onInvoke(String method, Object arguments, MethodChannel.Result callback) {
+                Map<String, Object> args = (Map<String, Object>) arguments;
+                if ("onReceiveNotification".equals(method) && args.get("extras") instanceof Map
+                        && "lazy-journal".equals(((Map<String, Object>) args.get("extras")).get("cn.jpush.android.MSG_ID"))) {
+                    replayed.add(args);
+                    delivered.countDown();
+                }
+                if (callback != null) {
+                    callback.success(null);
+                }
+            }
+        };
+        JPushPlugin plugin = attach(true);
+        Map<String, Object> setup = new HashMap<>();
+        setup.put("debug", false);
+        setup.put("channel", "developer-default");
+        plugin.onMethodCall(new MethodCall("setup", setup), IGNORE);
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        Map<String, Object> args = replayed.get(0);
+        assertEquals(null, args.get("lazy"));
+        assertEquals("full body", ((Map<String, Object>) args.get("extras")).get("body"));
+    }
+
+    private static int bufferDepth(JPushPlugin plugin) {
+        final Map<String, Object> stats = new HashMap<>();
+        plugin.onMethodCall(new MethodCall("getEventBufferStats", null), new Result() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void success(Object result) {
+                stats.putAll((Map<String, Object>) result);
+            }
+
+            @Override
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+            }
+
+            @Override
+            public void notImplemented() {
+            }
+        });
+        return ((Number) stats.get("depth")).intValue();
+    }
+
+    @Test
+    public void detachRemovesEngine() {
+        JPushPlugin first = attach(true);
+        JPushPlugin second = attach(true);
+        assertSame(second, JPushPlugin.instance);
+
+        second.onDetachedFromEngine(bindings.get(1));
+        attached.remove(1);
+        bindings.remove(1);
+        assertEquals(1, JPushPlugin.engines.engines().size());
+        assertSame(first, JPushPlugin.instance);
+    }
+}
@@ -0,0 +1,69 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JPushEventBatcherTest {
+
+    private final List<List<Map<String, Object>>> batches = Collections.synchronizedList(
+            new ArrayList<List<Map<String, Object>>>());
+    private final List<List<Long>> arrivals = Collections.synchronizedList(new ArrayList<List<Long>>());
+
+    private JPushEventBatcher batcher(final CountDownLatch delivered) {
+        return new JPushEventBatcher(new JPushEventBatcher.Sink() {
+            @Override
+            public void deliverBatch(List<Map<String, Object>> batch, List<Long> batchArrivals) {
+                batches.add(batch);
+                arrivals.add(batchArrivals);
+                if (delivered != null) {
+                    delivered.countDown();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void flushesWhenBatchIsFull() {
+        JPushEventBatcher batcher = batcher(null);
+        batcher.configure(true, 60 * 1000, 3);
+        for (int i = 0; i < 7; i++) {
+            batcher.add("onReceiveMessage", Collections.<String, Object>singletonMap("i", i), i);
+        }
+
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals("onReceiveMessage", batches.get(0).get(0).get("method"));
+        assertEquals(Collections.singletonMap("i", 3), batches.get(1).get(0).get("arguments"));
+        assertEquals(Long.valueOf(5), arrivals.get(1).get(2));
+        assertEquals(1, batcher.stats().get("pending"));
+
+        // 关闭批量下发时立即发出剩余的事件
+        batcher.configure(false, 0, 0);
+        assertEquals(3, batches.size());
+        assertEquals(7L, batcher.stats().get("eventsCoalesced"));
+    }
+
+    @Test
+    public void flushesAfterIntervalFromFirstEvent() throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(1);
+        JPushEventBatcher batcher = batcher(delivered);
+        batcher.configure(true, 50, 20);
+        batcher.add("onReceiveNotification", Collections.<String, Object>emptyMap(), 1);
+        batcher.add("onReceiveMessage", Collections.<String, Object>emptyMap(), 2);
+        assertTrue(batches.isEmpty());
+
+        assertTrue(delivered.await(2, TimeUnit.SECONDS));
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(1L, batcher.stats().get("batchesSent"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JPushEventBufferTest {
+
+    private static Map<String, Object> args(int value) {
+        return Collections.<String, Object>singletonMap("value", value);
+    }
+
+    @Test
+    public void dropOldestKeepsNewest() {
+        JPushEventBuffer buffer = new JPushEventBuffer();
+        buffer.configure("onReceiveMessage", JPushEventBuffer.DROP_OLDEST, 2);
+        for (int i = 0; i < 3; i++) {
+            buffer.offer("onReceiveMessage", args(i));
+        }
+        assertEquals(2, buffer.size());
+        assertEquals(1, buffer.poll().arguments.get("value"));
+        assertEquals(2, buffer.poll().arguments.get("value"));
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void dropNewestKeepsOldest() {
+        JPushEventBuffer buffer = new JPushEventBuffer();
+        buffer.configure("onReceiveMessage", JPushEventBuffer.DROP_NEWEST, 2);
+        for (int i = 0; i < 3; i++) {
+            buffer.offer("onReceiveMessage", args(i));
+        }
+        assertEquals(0, buffer.poll().arguments.get("value"));
+        assertEquals(1, buffer.poll().arguments.get("value"));
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void coalesceLatestKeepsArrivalOrderOfOtherEvents() {
+        JPushEventBuffer buffer = new JPushEventBuffer();
+        buffer.offer("onRegistrationIdChanged", args(0));
+        buffer.offer("onReceiveMessage", args(1));
+        buffer.offer("onRegistrationIdChanged", args(2));
+        assertEquals(2, buffer.size());
+        JPushEventBuffer.Entry first = buffer.poll();
+        assertEquals("onReceiveMessage", first.method);
+        JPushEventBuffer.Entry second = buffer.poll();
+        assertEquals("onRegistrationIdChanged", second.method);
+        assertEquals(2, second.arguments.get("value"));
+    }
+
+    @Test
+    public void pollByLaneServesInteractiveBeforeBulk() {
+        JPushEventBuffer buffer = new JPushEventBuffer();
+        buffer.offer("onReceiveMessage", args(0));
+        buffer.offer("onReceiveMessage", args(1));
+        buffer.offer("onOpenNotification", args(2));
+        assertEquals(1, buffer.size(JPushDeliveryLanes.INTERACTIVE));
+        assertEquals(2, buffer.size(JPushDeliveryLanes.BULK));
+        assertEquals("onOpenNotification", buffer.poll(JPushDeliveryLanes.INTERACTIVE).method);
+        assertNull(buffer.poll(JPushDeliveryLanes.INTERACTIVE));
+        assertEquals(0, buffer.poll(JPushDeliveryLanes.BULK).arguments.get("value"));
+        assertEquals(1, buffer.size());
+    }
+}
@@ -0,0 +1,148 @@
+package com.jiguang.jpush;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JPushEventJournalTest {
+
+    private final FakeContext context = new FakeContext();
+
+    private static Map<String, Object> event(int id) {
+        return Collections.<String, Object>singletonMap("id", id);
+    }
+
+    // 回放并返回按顺序下发的事件 id
+    private static List<Integer> replay(JPushEventJournal journal, int expected) throws InterruptedException {
+        final List<Integer> ids = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(expected);
+        journal.replay(new JPushEventJournal.Consumer() {
+            @Override
+            public void onReplay(int type, Map<String, Object> event) {
+                assertEquals(JPushEventJournal.TYPE_EVENT, type);
+                ids.add(((Number) event.get("id")).intValue());
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // 等主线程上的回放任务结束，此时压缩任务已提交到日志线程，之后的调用排在它后面
+        final CountDownLatch drained = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                drained.countDown();
+            }
+        });
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        return ids;
+    }
+
+    private static void writeRecord(DataOutputStream out, String json) throws IOException {
+        byte[] payload = json.getBytes("UTF-8");
+        out.writeInt(payload.length + 1);
+        out.writeByte(JPushEventJournal.TYPE_EVENT);
+        out.write(payload);
+    }
+
+    @Test
+    public void recoversRecordsBeforeTornTail() throws Exception {
+        File file = new File(context.getFilesDir(), "jpush_flutter_events.journal");
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        writeRecord(out, "{\"id\":1}");
+        writeRecord(out, "{\"id\":2}");
+        // 写到一半的记录：长度声明 100 字节，实际只有 3 字节
+        out.writeInt(100);
+        out.write(new byte[]{JPushEventJournal.TYPE_EVENT, '{', '"'});
+        out.close();
+
+        JPushEventJournal journal = new JPushEventJournal(context);
+        journal.append(JPushEventJournal.TYPE_EVENT, event(3));
+        assertEquals(Arrays.asList(1, 2, 3), replay(journal, 3));
+    }
+
+    @Test
+    public void dropsOldestWhenFull() throws InterruptedException {
+        JPushEventJournal journal = new JPushEventJournal(context);
+        journal.configure(4, JPushEventJournal.POLICY_DROP_OLDEST, true);
+        for (int i = 0; i < 6; i++) {
+            journal.append(JPushEventJournal.TYPE_EVENT, event(i));
+        }
+        assertEquals(Arrays.asList(2, 3, 4, 5), replay(journal, 4));
+        assertEquals(2L, journal.stats().get("evicted"));
+    }
+
+    @Test
+    public void dropsNewestWhenFull() throws InterruptedException {
+        JPushEventJournal journal = new JPushEventJournal(context);
+        journal.configure(3, JPushEventJournal.POLICY_DROP_NEWEST, true);
+        for (int i = 0; i < 5; i++) {
+            journal.append(JPushEventJournal.TYPE_EVENT, event(i));
+        }
+        assertEquals(Arrays.asList(0, 1, 2), replay(journal, 3));
+        assertEquals(2L, journal.stats().get("evicted"));
+    }
+
+    @Test
+    public void compactsReplayedRecords() throws InterruptedException {
+        JPushEventJournal journal = new JPushEventJournal(context);
+        journal.append(JPushEventJournal.TYPE_EVENT, event(1));
+        journal.append(JPushEventJournal.TYPE_EVENT, event(2));
+        assertEquals(Arrays.asList(1, 2), replay(journal, 2));
+
+        journal.append(JPushEventJournal.TYPE_EVENT, event(3));
+        // 第一次回放的记录已被压缩掉，不会再次下发
+        assertEquals(Collections.singletonList(3), replay(journal, 1));
+    }
+
+    @Test
+    public void replaysAgainWhenRequestedDuringDrain() throws InterruptedException {
+        JPushEventJournal journal = new JPushEventJournal(context);
+        journal.append(JPushEventJournal.TYPE_EVENT, event(1));
+
+        // 阻塞主线程，让第一次回放停在下发之前
+        final CountDownLatch release = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        final List<Integer> ids = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(2);
+        JPushEventJournal.Consumer consumer = new JPushEventJournal.Consumer() {
+            @Override
+            public void onReplay(int type, Map<String, Object> event) {
+                ids.add(((Number) event.get("id")).intValue());
+                done.countDown();
+            }
+        };
+        journal.replay(consumer);
+        journal.append(JPushEventJournal.TYPE_EVENT, event(2));
+        journal.replay(consumer);
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2), ids);
+    }
+}
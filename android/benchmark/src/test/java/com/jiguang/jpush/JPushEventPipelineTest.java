@@ -0,0 +1,27 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class JPushEventPipelineTest {
+
+    @SuppressWarnings("unchecked")
+    private static long parseCount() {
+        return ((Number) ((Map<String, Object>) JPushEventPipeline.stats().get("parse")).get("count")).longValue();
+    }
+
+    @Test
+    public void metricsResetClearsStageStats() {
+        JPushMetrics.reset();
+        JPushEventPipeline.record(JPushEventPipeline.STAGE_PARSE, 2000);
+        JPushEventPipeline.record(JPushEventPipeline.STAGE_PARSE, 4000);
+        assertEquals(2, parseCount());
+        assertEquals(2L, JPushMetrics.stage("parse").get("count"));
+
+        JPushMetrics.reset();
+        assertEquals(0, parseCount());
+    }
+}
@@ -0,0 +1,123 @@
+package com.jiguang.jpush;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JPushInboxTest {
+
+    private final JPushInbox inbox = new JPushInbox(new FakeContext());
+
+    private static class Await implements Result {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Object value;
+
+        @Override
+        public void success(Object result) {
+            value = result;
+            done.countDown();
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            value = errorCode + ": " + errorMessage;
+            done.countDown();
+        }
+
+        @Override
+        public void notImplemented() {
+        }
+
+        Object get() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            return value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> page(long before, int limit, int type, boolean unreadOnly) throws InterruptedException {
+        Await result = new Await();
+        inbox.query(before, limit, type, unreadOnly, result);
+        return (Map<String, Object>) result.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> ids(Map<String, Object> page) {
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> item : (List<Map<String, Object>>) page.get("items")) {
+            ids.add((Long) item.get("id"));
+        }
+        return ids;
+    }
+
+    private void append(int type, int count) {
+        for (int i = 0; i < count; i++) {
+            inbox.append(type, "msg-" + type + "-" + i, Collections.<String, Object>singletonMap("i", i));
+        }
+    }
+
+    @Test
+    public void pagesNewestFirstWithCursor() throws InterruptedException {
+        inbox.configure(true, 60 * 60 * 1000);
+        append(JPushInbox.TYPE_MESSAGE, 5);
+        append(JPushInbox.TYPE_NOTIFICATION, 2);
+
+        Map<String, Object> first = page(0, 3, 0, false);
+        assertEquals(Arrays.asList(7L, 6L, 5L), ids(first));
+        assertEquals(5L, first.get("nextCursor"));
+        Map<String, Object> second = page((Long) first.get("nextCursor"), 3, 0, false);
+        assertEquals(Arrays.asList(4L, 3L, 2L), ids(second));
+        Map<String, Object> last = page((Long) second.get("nextCursor"), 3, 0, false);
+        assertEquals(Collections.singletonList(1L), ids(last));
+        assertNull(last.get("nextCursor"));
+
+        assertEquals(Arrays.asList(7L, 6L), ids(page(0, 10, JPushInbox.TYPE_NOTIFICATION, false)));
+
+        Await marked = new Await();
+        inbox.markRead(Arrays.<Number>asList(7L, 5L), marked);
+        assertEquals(2, marked.get());
+        assertEquals(Arrays.asList(6L, 4L, 3L, 2L, 1L), ids(page(0, 10, 0, true)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void compactsRecordsOlderThanTtl() throws InterruptedException {
+        inbox.configure(true, 50);
+        append(JPushInbox.TYPE_MESSAGE, 2);
+        // 先写入，之后才过期
+        page(0, 10, 0, false);
+        Thread.sleep(100);
+        append(JPushInbox.TYPE_NOTIFICATION, 1);
+
+        Await compacted = new Await();
+        inbox.compact(compacted);
+        assertEquals(2, compacted.get());
+
+        Await stats = new Await();
+        inbox.stats(stats);
+        Map<String, Object> map = (Map<String, Object>) stats.get();
+        assertEquals(1L, map.get("entries"));
+        assertEquals(2L, map.get("compacted"));
+        assertEquals(3L, map.get("written"));
+    }
+
+    @Test
+    public void ignoresAppendsWhileDisabled() throws InterruptedException {
+        append(JPushInbox.TYPE_MESSAGE, 3);
+        assertTrue(ids(page(0, 10, 0, false)).isEmpty());
+    }
+}
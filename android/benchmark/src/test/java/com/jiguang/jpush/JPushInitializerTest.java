@@ -0,0 +1,100 @@
+package com.jiguang.jpush;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JPushInitializerTest {
+
+    private final List<String> replayed = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch replayDone = new CountDownLatch(2);
+    private final CountDownLatch initialized = new CountDownLatch(1);
+    private volatile String registrationId;
+
+    private final JPushInitializer initializer = new JPushInitializer(new JPushInitializer.Callback() {
+        @Override
+        public void onInitialized(String rid) {
+            registrationId = rid;
+            initialized.countDown();
+        }
+
+        @Override
+        public void replay(MethodCall call, Result result) {
+            replayed.add(call.method);
+            replayDone.countDown();
+        }
+    });
+
+    @After
+    public void tearDown() {
+        JPushInterface.initFailure = null;
+        JPushInterface.registrationId = "";
+    }
+
+    // 在主线程中启动异步初始化，并在初始化完成前排入两个调用
+    private void initWithQueuedCalls() throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                initializer.init(new FakeContext(), false, "developer-default", true);
+                assertTrue(initializer.isRunning());
+                initializer.enqueue(new MethodCall("setTags", null), null);
+                initializer.enqueue(new MethodCall("getAllTags", null), null);
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void replaysQueuedCallsInOrderAfterInit() throws InterruptedException {
+        JPushInterface.registrationId = "rid-1";
+        initWithQueuedCalls();
+
+        assertTrue(initialized.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("setTags", "getAllTags"), replayed);
+        assertEquals("rid-1", registrationId);
+        assertFalse(initializer.isRunning());
+        Map<String, Object> stats = initializer.stats();
+        assertEquals(2L, stats.get("queuedCalls"));
+        assertTrue(((Map<String, Object>) stats.get("phases")).containsKey("getRegistrationID"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void replaysQueuedCallsWhenInitThrows() throws InterruptedException {
+        JPushInterface.initFailure = new IllegalStateException("init failed");
+        initWithQueuedCalls();
+
+        assertTrue(replayDone.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("setTags", "getAllTags"), replayed);
+        assertFalse(initializer.isRunning());
+        assertNull(registrationId);
+        Map<String, Object> phases = (Map<String, Object>) initializer.stats().get("phases");
+        assertTrue(phases.containsKey("failed"));
+        assertFalse(phases.containsKey("getRegistrationID"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.jiguang.jpush;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class JPushLocalNotificationSchedulerTest {
+
+    private final FakeContext context = new FakeContext();
+    private final long now = System.currentTimeMillis();
+
+    private static Map<String, Object> notification(Object id, Object fireTime, String title) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", id);
+        map.put("fireTime", fireTime);
+        map.put("title", title);
+        map.put("content", "content");
+        return map;
+    }
+
+    private JPushLocalNotificationScheduler scheduler() {
+        JPushLocalNotificationScheduler scheduler = new JPushLocalNotificationScheduler();
+        scheduler.setContext(context);
+        return scheduler;
+    }
+
+    @Test
+    public void validatesEachNotification() {
+        Map<String, Object> badExtra = notification(3, now + 60000, "t");
+        badExtra.put("extra", "not a map");
+        List<Map<String, Object>> results = scheduler().schedule(Arrays.asList(
+                notification(1, now + 60000, "t"),
+                notification(null, now + 60000, "t"),
+                notification(2, null, "t"),
+                notification(4, now + 60000, null),
+                badExtra,
+                null));
+
+        assertEquals(6, results.size());
+        assertEquals(true, results.get(0).get("ok"));
+        assertEquals("id is required", results.get(1).get("error"));
+        assertEquals("fireTime is required", results.get(2).get("error"));
+        assertEquals("title and content are required", results.get(3).get("error"));
+        assertEquals("extra must be a map", results.get(4).get("error"));
+        assertEquals("notification is null", results.get(5).get("error"));
+        for (Map<String, Object> result : results.subList(1, 6)) {
+            assertEquals(false, result.get("ok"));
+        }
+    }
+
+    @Test
+    public void persistsIndexAcrossInstances() {
+        Map<String, Object> withExtra = notification(2, now + 120000, "second");
+        withExtra.put("extra", Collections.singletonMap("route", "/inbox"));
+        scheduler().schedule(Arrays.asList(
+                notification(1, now + 60000, "first"),
+                withExtra,
+                notification(3, now + 180000, "third")));
+
+        JPushLocalNotificationScheduler scheduler = scheduler();
+        // 重复调度同一 id 即为更新
+        scheduler.schedule(Collections.singletonList(notification(1, now + 240000, "updated")));
+        scheduler.cancel(Collections.singletonList(3));
+
+        List<Map<String, Object>> list = scheduler().query(now, now + 300000);
+        assertEquals(2, list.size());
+        assertEquals(2, list.get(0).get("id"));
+        assertEquals(Collections.singletonMap("route", "/inbox"), list.get(0).get("extra"));
+        assertEquals("updated", list.get(1).get("title"));
+        assertEquals(now + 240000, list.get(1).get("fireTime"));
+    }
+
+    @Test
+    public void prunesExpiredNotificationsOnQuery() {
+        JPushLocalNotificationScheduler scheduler = scheduler();
+        scheduler.schedule(Arrays.asList(
+                notification(1, now - 1000, "expired"),
+                notification(2, now + 60000, "pending")));
+
+        assertEquals(1, scheduler.query(0, Long.MAX_VALUE).size());
+        List<Map<String, Object>> cancelled = scheduler().cancel(Collections.singletonList(1));
+        assertEquals(false, cancelled.get(0).get("ok"));
+        assertEquals(2, scheduler().query(0, Long.MAX_VALUE).get(0).get("id"));
+    }
+}
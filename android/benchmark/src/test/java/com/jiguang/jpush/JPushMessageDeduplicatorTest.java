@@ -0,0 +1,65 @@
+package com.jiguang.jpush;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JPushMessageDeduplicatorTest {
+
+    @Test
+    public void suppressesRepeatedMsgIdPerKind() {
+        JPushMessageDeduplicator dedup = JPushMessageDeduplicator.getInstance(new FakeContext());
+        dedup.configure(true, 4, false);
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "m1"));
+        assertTrue(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "m1"));
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_NOTIFICATION, "m1"));
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, null));
+    }
+
+    @Test
+    public void forgetsOldestBeyondCapacity() {
+        JPushMessageDeduplicator dedup = JPushMessageDeduplicator.getInstance(new FakeContext());
+        // 容量变化时才会清空记录，先切换一次容量保证从空表开始
+        dedup.configure(true, 2, false);
+        dedup.configure(true, 3, false);
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "a"));
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "b"));
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "c"));
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "d"));
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "a"));
+        assertTrue(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "d"));
+    }
+
+    @Test
+    public void persistsTailInBatches() throws InterruptedException {
+        FakeContext context = new FakeContext();
+        SharedPreferences prefs = context.getSharedPreferences("jpush_flutter_dedup", Context.MODE_PRIVATE);
+        JPushMessageDeduplicator dedup = new JPushMessageDeduplicator(context);
+        assertFalse(dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "m0"));
+
+        dedup.configure(true, 64, true);
+        for (int i = 1; i < 16; i++) {
+            dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "m" + i);
+        }
+        assertNull(prefs.getString("tail", null));
+        dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "m16");
+        assertTrue(prefs.getString("tail", null).split(",").length == 16);
+
+        // 不足一批的记录在延迟后写入
+        dedup.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "m17");
+        long deadline = System.currentTimeMillis() + 3000;
+        while (prefs.getString("tail", "").split(",").length < 17 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        JPushMessageDeduplicator restored = new JPushMessageDeduplicator(context);
+        assertTrue(restored.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "m17"));
+        assertTrue(restored.isDuplicate(JPushMessageDeduplicator.KIND_MESSAGE, "m1"));
+    }
+}
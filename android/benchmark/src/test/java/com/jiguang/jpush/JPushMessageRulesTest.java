@@ -0,0 +1,152 @@
+package com.jiguang.jpush;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JPushMessageRulesTest {
+
+    // 规则是进程内单例且会持久化，避免影响其他测试
+    @After
+    public void tearDown() {
+        JPushMessageRules.getInstance(new FakeContext()).configure(Collections.emptyList());
+    }
+
+    private static Map<String, Object> rule(String id, String on, String action, Object... when) {
+        Map<String, Object> rule = new HashMap<>();
+        rule.put("id", id);
+        rule.put("on", on);
+        rule.put("action", action);
+        rule.put("when", Arrays.asList(when));
+        return rule;
+    }
+
+    private static Map<String, Object> condition(String key, String op, Object value) {
+        Map<String, Object> condition = new HashMap<>();
+        condition.put("key", key);
+        condition.put("op", op);
+        condition.put("value", value);
+        return condition;
+    }
+
+    private static Map<String, Object> extras(String type, String extra) {
+        Map<String, Object> extras = new HashMap<>();
+        extras.put("type", type);
+        extras.put(JPushInterface.EXTRA_EXTRA, extra);
+        return extras;
+    }
+
+    @Test
+    public void firstMatchingRuleWinsAndCountsMatches() {
+        JPushMessageRules rules = JPushMessageRules.getInstance(new FakeContext());
+        Map<String, Object> route = rule("order", "all", "route",
+                condition("type", "in", Arrays.asList("order", "refund")));
+        route.put("handler", "orders");
+        List<Map<String, Object>> definitions = Arrays.asList(
+                rule("sync", "message", "drop", condition("type", "equals", "sync")),
+                route,
+                rule("vip", "notification", "drop", condition("level", "prefix", "vip")));
+        rules.configure(definitions);
+
+        assertEquals("sync", rules.evaluate(JPushMessageRules.KIND_MESSAGE, extras("sync", null)).id);
+        assertNull(rules.evaluate(JPushMessageRules.KIND_NOTIFICATION, extras("sync", null)));
+        assertEquals("orders", rules.evaluate(JPushMessageRules.KIND_NOTIFICATION, extras("refund", null)).handler);
+        // extras 中没有的字段在 EXTRA 的自定义字段中查找
+        assertEquals("vip", rules.evaluate(JPushMessageRules.KIND_NOTIFICATION,
+                extras("news", "{\"level\":\"vip2\"}")).id);
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> stats = (List<Map<String, Object>>) rules.stats().get("rules");
+        assertEquals(1L, stats.get(0).get("matches"));
+        assertEquals(1L, stats.get(1).get("matches"));
+        assertEquals(1L, stats.get(2).get("matches"));
+    }
+
+    @Test
+    public void collapsesWithinWindowPerKeyValue() {
+        JPushMessageRules rules = JPushMessageRules.getInstance(new FakeContext());
+        Map<String, Object> collapse = rule("badge", "message", "collapse", condition("type", "equals", "badge"));
+        collapse.put("collapseKey", "uid");
+        collapse.put("window", 60000);
+        rules.configure(Collections.singletonList(collapse));
+
+        Map<String, Object> a = extras("badge", null);
+        a.put("uid", "1");
+        Map<String, Object> b = extras("badge", null);
+        b.put("uid", "2");
+        JPushMessageRules.Rule rule = rules.evaluate(JPushMessageRules.KIND_MESSAGE, a);
+        assertFalse(rules.collapse(rule, a));
+        assertTrue(rules.collapse(rule, a));
+        assertFalse(rules.collapse(rule, b));
+        assertEquals(1L, rule.collapsed.get());
+    }
+
+    @Test
+    public void rejectsInvalidRulesAndKeepsPrevious() {
+        JPushMessageRules rules = JPushMessageRules.getInstance(new FakeContext());
+        rules.configure(Collections.singletonList(rule("sync", "message", "drop",
+                condition("type", "equals", "sync"))));
+        try {
+            rules.configure(Collections.singletonList(rule("bad", "notification", "background")));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            rules.configure(Collections.singletonList(rule("bad", "all", "drop",
+                    condition("type", "regex", "("))));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        Map<String, Object> wrongType = rule("bad", "message", "collapse", condition("type", "equals", "x"));
+        wrongType.put("window", "60s");
+        Map<String, Object> wrongWhen = rule("bad", "all", "drop");
+        wrongWhen.put("when", "type == x");
+        Map<String, Object> wrongOn = rule("bad", "all", "drop");
+        wrongOn.put("on", 1);
+        for (Object definition : Arrays.<Object>asList(wrongType, wrongWhen, wrongOn, "bad")) {
+            try {
+                rules.configure(Collections.singletonList(definition));
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        assertEquals("sync", rules.evaluate(JPushMessageRules.KIND_MESSAGE, extras("sync", null)).id);
+    }
+
+    @Test
+    public void evictsOldestCollapseKeyInsteadOfClearing() {
+        JPushMessageRules rules = JPushMessageRules.getInstance(new FakeContext());
+        Map<String, Object> collapse = rule("badge", "message", "collapse");
+        collapse.put("collapseKey", "uid");
+        collapse.put("window", 10 * 60 * 1000);
+        rules.configure(Collections.singletonList(collapse));
+        JPushMessageRules.Rule rule = rules.evaluate(JPushMessageRules.KIND_MESSAGE, extras("badge", null));
+
+        for (int i = 0; i <= JPushMessageRules.MAX_COLLAPSE_KEYS; i++) {
+            Map<String, Object> extras = extras("badge", null);
+            extras.put("uid", String.valueOf(i));
+            assertFalse(rules.collapse(rule, extras));
+        }
+        Map<String, Object> oldest = extras("badge", null);
+        oldest.put("uid", "0");
+        Map<String, Object> recent = extras("badge", null);
+        recent.put("uid", "1");
+        assertTrue(rules.collapse(rule, recent));
+        assertFalse(rules.collapse(rule, oldest));
+    }
+}
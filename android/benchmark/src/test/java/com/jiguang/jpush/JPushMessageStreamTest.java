@@ -0,0 +1,130 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.BinaryMessenger;
+
+import static org.junit.Assert.assertEquals;
+
+public class JPushMessageStreamTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ByteBuffer sent;
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @Test
+    public void encodesMessageLayout() {
+        JPushMessageStream stream = new JPushMessageStream(new BinaryMessenger() {
+            @Override
+            public void send(String channel, ByteBuffer message) {
+                ByteBuffer copy = ByteBuffer.allocate(message.position()).order(ByteOrder.LITTLE_ENDIAN);
+                message.flip();
+                copy.put(message).flip();
+                sent = copy;
+            }
+        });
+        Map<String, Object> extras = new LinkedHashMap<>();
+        extras.put(JPushInterface.EXTRA_MSG_ID, "1001");
+        extras.put(JPushInterface.EXTRA_NOTIFICATION_ID, 7);
+        extras.put("missing", null);
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("message", "消息");
+        msg.put("extras", extras);
+
+        stream.send(msg);
+
+        assertEquals(2, sent.get());
+        assertEquals("1001", readString(sent));
+        assertEquals("消息", readString(sent));
+        assertEquals(3, sent.getInt());
+        assertEquals(JPushInterface.EXTRA_MSG_ID, readString(sent));
+        assertEquals(1, sent.get());
+        assertEquals("1001", readString(sent));
+        assertEquals(JPushInterface.EXTRA_NOTIFICATION_ID, readString(sent));
+        assertEquals(2, sent.get());
+        assertEquals(7, sent.getInt());
+        assertEquals("missing", readString(sent));
+        assertEquals(0, sent.get());
+        assertEquals(0, sent.remaining());
+    }
+
+    @Test
+    public void encodesParsedExtraAsNativeValues() {
+        JPushMessageStream stream = new JPushMessageStream(new BinaryMessenger() {
+            @Override
+            public void send(String channel, ByteBuffer message) {
+                ByteBuffer copy = ByteBuffer.allocate(message.position()).order(ByteOrder.LITTLE_ENDIAN);
+                message.flip();
+                copy.put(message).flip();
+                sent = copy;
+            }
+        });
+        Map<String, Object> extra = new LinkedHashMap<>();
+        extra.put("id", 20261018000123L);
+        extra.put("vip", true);
+        extra.put("items", Arrays.<Object>asList("a", 1.5));
+        Map<String, Object> extras = new LinkedHashMap<>();
+        extras.put(JPushInterface.EXTRA_EXTRA, extra);
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("extras", extras);
+
+        stream.send(msg);
+
+        assertEquals(2, sent.get());
+        assertEquals(null, readString(sent));
+        assertEquals(null, readString(sent));
+        assertEquals(1, sent.getInt());
+        assertEquals(JPushInterface.EXTRA_EXTRA, readString(sent));
+        assertEquals(3, sent.get());
+        assertEquals(3, sent.getInt());
+        assertEquals("id", readString(sent));
+        assertEquals(5, sent.get());
+        assertEquals(20261018000123L, sent.getLong());
+        assertEquals("vip", readString(sent));
+        assertEquals(7, sent.get());
+        assertEquals(1, sent.get());
+        assertEquals("items", readString(sent));
+        assertEquals(4, sent.get());
+        assertEquals(2, sent.getInt());
+        assertEquals(1, sent.get());
+        assertEquals("a", readString(sent));
+        assertEquals(6, sent.get());
+        assertEquals(1.5, sent.getDouble(), 0);
+        assertEquals(0, sent.remaining());
+    }
+
+    @Test
+    public void growsBufferForLargeMessages() {
+        JPushMessageStream stream = new JPushMessageStream(new BinaryMessenger() {
+            @Override
+            public void send(String channel, ByteBuffer message) {
+            }
+        });
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append('x');
+        }
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("message", sb.toString());
+        stream.send(msg);
+        assertEquals(16 * 1024, stream.stats().get("bufferCapacity"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.jiguang.jpush;
+
+import android.app.Notification;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import cn.jpush.android.api.JPushInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JPushNotificationAggregatorTest {
+
+    private final FakeContext context = new FakeContext();
+    private final List<Map<String, Object>> single = Collections.synchronizedList(new ArrayList<Map<String, Object>>());
+    private final List<Map<String, Object>> groups = Collections.synchronizedList(new ArrayList<Map<String, Object>>());
+    private final CountDownLatch flushed = new CountDownLatch(2);
+
+    private final JPushNotificationAggregator aggregator = new JPushNotificationAggregator(
+            new JPushNotificationAggregator.Listener() {
+                @Override
+                public void onNotification(Map<String, Object> notification) {
+                    single.add(notification);
+                    flushed.countDown();
+                }
+
+                @Override
+                public void onNotificationGroup(Map<String, Object> group) {
+                    groups.add(group);
+                    flushed.countDown();
+                }
+            });
+
+    private static Map<String, Object> notification(int id, String extra) {
+        Map<String, Object> extras = new HashMap<>();
+        extras.put(JPushInterface.EXTRA_NOTIFICATION_ID, id);
+        extras.put(JPushInterface.EXTRA_EXTRA, extra);
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("title", "title " + id);
+        notification.put("alert", "alert " + id);
+        notification.put("extras", extras);
+        return notification;
+    }
+
+    private void onMain(final Runnable task) throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                task.run();
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void flushesGroupsWhenWindowEnds() throws InterruptedException {
+        final boolean[] offered = new boolean[5];
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                aggregator.setContext(context);
+                aggregator.configure(true, "campaign", 50, null, null);
+                for (int i = 0; i < 3; i++) {
+                    offered[i] = aggregator.offer(notification(i, "{\"campaign\":\"spring\"}"));
+                }
+                offered[3] = aggregator.offer(notification(3, "{\"campaign\":\"solo\"}"));
+                offered[4] = aggregator.offer(notification(4, "{}"));
+            }
+        });
+        assertTrue(offered[0] && offered[1] && offered[2] && offered[3]);
+        assertFalse(offered[4]);
+        assertTrue(groups.isEmpty());
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, groups.size());
+        assertEquals("spring", groups.get(0).get("group"));
+        assertEquals(3, groups.get(0).get("count"));
+        assertEquals(3, ((List<Object>) groups.get(0).get("notifications")).size());
+        // 组内只有一条的通知照常下发
+        assertEquals(1, single.size());
+        assertEquals("title 3", single.get(0).get("title"));
+
+        Map<Integer, Notification> posted = context.notificationManager().posted();
+        assertEquals(1, posted.size());
+        Notification summary = posted.values().iterator().next();
+        assertEquals("3 notifications", summary.contentText);
+        assertEquals("title 2", summary.contentTitle);
+        assertEquals(JPushNotificationAggregator.DEFAULT_CHANNEL_NAME,
+                context.notificationManager().getNotificationChannel("jpush_flutter_summary").getName());
+    }
+
+    @Test
+    public void usesConfiguredSummaryTextAndChannelName() throws InterruptedException {
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                aggregator.setContext(context);
+                aggregator.configure(true, "campaign", 60 * 1000, "{count} 条新消息", "活动");
+                aggregator.offer(notification(1, "{\"campaign\":\"spring\"}"));
+                aggregator.offer(notification(2, "{\"campaign\":\"spring\"}"));
+                // 关闭时立即下发未结束的分组
+                aggregator.configure(false, "campaign", 0, null, null);
+            }
+        });
+
+        assertEquals(1, groups.size());
+        Notification summary = context.notificationManager().posted().values().iterator().next();
+        assertEquals("2 条新消息", summary.contentText);
+        assertEquals("活动", context.notificationManager().getNotificationChannel("jpush_flutter_summary").getName());
+        assertEquals("{count} 条新消息", aggregator.stats().get("summaryText"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JPushPayloadStoreTest {
+
+    private static Map<String, Object> notification(String msgId) {
+        Map<String, Object> extras = new HashMap<>();
+        extras.put(JPushInterface.EXTRA_MSG_ID, msgId);
+        extras.put("type", "order");
+        extras.put(JPushInterface.EXTRA_EXTRA, "{\"url\":\"app://order/1\",\"body\":\"large\"}");
+        Map<String, Object> notification = new HashMap<>();
+        notification.put("title", "t");
+        notification.put("alert", "a");
+        notification.put("extras", extras);
+        return notification;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sendsHeaderAndKeepsFullPayload() {
+        JPushPayloadStore store = new JPushPayloadStore();
+        store.configure(true, Arrays.asList("type", "url"), 8);
+        Map<String, Object> full = notification("m1");
+        Map<String, Object> header = store.offer(full);
+
+        assertEquals("t", header.get("title"));
+        assertEquals("m1", header.get("msgId"));
+        assertEquals(true, header.get("lazy"));
+        Map<String, Object> extras = (Map<String, Object>) header.get("extras");
+        assertEquals(3, extras.size());
+        assertEquals("order", extras.get("type"));
+        assertEquals("app://order/1", extras.get("url"));
+        assertSame(full, store.get("m1"));
+    }
+
+    @Test
+    public void passesThroughWhenDisabledOrWithoutMsgId() {
+        JPushPayloadStore store = new JPushPayloadStore();
+        Map<String, Object> full = notification("m1");
+        assertSame(full, store.offer(full));
+
+        store.configure(true, null, 8);
+        Map<String, Object> noId = notification("");
+        assertSame(noId, store.offer(noId));
+        assertEquals(0, store.stats().get("size"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAndReportsHitRate() {
+        JPushPayloadStore store = new JPushPayloadStore();
+        store.configure(true, null, 2);
+        store.offer(notification("a"));
+        store.offer(notification("b"));
+        assertTrue(store.get("a") != null);
+        store.offer(notification("c"));
+
+        assertNull(store.get("b"));
+        assertFalse(store.get("c") == null);
+        Map<String, Object> stats = store.stats();
+        assertEquals(2, stats.get("size"));
+        assertEquals(1L, stats.get("evictions"));
+        assertEquals(3L, stats.get("fetches"));
+        assertEquals(2.0 / 3, (double) stats.get("hitRate"), 1e-9);
+    }
+}
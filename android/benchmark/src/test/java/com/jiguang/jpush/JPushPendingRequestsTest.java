@@ -0,0 +1,92 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JPushPendingRequestsTest {
+
+    private static class RecordingResult implements Result {
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void success(Object result) {
+            done.countDown();
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            errors.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void notImplemented() {
+        }
+    }
+
+    @Test
+    public void takesEachRequestOnce() {
+        JPushPendingRequests requests = new JPushPendingRequests();
+        Result result = new RecordingResult();
+        int seq = requests.register(result);
+        assertEquals(1, requests.inFlight());
+        assertSame(result, requests.take(seq));
+        assertNull(requests.take(seq));
+        assertEquals(0, requests.inFlight());
+    }
+
+    @Test
+    public void sequencesAreUniqueAcrossThreads() throws InterruptedException {
+        final JPushPendingRequests requests = new JPushPendingRequests();
+        final Set<Integer> seen = Collections.synchronizedSet(new HashSet<Integer>());
+        final AtomicInteger lost = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        Result result = new RecordingResult();
+                        int seq = requests.register(result);
+                        seen.add(seq);
+                        if (requests.take(seq) != result) {
+                            lost.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, lost.get());
+        assertEquals(40000, seen.size());
+        assertEquals(0, requests.inFlight());
+    }
+
+    @Test
+    public void timesOutUnansweredRequests() throws InterruptedException {
+        JPushPendingRequests requests = new JPushPendingRequests();
+        requests.setTimeout(10);
+        RecordingResult result = new RecordingResult();
+        int seq = requests.register(result);
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, result.errors.get());
+        assertNull(requests.take(seq));
+    }
+}
@@ -0,0 +1,89 @@
+package com.jiguang.jpush;
+
+import android.content.Intent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JPushReceiverExtrasTest {
+
+    private final JPushPlugin.JPushReceiver receiver = new JPushPlugin.JPushReceiver();
+
+    @After
+    public void tearDown() {
+        JPushExtrasParser.configure(false, null);
+    }
+
+    private static Intent intent() {
+        Intent intent = new Intent(JPushInterface.ACTION_NOTIFICATION_RECEIVED);
+        intent.putExtra(JPushInterface.EXTRA_MSG_ID, "1001");
+        intent.putExtra(JPushInterface.EXTRA_NOTIFICATION_ID, 42);
+        intent.putExtra(JPushInterface.EXTRA_NOTIFICATION_TITLE, "title");
+        intent.putExtra(JPushInterface.EXTRA_ALERT, "alert");
+        intent.putExtra(JPushInterface.EXTRA_EXTRA, "{\"a\":\"1\",\"b\":{\"c\":2}}");
+        intent.putExtra("cn.jpush.android.APPKEY", "appkey");
+        intent.putExtra("key_show_entity", "{}");
+        intent.putExtra("platform", "0");
+        return intent;
+    }
+
+    @Test
+    public void dropsIgnoredKeys() {
+        Map<String, Object> extras = receiver.getNotificationExtras(intent());
+        assertFalse(extras.containsKey("cn.jpush.android.APPKEY"));
+        assertFalse(extras.containsKey("key_show_entity"));
+        assertFalse(extras.containsKey("platform"));
+        assertFalse(extras.containsKey(JPushInterface.EXTRA_NOTIFICATION_TITLE));
+        assertEquals("1001", extras.get(JPushInterface.EXTRA_MSG_ID));
+        assertEquals(42, extras.get(JPushInterface.EXTRA_NOTIFICATION_ID));
+    }
+
+    @Test
+    public void keepsRawExtraWhenParsingDisabled() {
+        Map<String, Object> extras = receiver.getNotificationExtras(intent());
+        assertEquals("{\"a\":\"1\",\"b\":{\"c\":2}}", extras.get(JPushInterface.EXTRA_EXTRA));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void parsesAndProjectsExtra() {
+        JPushExtrasParser.configure(true, null);
+        Map<String, Object> extra = (Map<String, Object>) receiver.getNotificationExtras(intent())
+                .get(JPushInterface.EXTRA_EXTRA);
+        assertEquals("1", extra.get("a"));
+        assertEquals(2, ((Map<String, Object>) extra.get("b")).get("c"));
+
+        JPushExtrasParser.configure(true, Arrays.asList("a"));
+        extra = (Map<String, Object>) receiver.getNotificationExtras(intent()).get(JPushInterface.EXTRA_EXTRA);
+        assertEquals(1, extra.size());
+        assertTrue(extra.containsKey("a"));
+    }
+
+    @Test
+    public void buildsNotification() {
+        Map<String, Object> notification = receiver.buildNotification(intent());
+        assertEquals("title", notification.get("title"));
+        assertEquals("alert", notification.get("alert"));
+        assertTrue(notification.get("extras") instanceof Map);
+    }
+
+    @Test
+    public void skipsSizeAccountingWhenParsingDisabled() {
+        Object events = JPushExtrasParser.stats().get("events");
+        receiver.buildNotification(intent());
+        assertEquals(events, JPushExtrasParser.stats().get("events"));
+
+        JPushExtrasParser.configure(true, null);
+        receiver.buildNotification(intent());
+        assertEquals((Long) events + 1, JPushExtrasParser.stats().get("events"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.jiguang.jpush;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jiguang.jpush.fakes.FakeContext;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JPushRegistrationIdResolverTest {
+
+    private final FakeContext context = new FakeContext();
+    private final JPushRegistrationIdResolver resolver = new JPushRegistrationIdResolver();
+    private final List<String> changes = Collections.synchronizedList(new ArrayList<String>());
+
+    private static class RecordingResult implements Result {
+        final CountDownLatch done;
+        volatile Object value;
+        volatile String errorCode;
+
+        RecordingResult(CountDownLatch done) {
+            this.done = done;
+        }
+
+        @Override
+        public void success(Object result) {
+            value = result;
+            done.countDown();
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            this.errorCode = errorCode;
+            done.countDown();
+        }
+
+        @Override
+        public void notImplemented() {
+        }
+    }
+
+    @After
+    public void tearDown() {
+        JPushInterface.registrationId = "";
+    }
+
+    private void onMain(final Runnable task) throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                task.run();
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    private void setUp() throws InterruptedException {
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                resolver.setContext(context);
+                resolver.setListener(new JPushRegistrationIdResolver.Listener() {
+                    @Override
+                    public void onRegistrationIdChanged(String rid) {
+                        changes.add(rid);
+                    }
+                });
+            }
+        });
+    }
+
+    @Test
+    public void waitersShareOneResolution() throws InterruptedException {
+        setUp();
+        CountDownLatch done = new CountDownLatch(3);
+        final RecordingResult[] results = {
+                new RecordingResult(done), new RecordingResult(done), new RecordingResult(done)};
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                for (RecordingResult result : results) {
+                    resolver.get(result);
+                }
+            }
+        });
+        assertEquals(1L, resolver.stats().get("sdkQueries"));
+        assertEquals(2L, resolver.stats().get("coalesced"));
+
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                resolver.onRegistrationId("rid-1");
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (RecordingResult result : results) {
+            assertEquals("rid-1", result.value);
+        }
+        assertEquals(Collections.singletonList("rid-1"), changes);
+
+        // 已缓存的 rid 直接返回，进程重启后同样从缓存读取
+        final RecordingResult cached = new RecordingResult(new CountDownLatch(1));
+        final JPushRegistrationIdResolver restarted = new JPushRegistrationIdResolver();
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                resolver.get(cached);
+                restarted.setContext(context);
+            }
+        });
+        assertEquals("rid-1", cached.value);
+        assertEquals(1L, resolver.stats().get("sdkQueries"));
+        assertEquals(true, restarted.stats().get("cached"));
+    }
+
+    @Test
+    public void failsWaitersAfterTimeout() throws InterruptedException {
+        setUp();
+        resolver.setTimeout(50);
+        final RecordingResult result = new RecordingResult(new CountDownLatch(1));
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                resolver.get(result);
+            }
+        });
+
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        assertEquals(JPushRegistrationIdResolver.ERROR_TIMEOUT, result.errorCode);
+        // 超时前最后查询一次 SDK
+        assertEquals(2L, resolver.stats().get("sdkQueries"));
+        assertEquals(1L, resolver.stats().get("timeouts"));
+        assertEquals(0, resolver.stats().get("waiting"));
+    }
+
+    @Test
+    public void lastQueryBeforeTimeoutResolvesWaiters() throws InterruptedException {
+        setUp();
+        resolver.setTimeout(50);
+        final RecordingResult result = new RecordingResult(new CountDownLatch(1));
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                resolver.get(result);
+            }
+        });
+        JPushInterface.registrationId = "rid-2";
+
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        assertEquals("rid-2", result.value);
+        assertEquals(0L, resolver.stats().get("timeouts"));
+    }
+}
@@ -0,0 +1,29 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class JPushTagAliasCacheTest {
+
+    @Test
+    public void deltaUpdatesDoNotRefreshStaleMirror() throws InterruptedException {
+        JPushTagAliasCache cache = new JPushTagAliasCache();
+        cache.setStaleTime(20);
+        cache.onTagsReplaced(new HashSet<>(Arrays.asList("a", "b")));
+        assertNotNull(cache.freshTags());
+
+        Thread.sleep(40);
+        cache.onTagsChanged(Collections.singleton("c"), Collections.singleton("a"));
+        assertNull(cache.freshTags());
+
+        cache.onTagsReplaced(new HashSet<>(Arrays.asList("b", "c")));
+        assertEquals(2, cache.freshTags().size());
+    }
+}
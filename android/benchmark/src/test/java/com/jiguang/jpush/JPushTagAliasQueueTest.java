@@ -0,0 +1,164 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JPushTagAliasQueueTest {
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final JPushPendingRequests pendingRequests = new JPushPendingRequests();
+    private final JPushTagAliasQueue queue = new JPushTagAliasQueue(pendingRequests, new JPushTagAliasCache());
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    private static class RecordingResult implements Result {
+        final CountDownLatch done;
+        volatile String errorCode;
+
+        RecordingResult(CountDownLatch done) {
+            this.done = done;
+        }
+
+        @Override
+        public void success(Object result) {
+            done.countDown();
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            this.errorCode = errorCode;
+            done.countDown();
+        }
+
+        @Override
+        public void notImplemented() {
+        }
+    }
+
+    @After
+    public void tearDown() {
+        JPushInterface.tagAliasListener = null;
+    }
+
+    // 模拟 SDK：记录下发的操作，前 failures 次以 errorCode 回调，之后回调成功
+    private void respond(final int failures, final String errorCode) {
+        JPushInterface.tagAliasListener = new JPushInterface.TagAliasListener() {
+            @Override
+            public void onRequest(Context context, final int sequence, String operation) {
+                requests.add(operation);
+                final boolean fail = requests.size() <= failures;
+                main.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Result result = pendingRequests.take(sequence);
+                        if (fail) {
+                            result.error(errorCode, "busy", null);
+                        } else {
+                            Map<String, Object> res = new HashMap<>();
+                            res.put("tags", new ArrayList<String>());
+                            result.success(res);
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    private void onMain(final Runnable task) throws InterruptedException {
+        final CountDownLatch ran = new CountDownLatch(1);
+        main.post(new Runnable() {
+            @Override
+            public void run() {
+                task.run();
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void mergesQueuedOperations() throws InterruptedException {
+        respond(0, null);
+        queue.configure(0, 0, 1);
+        CountDownLatch done = new CountDownLatch(5);
+        final RecordingResult[] results = new RecordingResult[5];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new RecordingResult(done);
+        }
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                queue.addTags(new HashSet<>(Collections.singleton("a")), results[0]);
+                queue.addTags(new HashSet<>(Collections.singleton("b")), results[1]);
+                queue.deleteTags(new HashSet<>(Collections.singleton("a")), results[2]);
+                queue.setAlias("x", results[3]);
+                queue.deleteAlias(results[4]);
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // 三次 tag 修改合并为一次增量（add b, delete a），alias 只下发最后一次
+        assertEquals(Arrays.asList("addTags", "deleteTags", "deleteAlias"), requests);
+        for (RecordingResult result : results) {
+            assertEquals(null, result.errorCode);
+        }
+        assertEquals(3L, queue.stats().get("operationsMerged"));
+    }
+
+    @Test
+    public void retriesThrottledOperationsWithBackoff() throws InterruptedException {
+        respond(2, "6002");
+        queue.configure(0, 3, 20);
+        final RecordingResult result = new RecordingResult(new CountDownLatch(1));
+        long start = System.nanoTime();
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                queue.setAlias("x", result);
+            }
+        });
+
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        assertEquals(null, result.errorCode);
+        assertEquals(Arrays.asList("setAlias", "setAlias", "setAlias"), requests);
+        assertEquals(2L, queue.stats().get("retries"));
+        // 两次退避分别为 20ms、40ms
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(60));
+    }
+
+    @Test
+    public void failsAfterMaxRetries() throws InterruptedException {
+        respond(Integer.MAX_VALUE, "6014");
+        queue.configure(0, 1, 10);
+        final RecordingResult result = new RecordingResult(new CountDownLatch(1));
+        onMain(new Runnable() {
+            @Override
+            public void run() {
+                queue.getAllTags(result);
+            }
+        });
+
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+        assertEquals("6014", result.errorCode);
+        assertEquals(2, requests.size());
+    }
+}
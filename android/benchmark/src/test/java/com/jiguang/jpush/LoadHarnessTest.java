@@ -0,0 +1,25 @@
+package com.jiguang.jpush;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LoadHarnessTest {
+
+    @Test
+    public void deliversEveryUniqueEventOnce() throws Exception {
+        LoadHarness.Options options = LoadHarness.Options.parse(new String[]{
+                "--rate", "500", "--seconds", "1", "--duplicates", "0.2", "--tag-rate", "10", "--dart-us", "0"});
+        options.maxDropRatio = 0;
+        Map<String, Object> report = new LoadHarness(options).run();
+
+        assertTrue(((Number) report.get("expected")).longValue() > 0);
+        assertEquals(0L, report.get("dropped"));
+        assertEquals(0L, report.get("duplicateDeliveries"));
+        assertNull(LoadHarness.check(options, report));
+    }
+}
@@ -0,0 +1,262 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.FlutterInjector;
+import io.flutter.embedding.engine.FlutterEngine;
+import io.flutter.embedding.engine.dart.DartExecutor;
+import io.flutter.embedding.engine.loader.FlutterLoader;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.view.FlutterCallbackInformation;
+
+/**
+ * 没有界面运行时，在无界面的后台 FlutterEngine 中处理自定义消息。
+ * dart 层注册后台回调后，插件未挂载时收到的自定义消息不再写入磁盘日志，而是按需启动一个后台引擎，
+ * 执行 dart 层的 _jpushBackgroundDispatcher，再由它调用用户注册的回调。
+ * 引擎处理完消息后保持 idleTimeout 毫秒，期间的新消息直接复用，超时后销毁。
+ * 后台引擎不自动注册插件，避免 JPushPlugin 挂载到后台引擎上。所有方法都需要在主线程调用。
+ */
+class JPushBackgroundExecutor implements MethodChannel.MethodCallHandler {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    static final String CHANNEL_NAME = "jpush/background";
+
+    private static final String PREFS_NAME = "jpush_flutter_background";
+    private static final String KEY_DISPATCHER_HANDLE = "dispatcher_handle";
+    private static final String KEY_CALLBACK_HANDLE = "callback_handle";
+    private static final String KEY_IDLE_TIMEOUT = "idle_timeout";
+
+    private static JPushBackgroundExecutor sInstance;
+
+    static synchronized JPushBackgroundExecutor getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new JPushBackgroundExecutor(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private long dispatcherHandle;
+    private long callbackHandle;
+    private long idleTimeout;
+
+    private FlutterEngine engine;
+    private MethodChannel channel;
+    private boolean ready;
+    private long startAt;
+    private int inFlight;
+    private final ArrayDeque<Map<String, Object>> pending = new ArrayDeque<>();
+
+    private long engineStarts;
+    private long engineStops;
+    private long startFailures;
+    private long lastStartMillis;
+    private long totalStartMillis;
+    private long messages;
+    private long messageFailures;
+    private long totalMessageMillis;
+    private long maxMessageMillis;
+
+    private JPushBackgroundExecutor(Context context) {
+        this.context = context;
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        dispatcherHandle = prefs.getLong(KEY_DISPATCHER_HANDLE, 0);
+        callbackHandle = prefs.getLong(KEY_CALLBACK_HANDLE, 0);
+        idleTimeout = prefs.getLong(KEY_IDLE_TIMEOUT, 60 * 1000);
+    }
+
+    void register(long dispatcherHandle, long callbackHandle, long idleTimeout) {
+        this.dispatcherHandle = dispatcherHandle;
+        this.callbackHandle = callbackHandle;
+        if (idleTimeout >= 0) {
+            this.idleTimeout = idleTimeout;
+        }
+        prefs.edit()
+                .putLong(KEY_DISPATCHER_HANDLE, dispatcherHandle)
+                .putLong(KEY_CALLBACK_HANDLE, callbackHandle)
+                .putLong(KEY_IDLE_TIMEOUT, this.idleTimeout)
+                .apply();
+    }
+
+    boolean isRegistered() {
+        return dispatcherHandle != 0 && callbackHandle != 0;
+    }
+
+    /**
+     * 交给后台引擎处理；未注册后台回调或引擎启动失败时返回 false，由调用方走原来的流程。
+     */
+    boolean deliver(Map<String, Object> msg) {
+        if (!isRegistered()) {
+            return false;
+        }
+        if (engine == null && !startEngine()) {
+            return false;
+        }
+        handler.removeCallbacks(idleTeardown);
+        if (ready) {
+            send(msg);
+        } else {
+            pending.add(msg);
+        }
+        return true;
+    }
+
+    @Override
+    public void onMethodCall(MethodCall call, Result result) {
+        if (call.method.equals("backgroundReady")) {
+            ready = true;
+            lastStartMillis = SystemClock.elapsedRealtime() - startAt;
+            totalStartMillis += lastStartMillis;
+            if (JPushPlugin.debugLogging) {
+                Log.d(TAG, "background engine ready in " + lastStartMillis + "ms");
+            }
+            result.success(null);
+            while (!pending.isEmpty()) {
+                send(pending.poll());
+            }
+            scheduleIdleTeardown();
+        } else {
+            result.notImplemented();
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("registered", isRegistered());
+        stats.put("running", engine != null);
+        stats.put("idleTimeout", idleTimeout);
+        stats.put("engineStarts", engineStarts);
+        stats.put("engineStops", engineStops);
+        stats.put("startFailures", startFailures);
+        stats.put("lastStartMillis", lastStartMillis);
+        stats.put("avgStartMillis", engineStarts == 0 ? 0 : totalStartMillis / engineStarts);
+        stats.put("messages", messages);
+        stats.put("messageFailures", messageFailures);
+        stats.put("avgMessageMillis", messages == 0 ? 0 : totalMessageMillis / messages);
+        stats.put("maxMessageMillis", maxMessageMillis);
+        stats.put("pending", pending.size() + inFlight);
+        return stats;
+    }
+
+    private boolean startEngine() {
+        FlutterCallbackInformation info = FlutterCallbackInformation.lookupCallbackInformation(dispatcherHandle);
+        if (info == null) {
+            Log.e(TAG, "background dispatcher not found, handle=" + dispatcherHandle);
+            startFailures += 1;
+            return false;
+        }
+        startAt = SystemClock.elapsedRealtime();
+        try {
+            FlutterLoader loader = FlutterInjector.instance().flutterLoader();
+            loader.startInitialization(context);
+            loader.ensureInitializationComplete(context, null);
+
+            engine = new FlutterEngine(context, null, false);
+            DartExecutor executor = engine.getDartExecutor();
+            channel = new MethodChannel(executor, CHANNEL_NAME);
+            channel.setMethodCallHandler(this);
+            executor.executeDartCallback(new DartExecutor.DartCallback(context.getAssets(), loader.findAppBundlePath(), info));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "start background engine failed", e);
+            startFailures += 1;
+            stopEngine();
+            return false;
+        }
+        engineStarts += 1;
+        if (JPushPlugin.debugLogging) {
+            Log.d(TAG, "background engine started");
+        }
+        return true;
+    }
+
+    private void stopEngine() {
+        if (channel != null) {
+            channel.setMethodCallHandler(null);
+            channel = null;
+        }
+        if (engine != null) {
+            engine.destroy();
+            engine = null;
+        }
+        ready = false;
+        inFlight = 0;
+    }
+
+    private void send(Map<String, Object> msg) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("handle", callbackHandle);
+        args.put("message", msg);
+        final long sentAt = SystemClock.elapsedRealtime();
+        final MethodChannel target = channel;
+        inFlight += 1;
+        channel.invokeMethod("onBackgroundMessage", args, new Result() {
+            @Override
+            public void success(Object o) {
+                onMessageHandled(target, sentAt, true);
+            }
+
+            @Override
+            public void error(String code, String message, Object details) {
+                Log.e(TAG, "background message handler failed: " + message);
+                onMessageHandled(target, sentAt, false);
+            }
+
+            @Override
+            public void notImplemented() {
+                onMessageHandled(target, sentAt, false);
+            }
+        });
+    }
+
+    private void onMessageHandled(MethodChannel target, long sentAt, boolean ok) {
+        if (target != channel) {
+            // 引擎已经销毁重建，忽略旧引擎的回调
+            return;
+        }
+        long cost = SystemClock.elapsedRealtime() - sentAt;
+        messages += 1;
+        totalMessageMillis += cost;
+        maxMessageMillis = Math.max(maxMessageMillis, cost);
+        if (!ok) {
+            messageFailures += 1;
+        }
+        inFlight -= 1;
+        scheduleIdleTeardown();
+    }
+
+    private void scheduleIdleTeardown() {
+        handler.removeCallbacks(idleTeardown);
+        if (inFlight == 0 && pending.isEmpty()) {
+            handler.postDelayed(idleTeardown, idleTimeout);
+        }
+    }
+
+    private final Runnable idleTeardown = new Runnable() {
+        @Override
+        public void run() {
+            if (engine == null || inFlight > 0 || !pending.isEmpty()) {
+                return;
+            }
+            if (JPushPlugin.debugLogging) {
+                Log.d(TAG, "background engine idle, destroy it");
+            }
+            stopEngine();
+            engineStops += 1;
+        }
+    };
+}
@@ -0,0 +1,190 @@
+package com.jiguang.jpush;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 事件下发的优先级通道。
+ * interactive（点击通知、通知权限变化）不受 in-flight 上限与批量下发的限制，缓冲区中总是最先下发；
+ * bulk（自定义消息）单独限制 in-flight 数量，并按令牌桶限速，突发的大量消息不会堵在用户操作产生的事件之前；
+ * 开启批量下发时 bulk 的 in-flight 按 onReceiveBatch 调用计数，一个含 bulk 事件的批次只占用一个名额。
+ * 其他事件属于 default。每个通道从事件到达插件到 dart 回调执行完的耗时记录为 laneInteractive、laneDefault、laneBulk 阶段。
+ * 所有方法都需要在主线程调用。
+ */
+class JPushDeliveryLanes {
+
+    static final int INTERACTIVE = 0;
+    static final int DEFAULT = 1;
+    static final int BULK = 2;
+    static final int COUNT = 3;
+
+    private static final String[] NAMES = {"interactive", "default", "bulk"};
+    private static final String[] STAGES = {"laneInteractive", "laneDefault", "laneBulk"};
+
+    static int laneOf(String method) {
+        if ("onOpenNotification".equals(method) || "onReceiveNotificationAuthorization".equals(method)) {
+            return INTERACTIVE;
+        }
+        if ("onReceiveMessage".equals(method)) {
+            return BULK;
+        }
+        return DEFAULT;
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable refillTask = new Runnable() {
+        @Override
+        public void run() {
+            refillScheduled = false;
+            drain.run();
+        }
+    };
+    private final Runnable drain;
+    private boolean refillScheduled;
+
+    // 每秒令牌数，0 表示不限速
+    private double bulkRate = 0;
+    private int bulkBurst = 32;
+    private int bulkMaxInFlight = 16;
+
+    private double tokens = bulkBurst;
+    private long refilledAt = System.nanoTime();
+    private int bulkInFlight;
+
+    private final long[] delivered = new long[COUNT];
+    private long throttled;
+
+    /**
+     * drain 在令牌补充后调用，用于继续下发 bulk 通道中缓冲的事件。
+     */
+    JPushDeliveryLanes(Runnable drain) {
+        this.drain = drain;
+    }
+
+    void configure(double bulkRate, int bulkBurst, int bulkMaxInFlight) {
+        if (bulkRate >= 0) {
+            this.bulkRate = bulkRate;
+        }
+        if (bulkBurst > 0) {
+            this.bulkBurst = bulkBurst;
+            tokens = Math.min(tokens, bulkBurst);
+        }
+        if (bulkMaxInFlight > 0) {
+            this.bulkMaxInFlight = bulkMaxInFlight;
+        }
+    }
+
+    /**
+     * 返回 bulk 通道当前能否再下发一条事件，不消耗令牌。
+     */
+    boolean canSendBulk() {
+        if (bulkInFlight >= bulkMaxInFlight) {
+            return false;
+        }
+        if (bulkRate <= 0) {
+            return true;
+        }
+        refill();
+        if (tokens < 1) {
+            throttled += 1;
+            scheduleRefill();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * batched 为 true 时事件进入批次，只计数与消耗令牌，in-flight 在批次发出时由 onBatchSent 计入。
+     */
+    void onSent(int lane, boolean batched) {
+        delivered[lane] += 1;
+        if (lane == BULK) {
+            if (!batched) {
+                bulkInFlight += 1;
+            }
+            if (bulkRate > 0) {
+                tokens -= 1;
+            }
+        }
+    }
+
+    void onBatchSent(boolean hasBulk) {
+        if (hasBulk) {
+            bulkInFlight += 1;
+        }
+    }
+
+    void onAck(int lane, long arrivedAt) {
+        record(lane, arrivedAt);
+        if (lane == BULK) {
+            release();
+        }
+    }
+
+    /**
+     * 批次应答：调用方先对批次中的每个事件调用 record。
+     */
+    void onBatchAck(boolean hasBulk) {
+        if (hasBulk) {
+            release();
+        }
+    }
+
+    void record(int lane, long arrivedAt) {
+        JPushMetrics.record(STAGES[lane], System.nanoTime() - arrivedAt);
+    }
+
+    private void release() {
+        if (bulkInFlight > 0) {
+            bulkInFlight -= 1;
+        }
+    }
+
+    // 引擎卸载后已下发未应答的事件不会再收到应答
+    void reset() {
+        bulkInFlight = 0;
+        handler.removeCallbacks(refillTask);
+        refillScheduled = false;
+    }
+
+    Map<String, Object> stats(JPushEventBuffer buffer) {
+        Map<String, Object> stats = new HashMap<>();
+        for (int lane = 0; lane < COUNT; lane++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("depth", buffer.size(lane));
+            item.put("delivered", delivered[lane]);
+            item.put("latency", JPushMetrics.stage(STAGES[lane]));
+            if (lane == BULK) {
+                refill();
+                item.put("rate", bulkRate);
+                item.put("burst", bulkBurst);
+                item.put("maxInFlight", bulkMaxInFlight);
+                item.put("inFlight", bulkInFlight);
+                item.put("tokens", bulkRate > 0 ? tokens : bulkBurst);
+                item.put("throttled", throttled);
+            }
+            stats.put(NAMES[lane], item);
+        }
+        return stats;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bulkRate > 0) {
+            tokens = Math.min(bulkBurst, tokens + (now - refilledAt) * bulkRate / 1e9);
+        }
+        refilledAt = now;
+    }
+
+    private void scheduleRefill() {
+        if (refillScheduled) {
+            return;
+        }
+        refillScheduled = true;
+        long delay = (long) Math.ceil((1 - tokens) * 1000 / bulkRate);
+        handler.postDelayed(refillTask, Math.max(1, delay));
+    }
+}
@@ -0,0 +1,131 @@
+package com.jiguang.jpush;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已挂载的 FlutterEngine（插件实例）表。
+ * 每个引擎挂载时注册、卸载时移除，事件按路由规则分发：all 下发给所有已订阅的引擎，
+ * first 只下发给最早挂载的已订阅引擎，last 只下发给最晚挂载的。路由可以按事件单独配置。
+ * 已订阅指 dart 层调用过 setup 或注册了事件回调；没有已订阅的引擎时，按同样的规则在所有已挂载的引擎中选择，
+ * 事件进入这些引擎的缓冲区，订阅后再下发。所有方法都需要在主线程调用。
+ */
+class JPushEngineRegistry {
+
+    static final String ROUTE_ALL = "all";
+    static final String ROUTE_FIRST = "first";
+    static final String ROUTE_LAST = "last";
+
+    // 按挂载顺序
+    private final List<JPushPlugin> engines = new ArrayList<>();
+    private final Map<String, String> routes = new HashMap<>();
+    private String defaultRoute = ROUTE_ALL;
+    private int nextId = 1;
+
+    private long attaches;
+    private long detaches;
+
+    /**
+     * 返回分配给该引擎的 id。
+     */
+    int attach(JPushPlugin engine) {
+        engines.remove(engine);
+        engines.add(engine);
+        attaches += 1;
+        return nextId++;
+    }
+
+    void detach(JPushPlugin engine) {
+        if (engines.remove(engine)) {
+            detaches += 1;
+        }
+    }
+
+    boolean isEmpty() {
+        return engines.isEmpty();
+    }
+
+    List<JPushPlugin> engines() {
+        return Collections.unmodifiableList(engines);
+    }
+
+    /**
+     * 最晚挂载的引擎，没有时返回 null。
+     */
+    JPushPlugin latest() {
+        return engines.isEmpty() ? null : engines.get(engines.size() - 1);
+    }
+
+    static boolean isValidRoute(String route) {
+        return ROUTE_ALL.equals(route) || ROUTE_FIRST.equals(route) || ROUTE_LAST.equals(route);
+    }
+
+    void configure(String defaultRoute, Map<String, String> routes) {
+        if (isValidRoute(defaultRoute)) {
+            this.defaultRoute = defaultRoute;
+        }
+        if (routes == null) {
+            return;
+        }
+        this.routes.clear();
+        for (Map.Entry<String, String> entry : routes.entrySet()) {
+            if (isValidRoute(entry.getValue())) {
+                this.routes.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * event 是否按 all 路由下发给所有引擎。
+     */
+    boolean isFanOut(String event) {
+        String route = routes.get(event);
+        return ROUTE_ALL.equals(route == null ? defaultRoute : route);
+    }
+
+    /**
+     * 返回 event 应下发到的引擎。subscribedOnly 为 false 时，没有已订阅的引擎则在所有已挂载的引擎中选择。
+     */
+    List<JPushPlugin> route(String event, boolean subscribedOnly) {
+        List<JPushPlugin> candidates = new ArrayList<>(engines.size());
+        for (JPushPlugin engine : engines) {
+            if (engine.isSubscribed()) {
+                candidates.add(engine);
+            }
+        }
+        if (candidates.isEmpty() && !subscribedOnly) {
+            candidates.addAll(engines);
+        }
+        if (candidates.size() <= 1) {
+            return candidates;
+        }
+        String route = routes.get(event);
+        if (route == null) {
+            route = defaultRoute;
+        }
+        if (ROUTE_FIRST.equals(route)) {
+            return Collections.singletonList(candidates.get(0));
+        }
+        if (ROUTE_LAST.equals(route)) {
+            return Collections.singletonList(candidates.get(candidates.size() - 1));
+        }
+        return candidates;
+    }
+
+    Map<String, Object> stats() {
+        List<Map<String, Object>> list = new ArrayList<>(engines.size());
+        for (JPushPlugin engine : engines) {
+            list.add(engine.engineStats());
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("engines", list);
+        stats.put("defaultRoute", defaultRoute);
+        stats.put("routes", new HashMap<>(routes));
+        stats.put("attaches", attaches);
+        stats.put("detaches", detaches);
+        return stats;
+    }
+}
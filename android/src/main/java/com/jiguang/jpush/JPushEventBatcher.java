@@ -0,0 +1,106 @@
+package com.jiguang.jpush;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将短时间内收到的事件合并为一个批次，通过一次 onReceiveBatch 调用下发给 dart 层。
+ * 批次在达到 maxBatchSize 条或距首条事件超过 flushInterval 毫秒时发送。
+ * 所有方法都需要在主线程调用。
+ */
+class JPushEventBatcher {
+
+    static final String BATCH_METHOD = "onReceiveBatch";
+
+    interface Sink {
+        /**
+         * arrivals 为批次中每个事件到达插件的时间（System.nanoTime）。
+         */
+        void deliverBatch(List<Map<String, Object>> batch, List<Long> arrivals);
+    }
+
+    private final Sink sink;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private boolean enabled = false;
+    private long flushInterval = 100;
+    private int maxBatchSize = 20;
+
+    private List<Map<String, Object>> pending = new ArrayList<>();
+    private List<Long> arrivals = new ArrayList<>();
+
+    private long batchesSent;
+    private long eventsCoalesced;
+
+    JPushEventBatcher(Sink sink) {
+        this.sink = sink;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void configure(boolean enabled, long flushInterval, int maxBatchSize) {
+        if (flushInterval > 0) {
+            this.flushInterval = flushInterval;
+        }
+        if (maxBatchSize > 0) {
+            this.maxBatchSize = maxBatchSize;
+        }
+        this.enabled = enabled;
+        if (!enabled || pending.size() >= this.maxBatchSize) {
+            flush();
+        }
+    }
+
+    void add(String method, Map<String, Object> arguments, long arrivedAt) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("method", method);
+        event.put("arguments", arguments);
+        pending.add(event);
+        arrivals.add(arrivedAt);
+
+        if (pending.size() >= maxBatchSize) {
+            flush();
+        } else if (pending.size() == 1) {
+            handler.postDelayed(flushTask, flushInterval);
+        }
+    }
+
+    void flush() {
+        handler.removeCallbacks(flushTask);
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> batch = pending;
+        List<Long> batchArrivals = arrivals;
+        pending = new ArrayList<>();
+        arrivals = new ArrayList<>();
+
+        batchesSent += 1;
+        eventsCoalesced += batch.size();
+        sink.deliverBatch(batch, batchArrivals);
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("flushInterval", flushInterval);
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("pending", pending.size());
+        stats.put("batchesSent", batchesSent);
+        stats.put("eventsCoalesced", eventsCoalesced);
+        return stats;
+    }
+}
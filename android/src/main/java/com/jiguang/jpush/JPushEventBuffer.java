@@ -0,0 +1,175 @@
+package com.jiguang.jpush;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * dart 层未挂载或处理不过来时的事件缓冲区。
+ * 事件按 JPushDeliveryLanes 的通道分别排队，同一通道内按到达顺序，poll() 按全局到达顺序取出，poll(lane) 只取指定通道。
+ * 每种事件有独立的容量与溢出策略：
+ * dropOldest 丢弃该类型最旧的事件，dropNewest 丢弃新到的事件，coalesceLatest 只保留该类型最新的一条。
+ * 所有方法都需要在主线程调用。
+ */
+class JPushEventBuffer {
+
+    static final String DROP_OLDEST = "dropOldest";
+    static final String DROP_NEWEST = "dropNewest";
+    static final String COALESCE_LATEST = "coalesceLatest";
+
+    static final class Entry {
+        final String method;
+        final Map<String, Object> arguments;
+        final int lane;
+        final long arrivedAt;
+        final long sequence;
+
+        Entry(String method, Map<String, Object> arguments, int lane, long arrivedAt, long sequence) {
+            this.method = method;
+            this.arguments = arguments;
+            this.lane = lane;
+            this.arrivedAt = arrivedAt;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class Policy {
+        String mode;
+        int capacity;
+        int depth;
+        long buffered;
+        long dropped;
+
+        Policy(String mode, int capacity) {
+            this.mode = mode;
+            this.capacity = capacity;
+        }
+    }
+
+    private final ArrayDeque<Entry>[] lanes;
+    private final Map<String, Policy> policies = new HashMap<>();
+    private int size;
+    private long nextSequence;
+
+    @SuppressWarnings("unchecked")
+    JPushEventBuffer() {
+        lanes = new ArrayDeque[JPushDeliveryLanes.COUNT];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+        policies.put("onReceiveMessage", new Policy(DROP_OLDEST, 100));
+        policies.put("onReceiveNotification", new Policy(DROP_OLDEST, 100));
+        policies.put("onReceiveNotificationAuthorization", new Policy(COALESCE_LATEST, 1));
+        policies.put("onRegistrationIdChanged", new Policy(COALESCE_LATEST, 1));
+    }
+
+    void configure(String method, String mode, int capacity) {
+        if (!DROP_OLDEST.equals(mode) && !DROP_NEWEST.equals(mode) && !COALESCE_LATEST.equals(mode)) {
+            return;
+        }
+        Policy policy = policyOf(method);
+        policy.mode = mode;
+        if (capacity > 0) {
+            policy.capacity = capacity;
+        }
+        while (policy.depth > policy.capacity) {
+            removeOldest(method, policy);
+            policy.dropped += 1;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int size(int lane) {
+        return lanes[lane].size();
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isEmpty(int lane) {
+        return lanes[lane].isEmpty();
+    }
+
+    Entry poll() {
+        int oldest = -1;
+        for (int i = 0; i < lanes.length; i++) {
+            Entry head = lanes[i].peek();
+            if (head != null && (oldest < 0 || head.sequence < lanes[oldest].peek().sequence)) {
+                oldest = i;
+            }
+        }
+        return oldest < 0 ? null : poll(oldest);
+    }
+
+    Entry poll(int lane) {
+        Entry entry = lanes[lane].poll();
+        if (entry != null) {
+            size -= 1;
+            policyOf(entry.method).depth -= 1;
+        }
+        return entry;
+    }
+
+    void offer(String method, Map<String, Object> arguments) {
+        Policy policy = policyOf(method);
+        if (COALESCE_LATEST.equals(policy.mode)) {
+            if (policy.depth > 0) {
+                removeOldest(method, policy);
+                policy.dropped += 1;
+            }
+        } else if (policy.depth >= policy.capacity) {
+            policy.dropped += 1;
+            if (DROP_NEWEST.equals(policy.mode)) {
+                return;
+            }
+            removeOldest(method, policy);
+        }
+        int lane = JPushDeliveryLanes.laneOf(method);
+        lanes[lane].add(new Entry(method, arguments, lane, System.nanoTime(), nextSequence++));
+        size += 1;
+        policy.depth += 1;
+        policy.buffered += 1;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("depth", size);
+        for (Map.Entry<String, Policy> entry : policies.entrySet()) {
+            Policy policy = entry.getValue();
+            Map<String, Object> item = new HashMap<>();
+            item.put("policy", policy.mode);
+            item.put("capacity", policy.capacity);
+            item.put("depth", policy.depth);
+            item.put("buffered", policy.buffered);
+            item.put("dropped", policy.dropped);
+            stats.put(entry.getKey(), item);
+        }
+        return stats;
+    }
+
+    private Policy policyOf(String method) {
+        Policy policy = policies.get(method);
+        if (policy == null) {
+            policy = new Policy(DROP_OLDEST, 100);
+            policies.put(method, policy);
+        }
+        return policy;
+    }
+
+    private void removeOldest(String method, Policy policy) {
+        Iterator<Entry> it = lanes[JPushDeliveryLanes.laneOf(method)].iterator();
+        while (it.hasNext()) {
+            if (it.next().method.equals(method)) {
+                it.remove();
+                size -= 1;
+                policy.depth -= 1;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * dart 层未就绪时收到的事件（通知点击、自定义消息，以及没有挂载引擎时的其他事件）的磁盘日志，保证进程被杀后事件不丢失。
+ * 记录格式为 [int 长度][byte 类型][JSON UTF-8]，只追加写入，fsync 按条数或时间批量进行。
+ * 条数超过上限时按配置丢弃最旧或最新的事件。dart 就绪后按写入顺序回放，下发完成后压缩掉已下发的记录。
+ * 没有挂载引擎时的其他事件（TYPE_EVENT）可以通过 journalEvents 关闭记录。
+ * 所有磁盘读写都在单独的线程中串行执行。
+ */
+class JPushEventJournal {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    static final int TYPE_OPEN_NOTIFICATION = 1;
+    // 类型值 2 保留不用
+    static final int TYPE_MESSAGE = 3;
+    // 其他事件，记录为 {method, arguments}
+    static final int TYPE_EVENT = 4;
+
+    static final String POLICY_DROP_OLDEST = "dropOldest";
+    static final String POLICY_DROP_NEWEST = "dropNewest";
+
+    private static final String FILE_NAME = "jpush_flutter_events.journal";
+    private static final String PREFS_NAME = "jpush_flutter_journal";
+    private static final String KEY_MAX_ENTRIES = "maxEntries";
+    private static final String KEY_POLICY = "evictionPolicy";
+    private static final String KEY_JOURNAL_EVENTS = "journalEvents";
+
+    private static final int SYNC_BATCH = 16;
+    private static final long SYNC_DELAY = 200;
+
+    interface Consumer {
+        void onReplay(int type, Map<String, Object> event);
+    }
+
+    private static JPushEventJournal sInstance;
+
+    static synchronized JPushEventJournal getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new JPushEventJournal(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final File file;
+    private final SharedPreferences prefs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private volatile int maxEntries;
+    private volatile String evictionPolicy;
+    private volatile boolean journalEvents;
+
+    // 以下字段只在 executor 线程访问
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private int unsynced;
+    private boolean syncScheduled;
+    private boolean draining;
+    // 回放过程中再次请求的回放，压缩完成后执行
+    private Consumer pendingReplay;
+    // 最近一次读取时完整记录的总长度
+    private long validLength;
+
+    private volatile int entries;
+    private volatile long bytes;
+    private volatile long appended;
+    private volatile long evicted;
+    private volatile long replayed;
+    private volatile long syncs;
+
+    private final Runnable syncTask = new Runnable() {
+        @Override
+        public void run() {
+            syncScheduled = false;
+            sync();
+        }
+    };
+
+    JPushEventJournal(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        maxEntries = prefs.getInt(KEY_MAX_ENTRIES, 100);
+        evictionPolicy = prefs.getString(KEY_POLICY, POLICY_DROP_OLDEST);
+        journalEvents = prefs.getBoolean(KEY_JOURNAL_EVENTS, true);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<byte[]> records = readRecords();
+                if (file.length() > validLength) {
+                    truncateTornTail();
+                }
+                entries = records.size();
+                bytes = validLength;
+            }
+        });
+    }
+
+    void configure(int maxEntries, String evictionPolicy, boolean journalEvents) {
+        if (maxEntries > 0) {
+            this.maxEntries = maxEntries;
+        }
+        if (POLICY_DROP_OLDEST.equals(evictionPolicy) || POLICY_DROP_NEWEST.equals(evictionPolicy)) {
+            this.evictionPolicy = evictionPolicy;
+        }
+        this.journalEvents = journalEvents;
+        prefs.edit()
+                .putInt(KEY_MAX_ENTRIES, this.maxEntries)
+                .putString(KEY_POLICY, this.evictionPolicy)
+                .putBoolean(KEY_JOURNAL_EVENTS, journalEvents)
+                .apply();
+    }
+
+    boolean isJournalingEvents() {
+        return journalEvents;
+    }
+
+    /**
+     * 追加一条记录。编码同样在日志线程中进行，调用方之后不能再修改 event。
+     */
+    void append(final int type, final Map<String, Object> event) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                byte[] payload;
+                try {
+                    payload = new JSONObject(event).toString().getBytes("UTF-8");
+                } catch (IOException e) {
+                    Log.e(TAG, "journal encode failed", e);
+                    return;
+                }
+                write(type, payload);
+            }
+        });
+    }
+
+    /**
+     * 按写入顺序在主线程回放所有记录，回放结束后压缩掉这些记录。
+     * 上一次回放未结束时，等它压缩完成后再回放一次，回放期间新写入的记录不会因此等到下次启动。
+     */
+    void replay(final Consumer consumer) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (draining) {
+                    pendingReplay = consumer;
+                    return;
+                }
+                final List<byte[]> records = readRecords();
+                if (records.isEmpty()) {
+                    return;
+                }
+                draining = true;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (byte[] record : records) {
+                            deliver(record, consumer);
+                        }
+                        replayed += records.size();
+                        compact(records.size());
+                    }
+                });
+            }
+        });
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("entries", entries);
+        stats.put("bytes", bytes);
+        stats.put("appended", appended);
+        stats.put("evicted", evicted);
+        stats.put("replayed", replayed);
+        stats.put("syncs", syncs);
+        stats.put("maxEntries", maxEntries);
+        stats.put("evictionPolicy", evictionPolicy);
+        stats.put("journalEvents", journalEvents);
+        return stats;
+    }
+
+    private void deliver(byte[] record, Consumer consumer) {
+        try {
+            String json = new String(record, 1, record.length - 1, "UTF-8");
+            consumer.onReplay(record[0], JPushJson.toMap(new JSONObject(json)));
+        } catch (Exception e) {
+            Log.e(TAG, "journal replay failed", e);
+        }
+    }
+
+    private void compact(final int delivered) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                rewriteDroppingOldest(delivered);
+                draining = false;
+                if (pendingReplay != null) {
+                    Consumer consumer = pendingReplay;
+                    pendingReplay = null;
+                    replay(consumer);
+                }
+            }
+        });
+    }
+
+    private void write(int type, byte[] payload) {
+        if (entries >= maxEntries) {
+            // 回放过程中不能重写文件，否则回放结束后的压缩会删错记录
+            if (POLICY_DROP_NEWEST.equals(evictionPolicy) || draining) {
+                evicted += 1;
+                return;
+            }
+            // 每次淘汰四分之一，避免满载后每条写入都重写文件
+            int drop = Math.max(1, entries - maxEntries + Math.max(1, maxEntries / 4));
+            evicted += Math.min(drop, entries);
+            rewriteDroppingOldest(drop);
+        }
+        try {
+            openWriter();
+            out.writeInt(payload.length + 1);
+            out.writeByte(type);
+            out.write(payload);
+            entries += 1;
+            bytes += payload.length + 5;
+            appended += 1;
+            unsynced += 1;
+        } catch (IOException e) {
+            Log.e(TAG, "journal write failed", e);
+            closeWriter();
+            return;
+        }
+        if (unsynced >= SYNC_BATCH) {
+            sync();
+        } else if (!syncScheduled) {
+            syncScheduled = true;
+            executor.schedule(syncTask, SYNC_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void openWriter() throws IOException {
+        if (out == null) {
+            fileOut = new FileOutputStream(file, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        }
+    }
+
+    private void closeWriter() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            Log.e(TAG, "journal close failed", e);
+        }
+        out = null;
+        fileOut = null;
+    }
+
+    private void sync() {
+        if (out == null || unsynced == 0) {
+            return;
+        }
+        try {
+            out.flush();
+            fileOut.getFD().sync();
+            unsynced = 0;
+            syncs += 1;
+        } catch (IOException e) {
+            Log.e(TAG, "journal sync failed", e);
+        }
+    }
+
+    private List<byte[]> readRecords() {
+        sync();
+        List<byte[]> records = new ArrayList<>();
+        validLength = 0;
+        if (!file.exists()) {
+            return records;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            while (true) {
+                int length = in.readInt();
+                if (length <= 0) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                records.add(record);
+                validLength += length + 4;
+            }
+        } catch (EOFException e) {
+            // 读到文件尾，或进程在写入中途被杀留下的不完整记录
+        } catch (IOException e) {
+            Log.e(TAG, "journal read failed", e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return records;
+    }
+
+    // 截掉进程在写入中途被杀留下的不完整记录，否则之后追加的记录无法被读出
+    private void truncateTornTail() {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(validLength);
+        } catch (IOException e) {
+            Log.e(TAG, "journal truncate failed", e);
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void rewriteDroppingOldest(int count) {
+        List<byte[]> records = readRecords();
+        closeWriter();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        long size = 0;
+        int kept = 0;
+        DataOutputStream tmpOut = null;
+        try {
+            FileOutputStream tmpFileOut = new FileOutputStream(tmp);
+            tmpOut = new DataOutputStream(new BufferedOutputStream(tmpFileOut));
+            for (int i = Math.min(count, records.size()); i < records.size(); i++) {
+                byte[] record = records.get(i);
+                tmpOut.writeInt(record.length);
+                tmpOut.write(record);
+                size += record.length + 4;
+                kept += 1;
+            }
+            tmpOut.flush();
+            tmpFileOut.getFD().sync();
+            tmpOut.close();
+            tmpOut = null;
+            if (!tmp.renameTo(file)) {
+                throw new IOException("rename failed");
+            }
+            entries = kept;
+            bytes = size;
+        } catch (IOException e) {
+            Log.e(TAG, "journal compact failed", e);
+            if (tmpOut != null) {
+                try {
+                    tmpOut.close();
+                } catch (IOException ignored) {
+                }
+            }
+            tmp.delete();
+        }
+    }
+}
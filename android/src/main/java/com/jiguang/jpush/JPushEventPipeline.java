@@ -0,0 +1,87 @@
+package com.jiguang.jpush;
+
+import android.content.BroadcastReceiver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * JPushReceiver 的后台处理流水线。
+ * 广播的 extras 解析、过滤与下发数据的构造在单线程的 executor 中按到达顺序执行，只有最终的 channel 调用切回主线程。
+ * 每个阶段的耗时会被统计：parse 解析 extras，build 构造下发数据，mainThreadHop 等待主线程，deliver 主线程下发。
+ * 耗时只记录在 JPushMetrics 中，getMetrics(reset: true) 清零后这里的统计同样清零。
+ */
+class JPushEventPipeline {
+
+    static final int STAGE_PARSE = 0;
+    static final int STAGE_BUILD = 1;
+    static final int STAGE_HOP = 2;
+    static final int STAGE_DELIVER = 3;
+
+    private static final String[] STAGE_NAMES = {"parse", "build", "mainThreadHop", "deliver"};
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jpush-event-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private JPushEventPipeline() {
+    }
+
+    static void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * 在主线程执行 task，执行结束后结束广播的异步处理。
+     */
+    static void postToMain(final Runnable task, final BroadcastReceiver.PendingResult pendingResult) {
+        final long posted = System.nanoTime();
+        JPushMainDispatcher.run(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                record(STAGE_HOP, start - posted);
+                try {
+                    task.run();
+                } finally {
+                    record(STAGE_DELIVER, System.nanoTime() - start);
+                    finish(pendingResult);
+                }
+            }
+        });
+    }
+
+    static void finish(BroadcastReceiver.PendingResult pendingResult) {
+        if (pendingResult != null) {
+            pendingResult.finish();
+        }
+    }
+
+    static void record(int stage, long nanos) {
+        JPushMetrics.record(STAGE_NAMES[stage], nanos);
+    }
+
+    static Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (String name : STAGE_NAMES) {
+            Map<String, Object> stage = JPushMetrics.stage(name);
+            if (stage == null) {
+                stage = new HashMap<>();
+                stage.put("count", 0L);
+                stage.put("totalMicros", 0L);
+                stage.put("avgMicros", 0L);
+                stage.put("maxMicros", 0L);
+            }
+            stats.put(name, stage);
+        }
+        return stats;
+    }
+}
@@ -1,8 +1,6 @@
 package com.jiguang.jpush;
 
 import android.content.Context;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
 import org.json.JSONException;
@@ -34,34 +32,29 @@ public class JPushEventReceiver extends JPushMessageReceiver {
             e.printStackTrace();
         }
 
-        final Result callback = JPushPlugin.instance.callbackMap.get(sequence);//instance.eventCallbackMap.get(sequence);
+        final Result callback = JPushPlugin.pendingRequests.take(sequence);
 
         if (callback == null) {
-            Log.i("JPushPlugin", "Unexpected error, callback is null!");
+            if (JPushPlugin.debugLogging) {
+                Log.i("JPushPlugin", "Unexpected error, callback is null!");
+            }
             return;
         }
 
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
-            @Override
-            public void run() {
-                if (jPushMessage.getErrorCode() == 0) { // success
-                    Set<String> tags = jPushMessage.getTags();
-                    List<String> tagList = new ArrayList<>(tags);
-                    Map<String, Object> res = new HashMap<>();
-                    res.put("tags", tagList);
-                    callback.success(res);
-                } else {
-                    try {
-                        resultJson.put("code", jPushMessage.getErrorCode());
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                    }
-                    callback.error(Integer.toString(jPushMessage.getErrorCode()), "", "");
-                }
-
-                JPushPlugin.instance.callbackMap.remove(sequence);
+        if (jPushMessage.getErrorCode() == 0) { // success
+            Set<String> tags = jPushMessage.getTags();
+            List<String> tagList = new ArrayList<>(tags);
+            Map<String, Object> res = new HashMap<>();
+            res.put("tags", tagList);
+            JPushMainDispatcher.success(callback, res);
+        } else {
+            try {
+                resultJson.put("code", jPushMessage.getErrorCode());
+            } catch (JSONException e) {
+                e.printStackTrace();
             }
-        });
+            JPushMainDispatcher.error(callback, Integer.toString(jPushMessage.getErrorCode()), "", "");
+        }
 
     }
 
@@ -76,30 +69,25 @@ public class JPushEventReceiver extends JPushMessageReceiver {
         final int sequence = jPushMessage.getSequence();
 
 
-        final Result callback = JPushPlugin.instance.callbackMap.get(sequence);
+        final Result callback = JPushPlugin.pendingRequests.take(sequence);
 
         if (callback == null) {
-            Log.i("JPushPlugin", "Unexpected error, callback is null!");
+            if (JPushPlugin.debugLogging) {
+                Log.i("JPushPlugin", "Unexpected error, callback is null!");
+            }
             return;
         }
 
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
-            @Override
-            public void run() {
-                if (jPushMessage.getErrorCode() == 0) {
-                    Set<String> tags = jPushMessage.getTags();
-                    List<String> tagList = new ArrayList<>(tags);
-                    Map<String, Object> res = new HashMap<>();
-                    res.put("tags", tagList);
-                    callback.success(res);
-                } else {
-
-                    callback.error(Integer.toString(jPushMessage.getErrorCode()), "", "");
-                }
-
-                JPushPlugin.instance.callbackMap.remove(sequence);
-            }
-        });
+        if (jPushMessage.getErrorCode() == 0) {
+            Set<String> tags = jPushMessage.getTags();
+            List<String> tagList = new ArrayList<>(tags);
+            Map<String, Object> res = new HashMap<>();
+            res.put("tags", tagList);
+            JPushMainDispatcher.success(callback, res);
+        } else {
+
+            JPushMainDispatcher.error(callback, Integer.toString(jPushMessage.getErrorCode()), "", "");
+        }
     }
 
     @Override
@@ -108,37 +96,31 @@ public class JPushEventReceiver extends JPushMessageReceiver {
 
         final int sequence = jPushMessage.getSequence();
 
-        final Result callback = JPushPlugin.instance.callbackMap.get(sequence);
+        final Result callback = JPushPlugin.pendingRequests.take(sequence);
 
         if (callback == null) {
-            Log.i("JPushPlugin", "Unexpected error, callback is null!");
+            if (JPushPlugin.debugLogging) {
+                Log.i("JPushPlugin", "Unexpected error, callback is null!");
+            }
             return;
         }
 
-        new Handler(Looper.getMainLooper()).post(new Runnable() {
-            @Override
-            public void run() {
-                if (jPushMessage.getErrorCode() == 0) { // success
-                    Map<String, Object> res = new HashMap<>();
-                    res.put("alias", (jPushMessage.getAlias() == null)? "" : jPushMessage.getAlias());
-                    callback.success(res);
-
-                } else {
-                    callback.error(Integer.toString(jPushMessage.getErrorCode()), "", "");
-                }
+        if (jPushMessage.getErrorCode() == 0) { // success
+            Map<String, Object> res = new HashMap<>();
+            res.put("alias", (jPushMessage.getAlias() == null)? "" : jPushMessage.getAlias());
+            JPushMainDispatcher.success(callback, res);
 
-                JPushPlugin.instance.callbackMap.remove(sequence);
-            }
-        });
+        } else {
+            JPushMainDispatcher.error(callback, Integer.toString(jPushMessage.getErrorCode()), "", "");
+        }
     }
 
     @Override
     public void onNotificationSettingsCheck(Context context, boolean isOn, int source) {
         super.onNotificationSettingsCheck(context, isOn, source);
 
-
         HashMap<String, Object> map = new HashMap();
         map.put("isEnabled",isOn);
-        JPushPlugin.instance.runMainThread(map,null,"onReceiveNotificationAuthorization");
+        JPushMainDispatcher.event("onReceiveNotificationAuthorization", map);
     }
 }
@@ -0,0 +1,166 @@
+package com.jiguang.jpush;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cn.jpush.android.api.JPushInterface;
+
+/**
+ * cn.jpush.android.EXTRA 的原生解析。
+ * 开启后在后台流水线中将 EXTRA 的 JSON 字符串解析为 Map 下发，dart 层无需再 jsonDecode；
+ * 配置了 keys 时只保留 dart 层关心的字段。开启期间同时按 StandardMessageCodec 的编码规则估算每个事件的下发字节数，
+ * 未开启时不做任何统计，避免每个事件都遍历一遍 payload。
+ */
+class JPushExtrasParser {
+
+    private static volatile boolean enabled = false;
+    private static volatile Set<String> projection = null;
+
+    private static final AtomicLong events = new AtomicLong();
+    private static final AtomicLong payloadBytes = new AtomicLong();
+    private static final AtomicLong extraRawBytes = new AtomicLong();
+    private static final AtomicLong extraSentBytes = new AtomicLong();
+    private static final AtomicLong parseFailures = new AtomicLong();
+
+    private JPushExtrasParser() {
+    }
+
+    static void configure(boolean enable, List<String> keys) {
+        projection = (keys == null || keys.isEmpty()) ? null : new HashSet<>(keys);
+        enabled = enable;
+    }
+
+    static boolean isExtraKey(String key) {
+        return JPushInterface.EXTRA_EXTRA.equals(key);
+    }
+
+    /**
+     * 返回 EXTRA 字段实际下发的值：未开启或解析失败时为原始字符串，否则为解析（并裁剪）后的 Map。
+     */
+    static Object parseExtra(String raw) {
+        if (!enabled) {
+            return raw;
+        }
+        Object value = raw;
+        if (raw != null && !raw.isEmpty()) {
+            try {
+                Map<String, Object> map = JPushJson.toMap(new JSONObject(raw));
+                Set<String> keys = projection;
+                if (keys != null) {
+                    map.keySet().retainAll(keys);
+                }
+                value = map;
+            } catch (JSONException e) {
+                parseFailures.incrementAndGet();
+            }
+        }
+        extraRawBytes.addAndGet(encodedSize(raw));
+        extraSentBytes.addAndGet(encodedSize(value));
+        return value;
+    }
+
+    /**
+     * 返回 extras 中 EXTRA 的自定义字段，EXTRA 不存在或不是 JSON 对象时返回 null。
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> customFields(Map<String, Object> extras) {
+        Object extra = extras.get(JPushInterface.EXTRA_EXTRA);
+        if (extra instanceof Map) {
+            return (Map<String, Object>) extra;
+        }
+        if (extra instanceof String && !((String) extra).isEmpty()) {
+            try {
+                return JPushJson.toMap(new JSONObject((String) extra));
+            } catch (JSONException ignored) {
+            }
+        }
+        return null;
+    }
+
+    static void recordPayload(Map<String, Object> payload) {
+        if (!enabled) {
+            return;
+        }
+        events.incrementAndGet();
+        payloadBytes.addAndGet(encodedSize(payload));
+    }
+
+    static Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        long count = events.get();
+        stats.put("enabled", enabled);
+        stats.put("keys", projection == null ? null : new ArrayList<>(projection));
+        stats.put("events", count);
+        stats.put("payloadBytes", payloadBytes.get());
+        stats.put("avgPayloadBytes", count == 0 ? 0 : payloadBytes.get() / count);
+        stats.put("extraRawBytes", extraRawBytes.get());
+        stats.put("extraSentBytes", extraSentBytes.get());
+        stats.put("parseFailures", parseFailures.get());
+        return stats;
+    }
+
+    // 按 StandardMessageCodec 的编码格式估算字节数（忽略对齐填充）
+    static long encodedSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Integer) {
+            return 5;
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return 9;
+        }
+        if (value instanceof String) {
+            int length = utf8Length((String) value);
+            return 1 + sizeSize(length) + length;
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            long size = 1 + sizeSize(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += encodedSize(entry.getKey()) + encodedSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            Collection<?> list = (Collection<?>) value;
+            long size = 1 + sizeSize(list.size());
+            for (Object item : list) {
+                size += encodedSize(item);
+            }
+            return size;
+        }
+        return encodedSize(value.toString());
+    }
+
+    private static int sizeSize(int size) {
+        return size < 254 ? 1 : (size <= 0xffff ? 3 : 5);
+    }
+
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
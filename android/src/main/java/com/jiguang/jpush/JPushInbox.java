@@ -0,0 +1,366 @@
+package com.jiguang.jpush;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * 收到的自定义消息与通知的本地收件箱，默认关闭。
+ * 开启后 JPushReceiver 在后台流水线上把每条消息写入 SQLite，写入先在内存中排队，按条数或时间合并为一个事务提交。
+ * dart 层按 id 倒序分页查询、标记已读，超过 ttl 的记录在写入时定期清理，也可以手动清理。
+ * 所有数据库操作都在单独的线程中串行执行，查询结果在主线程回调。
+ */
+class JPushInbox {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    static final int TYPE_MESSAGE = 1;
+    static final int TYPE_NOTIFICATION = 2;
+
+    private static final String DB_NAME = "jpush_flutter_inbox.db";
+    private static final int DB_VERSION = 1;
+    private static final String TABLE = "inbox";
+
+    private static final String PREFS_NAME = "jpush_flutter_inbox";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_TTL = "ttl";
+
+    private static final int WRITE_BATCH = 32;
+    private static final long WRITE_DELAY = 100;
+    private static final long COMPACT_INTERVAL = 60 * 60 * 1000;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final class Record {
+        final int type;
+        final String msgId;
+        final long receivedAt;
+        final String payload;
+
+        Record(int type, String msgId, long receivedAt, String payload) {
+            this.type = type;
+            this.msgId = msgId;
+            this.receivedAt = receivedAt;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Helper extends SQLiteOpenHelper {
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE + " ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "type INTEGER NOT NULL, "
+                    + "msg_id TEXT, "
+                    + "received_at INTEGER NOT NULL, "
+                    + "read INTEGER NOT NULL DEFAULT 0, "
+                    + "payload TEXT NOT NULL)");
+            db.execSQL("CREATE INDEX inbox_received_at ON " + TABLE + " (received_at)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        }
+    }
+
+    private static JPushInbox sInstance;
+
+    static synchronized JPushInbox getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new JPushInbox(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final Helper helper;
+    private final SharedPreferences prefs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private volatile boolean enabled;
+    private volatile long ttl;
+
+    // 以下字段只在 executor 线程访问
+    private final List<Record> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    private long lastCompactAt;
+
+    private volatile long written;
+    private volatile long transactions;
+    private volatile long compacted;
+    private volatile long writeFailures;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            flush();
+        }
+    };
+
+    JPushInbox(Context context) {
+        helper = new Helper(context);
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        enabled = prefs.getBoolean(KEY_ENABLED, false);
+        ttl = prefs.getLong(KEY_TTL, 30L * 24 * 60 * 60 * 1000);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void configure(boolean enable, long ttl) {
+        this.enabled = enable;
+        if (ttl > 0) {
+            this.ttl = ttl;
+        }
+        prefs.edit().putBoolean(KEY_ENABLED, enabled).putLong(KEY_TTL, this.ttl).apply();
+    }
+
+    /**
+     * 可在任意线程调用，payload 在调用线程序列化。
+     */
+    void append(int type, String msgId, Map<String, Object> payload) {
+        if (!enabled) {
+            return;
+        }
+        final Record record = new Record(type, msgId, System.currentTimeMillis(), new JSONObject(payload).toString());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                pending.add(record);
+                if (pending.size() >= WRITE_BATCH) {
+                    flush();
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    executor.schedule(flushTask, WRITE_DELAY, TimeUnit.MILLISECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * 按 id 倒序返回 before 之前（不含）的最多 limit 条记录，before 小于等于 0 时从最新的开始。
+     * 结果为 {items, nextCursor}，nextCursor 为 null 表示没有更多记录。
+     */
+    void query(final long before, final int limit, final int type, final boolean unreadOnly, final Result result) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+                int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+                StringBuilder where = new StringBuilder("1");
+                List<String> args = new ArrayList<>();
+                if (before > 0) {
+                    where.append(" AND id < ?");
+                    args.add(Long.toString(before));
+                }
+                if (type > 0) {
+                    where.append(" AND type = ?");
+                    args.add(Integer.toString(type));
+                }
+                if (unreadOnly) {
+                    where.append(" AND read = 0");
+                }
+                List<Map<String, Object>> items = new ArrayList<>();
+                Cursor cursor = null;
+                try {
+                    // 多取一条用于判断是否还有下一页
+                    cursor = helper.getReadableDatabase().rawQuery(
+                            "SELECT id, type, msg_id, received_at, read, payload FROM " + TABLE
+                                    + " WHERE " + where + " ORDER BY id DESC LIMIT " + (pageSize + 1),
+                            args.toArray(new String[0]));
+                    while (cursor.moveToNext()) {
+                        items.add(toMap(cursor));
+                    }
+                } catch (SQLiteException e) {
+                    Log.e(TAG, "inbox query failed", e);
+                    JPushMainDispatcher.error(result, "inbox_error", e.getMessage(), null);
+                    return;
+                } finally {
+                    if (cursor != null) {
+                        cursor.close();
+                    }
+                }
+                Object nextCursor = null;
+                if (items.size() > pageSize) {
+                    items.remove(pageSize);
+                    nextCursor = items.get(pageSize - 1).get("id");
+                }
+                Map<String, Object> page = new HashMap<>();
+                page.put("items", items);
+                page.put("nextCursor", nextCursor);
+                JPushMainDispatcher.success(result, page);
+            }
+        });
+    }
+
+    /**
+     * 标记已读，ids 为 null 时标记全部，回调更新的条数。
+     */
+    void markRead(final List<Number> ids, final Result result) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+                ContentValues values = new ContentValues();
+                values.put("read", 1);
+                try {
+                    SQLiteDatabase db = helper.getWritableDatabase();
+                    int updated;
+                    if (ids == null) {
+                        updated = db.update(TABLE, values, "read = 0", null);
+                    } else {
+                        updated = 0;
+                        db.beginTransaction();
+                        try {
+                            for (Number id : ids) {
+                                updated += db.update(TABLE, values, "id = ? AND read = 0",
+                                        new String[]{Long.toString(id.longValue())});
+                            }
+                            db.setTransactionSuccessful();
+                        } finally {
+                            db.endTransaction();
+                        }
+                    }
+                    JPushMainDispatcher.success(result, updated);
+                } catch (SQLiteException e) {
+                    Log.e(TAG, "inbox markRead failed", e);
+                    JPushMainDispatcher.error(result, "inbox_error", e.getMessage(), null);
+                }
+            }
+        });
+    }
+
+    /**
+     * 删除超过 ttl 的记录，回调删除的条数。
+     */
+    void compact(final Result result) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+                try {
+                    JPushMainDispatcher.success(result, deleteExpired());
+                } catch (SQLiteException e) {
+                    Log.e(TAG, "inbox compact failed", e);
+                    JPushMainDispatcher.error(result, "inbox_error", e.getMessage(), null);
+                }
+            }
+        });
+    }
+
+    void stats(final Result result) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<String, Object> stats = new HashMap<>();
+                stats.put("enabled", enabled);
+                stats.put("ttl", ttl);
+                stats.put("pendingWrites", pending.size());
+                stats.put("written", written);
+                stats.put("transactions", transactions);
+                stats.put("compacted", compacted);
+                stats.put("writeFailures", writeFailures);
+                try {
+                    SQLiteDatabase db = helper.getReadableDatabase();
+                    stats.put("entries", DatabaseUtils.queryNumEntries(db, TABLE));
+                    stats.put("unread", DatabaseUtils.queryNumEntries(db, TABLE, "read = 0"));
+                } catch (SQLiteException e) {
+                    Log.e(TAG, "inbox stats failed", e);
+                }
+                JPushMainDispatcher.success(result, stats);
+            }
+        });
+    }
+
+    // 在 executor 线程执行，排队中的记录在一个事务中写入
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE
+                    + " (type, msg_id, received_at, payload) VALUES (?, ?, ?, ?)");
+            db.beginTransaction();
+            try {
+                for (Record record : pending) {
+                    insert.bindLong(1, record.type);
+                    if (record.msgId == null) {
+                        insert.bindNull(2);
+                    } else {
+                        insert.bindString(2, record.msgId);
+                    }
+                    insert.bindLong(3, record.receivedAt);
+                    insert.bindString(4, record.payload);
+                    insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+            }
+            written += pending.size();
+            transactions += 1;
+        } catch (SQLiteException e) {
+            Log.e(TAG, "inbox write failed", e);
+            writeFailures += pending.size();
+        }
+        pending.clear();
+
+        long now = System.currentTimeMillis();
+        if (now - lastCompactAt >= COMPACT_INTERVAL) {
+            lastCompactAt = now;
+            try {
+                deleteExpired();
+            } catch (SQLiteException e) {
+                Log.e(TAG, "inbox compact failed", e);
+            }
+        }
+    }
+
+    private int deleteExpired() {
+        int deleted = helper.getWritableDatabase().delete(TABLE, "received_at < ?",
+                new String[]{Long.toString(System.currentTimeMillis() - ttl)});
+        compacted += deleted;
+        return deleted;
+    }
+
+    private static Map<String, Object> toMap(Cursor cursor) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("id", cursor.getLong(0));
+        item.put("type", cursor.getInt(1) == TYPE_MESSAGE ? "message" : "notification");
+        item.put("msgId", cursor.getString(2));
+        item.put("receivedAt", cursor.getLong(3));
+        item.put("read", cursor.getInt(4) != 0);
+        try {
+            item.put("payload", JPushJson.toMap(new JSONObject(cursor.getString(5))));
+        } catch (JSONException e) {
+            item.put("payload", null);
+        }
+        return item;
+    }
+}
@@ -0,0 +1,196 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * JPush SDK 的初始化。
+ * 同步模式与原来一致，在主线程依次调用 setDebugMode、init、setChannel；
+ * 异步模式下这些调用与首次 getRegistrationID 在 JPushEventPipeline 的后台线程中与其他后台任务按顺序执行，setup 立即返回，
+ * 初始化完成前收到的 dart 调用先排队，完成后在主线程按顺序重放；后台初始化抛出异常时同样重放，并记录 failed 阶段。
+ * 每个阶段的耗时都会记录，用于跟踪启动耗时的变化。
+ */
+class JPushInitializer {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    interface Callback {
+        /**
+         * 初始化完成，在主线程回调。
+         */
+        void onInitialized(String registrationId);
+
+        void replay(MethodCall call, Result result);
+    }
+
+    private static final class QueuedCall {
+        final MethodCall call;
+        final Result result;
+        final long queuedAt;
+
+        QueuedCall(MethodCall call, Result result) {
+            this.call = call;
+            this.result = result;
+            this.queuedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Callback callback;
+
+    private boolean async;
+    private boolean running;
+    private List<QueuedCall> queue = new ArrayList<>();
+
+    // 各阶段耗时（微秒），按执行顺序
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private long setupStartAt;
+    private long totalMicros;
+    private long queuedCalls;
+    private long maxQueueWaitMillis;
+
+    JPushInitializer(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * 需要在主线程调用。
+     */
+    void init(final Context context, final boolean debug, final String channel, boolean async) {
+        if (running) {
+            return;
+        }
+        this.async = async;
+        setupStartAt = System.nanoTime();
+        clearPhases();
+        if (!async) {
+            initSdk(context, debug, channel);
+            record("mainThread", setupStartAt);
+            totalMicros = (System.nanoTime() - setupStartAt) / 1000;
+            return;
+        }
+
+        running = true;
+        JPushEventPipeline.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long start = System.nanoTime();
+                final String rid;
+                try {
+                    initSdk(context, debug, channel);
+                    long ridStart = System.nanoTime();
+                    rid = JPushInterface.getRegistrationID(context);
+                    record("getRegistrationID", ridStart);
+                } catch (final Throwable e) {
+                    // 不回到主线程清除 running 的话，之后的 dart 调用会一直排队
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            Log.e(TAG, "async init failed", e);
+                            record("failed", start);
+                            totalMicros = (System.nanoTime() - setupStartAt) / 1000;
+                            running = false;
+                            replayQueue();
+                        }
+                    });
+                    return;
+                }
+                final long hopStart = System.nanoTime();
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        record("mainThreadHop", hopStart);
+                        totalMicros = (System.nanoTime() - setupStartAt) / 1000;
+                        if (JPushPlugin.debugLogging) {
+                            Log.d(TAG, "async init finished in " + (System.nanoTime() - start) / 1000 + "us");
+                        }
+                        finish(rid);
+                    }
+                });
+            }
+        });
+        record("mainThread", setupStartAt);
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    void enqueue(MethodCall call, Result result) {
+        queue.add(new QueuedCall(call, result));
+        queuedCalls += 1;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", async ? "async" : "sync");
+        stats.put("running", running);
+        synchronized (phases) {
+            stats.put("phases", new LinkedHashMap<>(phases));
+        }
+        stats.put("totalMicros", totalMicros);
+        stats.put("queuedCalls", queuedCalls);
+        stats.put("maxQueueWaitMillis", maxQueueWaitMillis);
+        return stats;
+    }
+
+    private void initSdk(Context context, boolean debug, String channel) {
+        long start = System.nanoTime();
+        JPushInterface.setDebugMode(debug);
+        record("setDebugMode", start);
+
+        start = System.nanoTime();
+        JPushInterface.init(context);            // 初始化 JPush
+        record("init", start);
+
+        start = System.nanoTime();
+        JPushInterface.setChannel(context, channel);
+        record("setChannel", start);
+    }
+
+    // 异步模式下后台线程与主线程都会记录阶段耗时
+    private void record(String phase, long startNanos) {
+        putPhase(phase, (System.nanoTime() - startNanos) / 1000);
+    }
+
+    private void putPhase(String phase, long micros) {
+        synchronized (phases) {
+            phases.put(phase, micros);
+        }
+    }
+
+    private void clearPhases() {
+        synchronized (phases) {
+            phases.clear();
+        }
+    }
+
+    private void finish(String rid) {
+        running = false;
+        replayQueue();
+        callback.onInitialized(rid);
+    }
+
+    private void replayQueue() {
+        List<QueuedCall> calls = queue;
+        queue = new ArrayList<>();
+        long now = SystemClock.elapsedRealtime();
+        for (QueuedCall queued : calls) {
+            maxQueueWaitMillis = Math.max(maxQueueWaitMillis, now - queued.queuedAt);
+            callback.replay(queued.call, queued.result);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.jiguang.jpush;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将 org.json 对象转换为 StandardMessageCodec 可直接编码的 Map/List。
+ */
+class JPushJson {
+
+    private JPushJson() {
+    }
+
+    static Map<String, Object> toMap(JSONObject json) throws JSONException {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            map.put(key, fromJson(json.opt(key)));
+        }
+        return map;
+    }
+
+    static Object fromJson(Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            return toMap((JSONObject) value);
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                list.add(fromJson(array.opt(i)));
+            }
+            return list;
+        }
+        if (value == JSONObject.NULL) {
+            return null;
+        }
+        return value;
+    }
+}
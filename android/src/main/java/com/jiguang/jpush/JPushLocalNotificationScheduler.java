@@ -0,0 +1,289 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import cn.jpush.android.api.JPushInterface;
+import cn.jpush.android.data.JPushLocalNotification;
+
+/**
+ * 本地通知的批量调度与索引。
+ * 一次 channel 调用调度多条本地通知，逐条校验并返回每条的结果；已调度的通知按 id 与触发时间建立索引，
+ * 持久化到 SharedPreferences，可以按时间范围查询、按 id 批量取消，重复调度同一 id 即为更新。
+ * 已过触发时间的通知在查询时从索引中移除。所有方法都需要在主线程调用。
+ */
+class JPushLocalNotificationScheduler {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    private static final String PREFS_NAME = "jpush_flutter_local_notifications";
+    private static final String KEY_INDEX = "index";
+
+    private static final class Item {
+        final int id;
+        final long fireTime;
+        final long buildId;
+        final String title;
+        final String content;
+        // extra 只序列化一次，调度与持久化共用
+        final String extras;
+
+        Item(int id, long fireTime, long buildId, String title, String content, String extras) {
+            this.id = id;
+            this.fireTime = fireTime;
+            this.buildId = buildId;
+            this.title = title;
+            this.content = content;
+            this.extras = extras;
+        }
+    }
+
+    private static final Comparator<Item> BY_FIRE_TIME = new Comparator<Item>() {
+        @Override
+        public int compare(Item a, Item b) {
+            if (a.fireTime != b.fireTime) {
+                return a.fireTime < b.fireTime ? -1 : 1;
+            }
+            return a.id < b.id ? -1 : (a.id == b.id ? 0 : 1);
+        }
+    };
+
+    private Context context;
+    private SharedPreferences prefs;
+
+    private final Map<Integer, Item> byId = new HashMap<>();
+    private final TreeSet<Item> byFireTime = new TreeSet<>(BY_FIRE_TIME);
+
+    void setContext(Context context) {
+        if (prefs != null) {
+            return;
+        }
+        this.context = context.getApplicationContext();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        load();
+    }
+
+    /**
+     * 逐条校验并调度，返回与输入顺序一致的结果：{id, ok, error}。
+     */
+    List<Map<String, Object>> schedule(List<Map<String, Object>> notifications) {
+        List<Map<String, Object>> results = new ArrayList<>(notifications.size());
+        boolean changed = false;
+        for (Map<String, Object> map : notifications) {
+            Object id = map == null ? null : map.get("id");
+            String error = null;
+            try {
+                Item item = parse(map);
+                if (byId.containsKey(item.id)) {
+                    JPushInterface.removeLocalNotification(context, item.id);
+                    remove(item.id);
+                }
+                JPushInterface.addLocalNotification(context, toLocalNotification(item));
+                byId.put(item.id, item);
+                byFireTime.add(item);
+                changed = true;
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "schedule local notification failed", e);
+                error = e.toString();
+            }
+            results.add(result(id, error == null, error));
+        }
+        if (changed) {
+            save();
+        }
+        return results;
+    }
+
+    /**
+     * 取消指定 id 的通知，返回每个 id 是否在索引中。ids 为 null 时取消全部。
+     */
+    List<Map<String, Object>> cancel(List<Integer> ids) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        if (ids == null) {
+            JPushInterface.clearLocalNotifications(context);
+            for (Item item : byFireTime) {
+                results.add(result(item.id, true, null));
+            }
+            byId.clear();
+            byFireTime.clear();
+        } else {
+            for (Integer id : ids) {
+                boolean found = remove(id);
+                JPushInterface.removeLocalNotification(context, id);
+                results.add(result(id, found, found ? null : "not scheduled"));
+            }
+        }
+        save();
+        return results;
+    }
+
+    /**
+     * 返回触发时间在 [from, to] 之间的通知，按触发时间排序。
+     */
+    List<Map<String, Object>> query(long from, long to) {
+        if (pruneExpired()) {
+            save();
+        }
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Item item : byFireTime) {
+            if (item.fireTime < from) {
+                continue;
+            }
+            if (item.fireTime > to) {
+                break;
+            }
+            list.add(toMap(item));
+        }
+        return list;
+    }
+
+    private Item parse(Map<String, Object> map) {
+        if (map == null) {
+            throw new IllegalArgumentException("notification is null");
+        }
+        if (!(map.get("id") instanceof Number)) {
+            throw new IllegalArgumentException("id is required");
+        }
+        if (!(map.get("fireTime") instanceof Number)) {
+            throw new IllegalArgumentException("fireTime is required");
+        }
+        Object title = map.get("title");
+        Object content = map.get("content");
+        if (!(title instanceof String) || !(content instanceof String)) {
+            throw new IllegalArgumentException("title and content are required");
+        }
+        Object buildId = map.get("buildId");
+        Object extra = map.get("extra");
+        String extras = null;
+        if (extra instanceof Map) {
+            extras = new JSONObject((Map) extra).toString();
+        } else if (extra != null) {
+            throw new IllegalArgumentException("extra must be a map");
+        }
+        return new Item(((Number) map.get("id")).intValue(),
+                ((Number) map.get("fireTime")).longValue(),
+                buildId instanceof Number ? ((Number) buildId).longValue() : 0,
+                (String) title, (String) content, extras);
+    }
+
+    private static JPushLocalNotification toLocalNotification(Item item) {
+        JPushLocalNotification ln = new JPushLocalNotification();
+        ln.setBuilderId(item.buildId);
+        ln.setNotificationId(item.id);
+        ln.setTitle(item.title);
+        ln.setContent(item.content);
+        if (item.extras != null) {
+            ln.setExtras(item.extras);
+        }
+        ln.setBroadcastTime(item.fireTime);
+        return ln;
+    }
+
+    private static Map<String, Object> toMap(Item item) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", item.id);
+        map.put("fireTime", item.fireTime);
+        map.put("buildId", item.buildId);
+        map.put("title", item.title);
+        map.put("content", item.content);
+        if (item.extras != null) {
+            try {
+                map.put("extra", JPushJson.toMap(new JSONObject(item.extras)));
+            } catch (JSONException ignored) {
+            }
+        }
+        return map;
+    }
+
+    private static Map<String, Object> result(Object id, boolean ok, String error) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("id", id);
+        result.put("ok", ok);
+        if (error != null) {
+            result.put("error", error);
+        }
+        return result;
+    }
+
+    private boolean remove(int id) {
+        Item item = byId.remove(id);
+        if (item == null) {
+            return false;
+        }
+        byFireTime.remove(item);
+        return true;
+    }
+
+    private boolean pruneExpired() {
+        long now = System.currentTimeMillis();
+        boolean pruned = false;
+        Iterator<Item> it = byFireTime.iterator();
+        while (it.hasNext()) {
+            Item item = it.next();
+            if (item.fireTime >= now) {
+                break;
+            }
+            it.remove();
+            byId.remove(item.id);
+            pruned = true;
+        }
+        return pruned;
+    }
+
+    private void load() {
+        String index = prefs.getString(KEY_INDEX, null);
+        if (index == null) {
+            return;
+        }
+        try {
+            JSONArray array = new JSONArray(index);
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject json = array.getJSONObject(i);
+                Item item = new Item(json.getInt("id"), json.getLong("fireTime"), json.optLong("buildId"),
+                        json.optString("title"), json.optString("content"),
+                        json.has("extras") ? json.getString("extras") : null);
+                byId.put(item.id, item);
+                byFireTime.add(item);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "load local notification index failed", e);
+        }
+    }
+
+    private void save() {
+        JSONArray array = new JSONArray();
+        try {
+            for (Item item : byFireTime) {
+                JSONObject json = new JSONObject();
+                json.put("id", item.id);
+                json.put("fireTime", item.fireTime);
+                json.put("buildId", item.buildId);
+                json.put("title", item.title);
+                json.put("content", item.content);
+                if (item.extras != null) {
+                    json.put("extras", item.extras);
+                }
+                array.put(json);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "save local notification index failed", e);
+            return;
+        }
+        prefs.edit().putString(KEY_INDEX, array.toString()).apply();
+    }
+}
@@ -0,0 +1,248 @@
+package com.jiguang.jpush;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * 切回主线程的共享分发器。
+ * 任意线程提交的回调与事件进入同一个队列，队列由空变为非空时才向主线程 Looper 投递一条消息，
+ * 这条消息执行时一次处理完队列中已有的全部任务，在它执行之前到达的任务因此合并为一次 Looper 调度。
+ * 任务对象从对象池中取出，执行后归还，稳定状态下不再为每个事件分配 Handler 与 Runnable。
+ * 关闭 coalesce 后恢复为原来的做法，每个任务新建 Handler 单独投递，不经过队列与对象池，也不计入统计。
+ */
+final class JPushMainDispatcher {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    static final String HOP = "mainDispatchHop";
+
+    private static final int KIND_RUNNABLE = 0;
+    private static final int KIND_SUCCESS = 1;
+    private static final int KIND_ERROR = 2;
+    private static final int KIND_EVENT = 3;
+
+    private static final int MAX_POOL_SIZE = 64;
+
+    private static final class Task {
+        int kind;
+        Runnable runnable;
+        Result result;
+        Object value;
+        String name;
+        String message;
+        Map<String, Object> arguments;
+        long postedAt;
+
+        void execute() {
+            switch (kind) {
+                case KIND_SUCCESS:
+                    result.success(value);
+                    break;
+                case KIND_ERROR:
+                    result.error(name, message, value);
+                    break;
+                case KIND_EVENT:
+                    JPushPlugin.dispatchToEngines(name, arguments);
+                    break;
+                default:
+                    runnable.run();
+                    break;
+            }
+        }
+
+        void clear() {
+            runnable = null;
+            result = null;
+            value = null;
+            name = null;
+            message = null;
+            arguments = null;
+        }
+    }
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final Object lock = new Object();
+
+    // 以下字段由 lock 保护
+    private static ArrayDeque<Task> queue = new ArrayDeque<>();
+    private static ArrayDeque<Task> draining = new ArrayDeque<>();
+    private static final ArrayDeque<Task> pool = new ArrayDeque<>();
+    private static boolean scheduled;
+    private static long posted;
+    private static long looperMessages;
+    private static long poolMisses;
+    private static int maxBatch;
+
+    private static volatile boolean coalesce = true;
+
+    private static final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    static {
+        JPushMetrics.gauge("mainDispatchQueue", new JPushMetrics.Gauge() {
+            @Override
+            public long value() {
+                synchronized (lock) {
+                    return queue.size();
+                }
+            }
+        });
+    }
+
+    private JPushMainDispatcher() {
+    }
+
+    static void setCoalesce(boolean enable) {
+        coalesce = enable;
+    }
+
+    static void run(Runnable runnable) {
+        if (!coalesce) {
+            new Handler(Looper.getMainLooper()).post(runnable);
+            return;
+        }
+        Task task = obtain(KIND_RUNNABLE);
+        task.runnable = runnable;
+        post(task);
+    }
+
+    static void success(final Result result, final Object value) {
+        if (!coalesce) {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    result.success(value);
+                }
+            });
+            return;
+        }
+        Task task = obtain(KIND_SUCCESS);
+        task.result = result;
+        task.value = value;
+        post(task);
+    }
+
+    static void error(final Result result, final String errorCode, final String errorMessage,
+                      final Object errorDetails) {
+        if (!coalesce) {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    result.error(errorCode, errorMessage, errorDetails);
+                }
+            });
+            return;
+        }
+        Task task = obtain(KIND_ERROR);
+        task.result = result;
+        task.name = errorCode;
+        task.message = errorMessage;
+        task.value = errorDetails;
+        post(task);
+    }
+
+    /**
+     * 在主线程按路由规则把事件分发到各个引擎。
+     */
+    static void event(final String method, final Map<String, Object> arguments) {
+        if (!coalesce) {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    JPushPlugin.dispatchToEngines(method, arguments);
+                }
+            });
+            return;
+        }
+        Task task = obtain(KIND_EVENT);
+        task.name = method;
+        task.arguments = arguments;
+        post(task);
+    }
+
+    static Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (lock) {
+            stats.put("coalesce", coalesce);
+            stats.put("queueLength", queue.size());
+            stats.put("posted", posted);
+            stats.put("looperMessages", looperMessages);
+            stats.put("poolSize", pool.size());
+            stats.put("poolMisses", poolMisses);
+            stats.put("maxBatch", maxBatch);
+        }
+        return stats;
+    }
+
+    private static Task obtain(int kind) {
+        Task task;
+        synchronized (lock) {
+            task = pool.poll();
+            if (task == null) {
+                poolMisses += 1;
+            }
+        }
+        if (task == null) {
+            task = new Task();
+        }
+        task.kind = kind;
+        task.postedAt = System.nanoTime();
+        return task;
+    }
+
+    private static void post(Task task) {
+        boolean schedule;
+        synchronized (lock) {
+            queue.add(task);
+            posted += 1;
+            schedule = !scheduled;
+            if (schedule) {
+                scheduled = true;
+                looperMessages += 1;
+            }
+        }
+        if (schedule) {
+            handler.post(drainTask);
+        }
+    }
+
+    // 在主线程执行。任务执行期间新提交的任务进入新的队列，由下一条 Looper 消息处理
+    private static void drain() {
+        ArrayDeque<Task> batch;
+        synchronized (lock) {
+            batch = queue;
+            queue = draining;
+            draining = batch;
+            scheduled = false;
+            maxBatch = Math.max(maxBatch, batch.size());
+        }
+        long now = System.nanoTime();
+        Task task;
+        while ((task = batch.poll()) != null) {
+            JPushMetrics.record(HOP, now - task.postedAt);
+            try {
+                task.execute();
+            } catch (RuntimeException e) {
+                // 与后台流水线一致，单个任务失败不影响同一批中的其他任务
+                Log.e(TAG, "main thread task failed", e);
+            }
+            task.clear();
+            synchronized (lock) {
+                if (pool.size() < MAX_POOL_SIZE) {
+                    pool.add(task);
+                }
+            }
+        }
+    }
+}
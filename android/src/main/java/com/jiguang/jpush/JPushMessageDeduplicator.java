@@ -0,0 +1,237 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于 msgId 的重复消息过滤。
+ * JPush 会经由自有通道与厂商通道重复投递同一条消息，这里记录最近 capacity 条消息的 msgId，重复的消息在下发到 dart 层之前丢弃。
+ * msgId 以 64 位摘要保存在环形数组与开放寻址的 long 哈希表中，检查与插入不产生额外对象。
+ * 默认关闭，需要通过 setMessageDeduplication 开启。
+ * 开启 persist 后最近的一部分 msgId 会写入 SharedPreferences，进程重启后继续生效；写入按条数或时间批量进行。
+ */
+class JPushMessageDeduplicator {
+
+    static final int KIND_MESSAGE = 1;
+    static final int KIND_NOTIFICATION = 2;
+
+    private static final String PREFS_NAME = "jpush_flutter_dedup";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_CAPACITY = "capacity";
+    private static final String KEY_PERSIST = "persist";
+    private static final String KEY_TAIL = "tail";
+
+    private static final int PERSISTED_TAIL = 64;
+    private static final int SAVE_BATCH = 16;
+    private static final long SAVE_DELAY = 1000;
+
+    private static JPushMessageDeduplicator sInstance;
+
+    static synchronized JPushMessageDeduplicator getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new JPushMessageDeduplicator(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final SharedPreferences prefs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable saveTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (JPushMessageDeduplicator.this) {
+                saveScheduled = false;
+                if (persist && unsaved > 0) {
+                    saveTail();
+                }
+            }
+        }
+    };
+
+    private boolean enabled;
+    private boolean persist;
+
+    private long[] ring;
+    private int head;
+    private int size;
+    private long[] table;
+    private int mask;
+
+    private long checked;
+    private long suppressed;
+
+    // 尚未写入 SharedPreferences 的 msgId 数
+    private int unsaved;
+    private boolean saveScheduled;
+
+    JPushMessageDeduplicator(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        enabled = prefs.getBoolean(KEY_ENABLED, false);
+        persist = prefs.getBoolean(KEY_PERSIST, false);
+        reset(prefs.getInt(KEY_CAPACITY, 512));
+        if (persist) {
+            restoreTail();
+        }
+    }
+
+    synchronized void configure(boolean enable, int capacity, boolean persist) {
+        this.enabled = enable;
+        this.persist = persist;
+        if (capacity > 0 && capacity != ring.length) {
+            reset(capacity);
+        }
+        SharedPreferences.Editor editor = prefs.edit()
+                .putBoolean(KEY_ENABLED, enabled)
+                .putBoolean(KEY_PERSIST, persist)
+                .putInt(KEY_CAPACITY, ring.length);
+        if (!persist) {
+            editor.remove(KEY_TAIL);
+            unsaved = 0;
+        }
+        editor.apply();
+    }
+
+    /**
+     * 返回该消息是否已经处理过；未处理过的消息会被记录下来。
+     */
+    synchronized boolean isDuplicate(int kind, String msgId) {
+        if (!enabled || msgId == null || msgId.isEmpty()) {
+            return false;
+        }
+        checked += 1;
+        long key = keyOf(kind, msgId);
+        if (contains(key)) {
+            suppressed += 1;
+            return true;
+        }
+        add(key);
+        if (persist) {
+            unsaved += 1;
+            if (unsaved >= SAVE_BATCH) {
+                saveTail();
+            } else if (!saveScheduled) {
+                saveScheduled = true;
+                handler.postDelayed(saveTask, SAVE_DELAY);
+            }
+        }
+        return false;
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("persist", persist);
+        stats.put("capacity", ring.length);
+        stats.put("size", size);
+        stats.put("checked", checked);
+        stats.put("suppressed", suppressed);
+        return stats;
+    }
+
+    private void reset(int capacity) {
+        ring = new long[capacity];
+        head = 0;
+        size = 0;
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+        table = new long[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private void add(long key) {
+        if (size == ring.length) {
+            remove(ring[head]);
+        } else {
+            size += 1;
+        }
+        ring[head] = key;
+        head = (head + 1) % ring.length;
+        int index = slot(key);
+        while (table[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        table[index] = key;
+    }
+
+    private boolean contains(long key) {
+        int index = slot(key);
+        while (table[index] != 0) {
+            if (table[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    // 线性探测表的删除：把后续同一探测链上的元素前移，保证查找不中断
+    private void remove(long key) {
+        int index = slot(key);
+        while (table[index] != key) {
+            if (table[index] == 0) {
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (table[next] != 0) {
+            int home = slot(table[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private static long keyOf(int kind, String msgId) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L ^ kind;
+        for (int i = 0; i < msgId.length(); i++) {
+            hash ^= msgId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private void saveTail() {
+        StringBuilder builder = new StringBuilder();
+        int count = Math.min(size, PERSISTED_TAIL);
+        for (int i = count; i > 0; i--) {
+            int index = (head - i + ring.length) % ring.length;
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(Long.toString(ring[index], Character.MAX_RADIX));
+        }
+        prefs.edit().putString(KEY_TAIL, builder.toString()).apply();
+        unsaved = 0;
+    }
+
+    private void restoreTail() {
+        String tail = prefs.getString(KEY_TAIL, null);
+        if (tail == null || tail.isEmpty()) {
+            return;
+        }
+        for (String value : tail.split(",")) {
+            try {
+                long key = Long.parseLong(value, Character.MAX_RADIX);
+                if (key != 0 && !contains(key)) {
+                    add(key);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 在下发到 dart 层之前执行的消息规则。
+ * dart 层注册的规则在原生层编译一次并保存在本地，JPushReceiver 在后台流水线中按顺序匹配，第一条命中的规则生效：
+ * drop 直接丢弃；route 以 onRuleEvent 下发给 dart 层指定的处理函数；collapse 对同一 collapseKey 取值在 window 毫秒内只下发第一条；
+ * background（仅自定义消息）交给后台回调处理。规则的匹配与丢弃都不需要启动 FlutterEngine。
+ * 条件作用于 extras 中的字段，extras 中没有时再查找 cn.jpush.android.EXTRA 的自定义字段，取值一律按字符串比较。
+ */
+class JPushMessageRules {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    static final String EVAL = "ruleEval";
+
+    static final int KIND_MESSAGE = 1;
+    static final int KIND_NOTIFICATION = 2;
+
+    static final int ACTION_DROP = 0;
+    static final int ACTION_ROUTE = 1;
+    static final int ACTION_COLLAPSE = 2;
+    static final int ACTION_BACKGROUND = 3;
+
+    private static final String[] ACTION_NAMES = {"drop", "route", "collapse", "background"};
+
+    private static final int OP_EQUALS = 0;
+    private static final int OP_NOT_EQUALS = 1;
+    private static final int OP_IN = 2;
+    private static final int OP_NOT_IN = 3;
+    private static final int OP_EXISTS = 4;
+    private static final int OP_MISSING = 5;
+    private static final int OP_PREFIX = 6;
+    private static final int OP_REGEX = 7;
+
+    private static final String[] OP_NAMES = {"equals", "notEquals", "in", "notIn", "exists", "missing", "prefix", "regex"};
+
+    private static final String PREFS_NAME = "jpush_flutter_rules";
+    private static final String KEY_RULES = "rules";
+
+    private static final long DEFAULT_WINDOW = 60 * 1000;
+    static final int MAX_COLLAPSE_KEYS = 1024;
+
+    private static final class Condition {
+        final String key;
+        final int op;
+        final String value;
+        final Set<String> values;
+        final Pattern pattern;
+
+        Condition(String key, int op, String value, Set<String> values, Pattern pattern) {
+            this.key = key;
+            this.op = op;
+            this.value = value;
+            this.values = values;
+            this.pattern = pattern;
+        }
+
+        boolean matches(Object actual) {
+            if (op == OP_EXISTS) {
+                return actual != null;
+            }
+            if (op == OP_MISSING) {
+                return actual == null;
+            }
+            String s = actual == null ? null : String.valueOf(actual);
+            switch (op) {
+                case OP_EQUALS:
+                    return value.equals(s);
+                case OP_NOT_EQUALS:
+                    return !value.equals(s);
+                case OP_IN:
+                    return s != null && values.contains(s);
+                case OP_NOT_IN:
+                    return s == null || !values.contains(s);
+                case OP_PREFIX:
+                    return s != null && s.startsWith(value);
+                default:
+                    return s != null && pattern.matcher(s).find();
+            }
+        }
+    }
+
+    private static final class Delivery {
+        final long at;
+        final long window;
+
+        Delivery(long at, long window) {
+            this.at = at;
+            this.window = window;
+        }
+    }
+
+    static final class Rule {
+        final String id;
+        final int kinds;
+        final List<Condition> conditions;
+        final int action;
+        final String handler;
+        final String collapseKey;
+        final long window;
+        final AtomicLong matches = new AtomicLong();
+        final AtomicLong collapsed = new AtomicLong();
+
+        Rule(String id, int kinds, List<Condition> conditions, int action, String handler, String collapseKey, long window) {
+            this.id = id;
+            this.kinds = kinds;
+            this.conditions = conditions;
+            this.action = action;
+            this.handler = handler;
+            this.collapseKey = collapseKey;
+            this.window = window;
+        }
+    }
+
+    private static JPushMessageRules sInstance;
+
+    static synchronized JPushMessageRules getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new JPushMessageRules(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final SharedPreferences prefs;
+
+    // 整体替换，不在原列表上修改
+    private volatile List<Rule> rules = Collections.emptyList();
+
+    // 由自身加锁保护，key 为 规则 id + collapseKey 取值，value 为最近一次下发的时间与所属规则的 window，按下发时间从旧到新排列
+    private final LinkedHashMap<String, Delivery> lastDelivered = new LinkedHashMap<>();
+
+    private final AtomicLong evaluated = new AtomicLong();
+
+    private JPushMessageRules(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String saved = prefs.getString(KEY_RULES, null);
+        if (saved != null) {
+            try {
+                rules = compile(toList(new JSONArray(saved)));
+            } catch (JSONException | IllegalArgumentException e) {
+                Log.e(TAG, "restore message rules failed", e);
+            }
+        }
+    }
+
+    /**
+     * 编译并替换全部规则，任意一条规则不合法时抛出 IllegalArgumentException，原有规则保持不变。
+     */
+    void configure(List<?> definitions) {
+        List<Rule> compiled = compile(definitions);
+        rules = compiled;
+        synchronized (lastDelivered) {
+            lastDelivered.clear();
+        }
+        if (compiled.isEmpty()) {
+            prefs.edit().remove(KEY_RULES).apply();
+        } else {
+            prefs.edit().putString(KEY_RULES, new JSONArray(definitions).toString()).apply();
+        }
+    }
+
+    /**
+     * 返回第一条命中的规则，没有命中时返回 null。可在任意线程调用。
+     */
+    Rule evaluate(int kind, Map<String, Object> extras) {
+        List<Rule> current = rules;
+        if (current.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        evaluated.incrementAndGet();
+        Map<String, Object> custom = null;
+        boolean customParsed = false;
+        Rule matched = null;
+        for (Rule rule : current) {
+            if ((rule.kinds & kind) == 0) {
+                continue;
+            }
+            boolean all = true;
+            for (Condition condition : rule.conditions) {
+                Object actual = extras.get(condition.key);
+                if (actual == null) {
+                    if (!customParsed) {
+                        custom = JPushExtrasParser.customFields(extras);
+                        customParsed = true;
+                    }
+                    actual = custom == null ? null : custom.get(condition.key);
+                }
+                if (!condition.matches(actual)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                rule.matches.incrementAndGet();
+                matched = rule;
+                break;
+            }
+        }
+        JPushMetrics.record(EVAL, System.nanoTime() - start);
+        return matched;
+    }
+
+    /**
+     * collapse 规则命中后调用，返回该事件是否应被合并（丢弃）。
+     */
+    boolean collapse(Rule rule, Map<String, Object> extras) {
+        Object value = null;
+        if (rule.collapseKey != null) {
+            value = extras.get(rule.collapseKey);
+            if (value == null) {
+                Map<String, Object> custom = JPushExtrasParser.customFields(extras);
+                value = custom == null ? null : custom.get(rule.collapseKey);
+            }
+        }
+        String key = rule.id + '\u0000' + value;
+        long now = System.currentTimeMillis();
+        synchronized (lastDelivered) {
+            Delivery last = lastDelivered.get(key);
+            if (last != null && now - last.at < rule.window) {
+                rule.collapsed.incrementAndGet();
+                return true;
+            }
+            // 先移除再放入，保持按下发时间排列
+            lastDelivered.remove(key);
+            if (lastDelivered.size() >= MAX_COLLAPSE_KEYS) {
+                evict(now);
+            }
+            lastDelivered.put(key, new Delivery(now, rule.window));
+        }
+        return false;
+    }
+
+    // 先淘汰已超出各自规则 window 的记录，仍然已满时淘汰最早下发的记录
+    private void evict(long now) {
+        Iterator<Delivery> it = lastDelivered.values().iterator();
+        while (it.hasNext()) {
+            Delivery delivery = it.next();
+            if (now - delivery.at >= delivery.window) {
+                it.remove();
+            }
+        }
+        it = lastDelivered.values().iterator();
+        while (lastDelivered.size() >= MAX_COLLAPSE_KEYS && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    Map<String, Object> stats() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Rule rule : rules) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", rule.id);
+            item.put("action", ACTION_NAMES[rule.action]);
+            item.put("matches", rule.matches.get());
+            item.put("collapsed", rule.collapsed.get());
+            list.add(item);
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rules", list);
+        stats.put("evaluated", evaluated.get());
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Rule> compile(List<?> definitions) {
+        if (definitions == null || definitions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Rule> compiled = new ArrayList<>(definitions.size());
+        Set<String> ids = new HashSet<>();
+        for (Object item : definitions) {
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("rule must be a map");
+            }
+            Map<String, Object> definition = (Map<String, Object>) item;
+            Object id = definition.get("id");
+            if (!(id instanceof String) || ((String) id).isEmpty()) {
+                throw new IllegalArgumentException("rule id is required");
+            }
+            if (!ids.add((String) id)) {
+                throw new IllegalArgumentException("duplicate rule id " + id);
+            }
+
+            String on = optString((String) id, definition, "on");
+            int kinds;
+            if (on == null || "all".equals(on)) {
+                kinds = KIND_MESSAGE | KIND_NOTIFICATION;
+            } else if ("message".equals(on)) {
+                kinds = KIND_MESSAGE;
+            } else if ("notification".equals(on)) {
+                kinds = KIND_NOTIFICATION;
+            } else {
+                throw new IllegalArgumentException(id + ": unknown on " + on);
+            }
+
+            String actionName = optString((String) id, definition, "action");
+            int action = actionName == null ? -1 : indexOf(ACTION_NAMES, actionName);
+            if (action < 0) {
+                throw new IllegalArgumentException(id + ": unknown action " + actionName);
+            }
+            String handler = optString((String) id, definition, "handler");
+            if (action == ACTION_ROUTE && (handler == null || handler.isEmpty())) {
+                throw new IllegalArgumentException(id + ": route requires handler");
+            }
+            if (action == ACTION_BACKGROUND && kinds != KIND_MESSAGE) {
+                throw new IllegalArgumentException(id + ": background only applies to messages");
+            }
+            String collapseKey = optString((String) id, definition, "collapseKey");
+            Object window = definition.get("window");
+            if (window != null && !(window instanceof Number)) {
+                throw new IllegalArgumentException(id + ": window must be a number");
+            }
+
+            List<Condition> conditions = new ArrayList<>();
+            Object when = definition.get("when");
+            if (when != null && !(when instanceof List)) {
+                throw new IllegalArgumentException(id + ": when must be a list");
+            }
+            if (when != null) {
+                for (Object condition : (List<Object>) when) {
+                    if (!(condition instanceof Map)) {
+                        throw new IllegalArgumentException(id + ": condition must be a map");
+                    }
+                    conditions.add(compileCondition((String) id, (Map<String, Object>) condition));
+                }
+            }
+            compiled.add(new Rule((String) id, kinds, conditions, action, handler, collapseKey,
+                    window == null ? DEFAULT_WINDOW : ((Number) window).longValue()));
+        }
+        return Collections.unmodifiableList(compiled);
+    }
+
+    private static Condition compileCondition(String id, Map<String, Object> definition) {
+        String key = optString(id, definition, "key");
+        if (key == null) {
+            throw new IllegalArgumentException(id + ": condition key is required");
+        }
+        String opName = optString(id, definition, "op");
+        int op = opName == null ? OP_EQUALS : indexOf(OP_NAMES, opName);
+        if (op < 0) {
+            throw new IllegalArgumentException(id + ": unknown op " + opName);
+        }
+        Object value = definition.get("value");
+        if (op == OP_EXISTS || op == OP_MISSING) {
+            return new Condition(key, op, null, null, null);
+        }
+        if (op == OP_IN || op == OP_NOT_IN) {
+            if (!(value instanceof Collection)) {
+                throw new IllegalArgumentException(id + ": " + opName + " requires a list value");
+            }
+            Set<String> values = new HashSet<>();
+            for (Object item : (Collection<?>) value) {
+                values.add(String.valueOf(item));
+            }
+            return new Condition(key, op, null, values, null);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException(id + ": condition value is required");
+        }
+        String s = String.valueOf(value);
+        if (op == OP_REGEX) {
+            try {
+                return new Condition(key, op, s, null, Pattern.compile(s));
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException(id + ": " + e.getDescription());
+            }
+        }
+        return new Condition(key, op, s, null, null);
+    }
+
+    private static String optString(String id, Map<String, Object> definition, String key) {
+        Object value = definition.get(key);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException(id + ": " + key + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> toList(JSONArray array) throws JSONException {
+        return (List<Map<String, Object>>) JPushJson.fromJson(array);
+    }
+}
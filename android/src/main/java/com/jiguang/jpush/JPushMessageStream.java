@@ -0,0 +1,183 @@
+package com.jiguang.jpush;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+
+/**
+ * 自定义消息的二进制事件流。
+ * 开启后自定义消息不再经过 MethodChannel 的 onReceiveMessage，而是编码为紧凑的二进制格式，
+ * 通过独立的 BasicMessageChannel 下发，dart 层以 Stream&lt;JPushMessage&gt; 的形式接收。
+ * <p>
+ * 编码格式（小端）：[u8 版本][str msgId][str message][i32 extras 数量]{[str key][u8 类型][值]}，
+ * 其中 str 为 [i32 字节数（-1 表示 null）][UTF-8]，值为 [u8 类型][数据]：0 null，1 字符串，2 i32，
+ * 3 Map（[i32 数量]{[str key][值]}），4 List（[i32 数量]{[值]}），5 i64，6 f64，7 bool（u8）。
+ * 解析后的 EXTRA 直接按 Map 编码，dart 层不需要再 jsonDecode。
+ * 编码复用同一个 direct ByteBuffer，BinaryMessenger 发送时会同步拷贝，因此只能在主线程调用。
+ */
+class JPushMessageStream {
+
+    static final String CHANNEL_NAME = "jpush/message_stream";
+
+    private static final byte VERSION = 2;
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_MAP = 3;
+    private static final byte TYPE_LIST = 4;
+    private static final byte TYPE_LONG = 5;
+    private static final byte TYPE_DOUBLE = 6;
+    private static final byte TYPE_BOOL = 7;
+
+    private final BasicMessageChannel<ByteBuffer> channel;
+    private final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder();
+    private ByteBuffer buffer = allocate(4 * 1024);
+
+    private boolean enabled = false;
+
+    private long messagesSent;
+    private long bytesSent;
+    private long encodeNanos;
+    private long bufferGrowths;
+
+    JPushMessageStream(BinaryMessenger messenger) {
+        channel = new BasicMessageChannel<>(messenger, CHANNEL_NAME, BinaryCodec.INSTANCE);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    void send(Map<String, Object> msg) {
+        long start = System.nanoTime();
+        Map<String, Object> extras = (Map<String, Object>) msg.get("extras");
+        String msgId = extras == null ? null : (String) extras.get(JPushInterface.EXTRA_MSG_ID);
+        String message = (String) msg.get("message");
+
+        while (!encode(msgId, message, extras)) {
+            buffer = allocate(buffer.capacity() * 2);
+            bufferGrowths += 1;
+        }
+        encodeNanos += System.nanoTime() - start;
+        messagesSent += 1;
+        bytesSent += buffer.position();
+
+        // BinaryCodec 以 position 作为消息长度，不需要 flip
+        channel.send(buffer);
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("messagesSent", messagesSent);
+        stats.put("bytesSent", bytesSent);
+        stats.put("avgEncodeMicros", messagesSent == 0 ? 0 : encodeNanos / messagesSent / 1000);
+        stats.put("bufferCapacity", buffer.capacity());
+        stats.put("bufferGrowths", bufferGrowths);
+        return stats;
+    }
+
+    // 缓冲区不足时返回 false，由调用方扩容后重试
+    boolean encode(String msgId, String message, Map<String, Object> extras) {
+        buffer.clear();
+        try {
+            buffer.put(VERSION);
+            if (!putString(msgId) || !putString(message)) {
+                return false;
+            }
+            buffer.putInt(extras == null ? 0 : extras.size());
+            if (extras == null) {
+                return true;
+            }
+            for (Map.Entry<String, Object> entry : extras.entrySet()) {
+                if (!putString(entry.getKey()) || !putValue(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (BufferOverflowException e) {
+            return false;
+        }
+    }
+
+    private boolean putValue(Object value) {
+        if (value == null) {
+            buffer.put(TYPE_NULL);
+        } else if (value instanceof Integer) {
+            buffer.put(TYPE_INT);
+            buffer.putInt((Integer) value);
+        } else if (value instanceof Long) {
+            buffer.put(TYPE_LONG);
+            buffer.putLong((Long) value);
+        } else if (value instanceof Number) {
+            buffer.put(TYPE_DOUBLE);
+            buffer.putDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            buffer.put(TYPE_BOOL);
+            buffer.put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof Map) {
+            buffer.put(TYPE_MAP);
+            Map<?, ?> map = (Map<?, ?>) value;
+            buffer.putInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!putString(String.valueOf(entry.getKey())) || !putValue(entry.getValue())) {
+                    return false;
+                }
+            }
+        } else if (value instanceof Collection) {
+            buffer.put(TYPE_LIST);
+            Collection<?> list = (Collection<?>) value;
+            buffer.putInt(list.size());
+            for (Object item : list) {
+                if (!putValue(item)) {
+                    return false;
+                }
+            }
+        } else {
+            buffer.put(TYPE_STRING);
+            return putString(value.toString());
+        }
+        return true;
+    }
+
+    private boolean putString(String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return true;
+        }
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+        int start = buffer.position();
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(value), buffer, true);
+        if (result.isOverflow()) {
+            return false;
+        }
+        if (encoder.flush(buffer).isOverflow()) {
+            return false;
+        }
+        buffer.putInt(lengthPosition, buffer.position() - start);
+        return true;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
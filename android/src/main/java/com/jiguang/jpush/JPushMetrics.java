@@ -0,0 +1,166 @@
+package com.jiguang.jpush;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 插件内部的指标：计数器、耗时直方图与 gauge。
+ * 阶段耗时覆盖从 SDK 广播到 dart 回调的整个链路：receive 广播到达到后台流水线开始处理，
+ * broadcastUnparcel 反序列化广播 Intent 中的 Bundle，parse 解析 extras，build 构造下发数据，
+ * mainThreadHop 等待主线程，deliver 主线程下发，
+ * channelInvoke 从 invokeMethod 到 dart 回调执行完，callbackResolve 从注册待回调请求到 SDK 回调，
+ * laneInteractive / laneDefault / laneBulk 各下发通道从事件到达插件到 dart 回调执行完；
+ * 此外每个 onMethodCall 方法都有单独的耗时直方图。
+ * 记录只涉及原子操作，名称首次出现之后不再分配对象，可在任意线程调用。
+ */
+final class JPushMetrics {
+
+    static final String RECEIVE = "receive";
+    static final String BROADCAST_UNPARCEL = "broadcastUnparcel";
+    static final String CHANNEL_INVOKE = "channelInvoke";
+    static final String CALLBACK_RESOLVE = "callbackResolve";
+
+    interface Gauge {
+        long value();
+    }
+
+    /**
+     * 以 2 的幂划分桶的耗时直方图（纳秒），分位数取所在桶的上界。
+     */
+    private static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            // 第 i 个桶记录 [2^i, 2^(i+1)) 纳秒
+            buckets.incrementAndGet(nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos));
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long current;
+            do {
+                current = max.get();
+            } while (nanos > current && !max.compareAndSet(current, nanos));
+        }
+
+        Map<String, Object> snapshot() {
+            long n = count.get();
+            Map<String, Object> map = new HashMap<>();
+            map.put("count", n);
+            map.put("totalMicros", total.get() / 1000);
+            map.put("avgMicros", n == 0 ? 0 : total.get() / n / 1000);
+            map.put("maxMicros", max.get() / 1000);
+            map.put("p50Micros", percentile(n, 0.5) / 1000);
+            map.put("p90Micros", percentile(n, 0.9) / 1000);
+            map.put("p99Micros", percentile(n, 0.99) / 1000);
+            return map;
+        }
+
+        private long percentile(long n, double p) {
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * p);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1, max.get());
+                }
+            }
+            return max.get();
+        }
+    }
+
+    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> stages = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> methods = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    private JPushMetrics() {
+    }
+
+    static void increment(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    static void record(String stage, long nanos) {
+        histogram(stages, stage).record(nanos);
+    }
+
+    static void recordMethod(String method, long nanos) {
+        histogram(methods, method).record(nanos);
+    }
+
+    /**
+     * 返回单个阶段的直方图快照，没有记录时返回 null。
+     */
+    static Map<String, Object> stage(String name) {
+        Histogram histogram = stages.get(name);
+        return histogram == null ? null : histogram.snapshot();
+    }
+
+    static void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    static Map<String, Object> snapshot() {
+        Map<String, Object> counterMap = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            counterMap.put(entry.getKey(), entry.getValue().get());
+        }
+        Map<String, Object> gaugeMap = new HashMap<>();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            gaugeMap.put(entry.getKey(), entry.getValue().value());
+        }
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("counters", counterMap);
+        snapshot.put("stages", snapshot(stages));
+        snapshot.put("methods", snapshot(methods));
+        snapshot.put("gauges", gaugeMap);
+        return snapshot;
+    }
+
+    static void reset() {
+        counters.clear();
+        stages.clear();
+        methods.clear();
+    }
+
+    private static Map<String, Object> snapshot(Map<String, Histogram> histograms) {
+        Map<String, Object> map = new HashMap<>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return map;
+    }
+
+    private static Histogram histogram(ConcurrentHashMap<String, Histogram> map, String name) {
+        Histogram histogram = map.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = map.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,285 @@
+package com.jiguang.jpush;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+
+/**
+ * 高频通知的分组汇总。
+ * 开启后按 extras 中 groupKey 字段的值对 window 毫秒内收到的通知分组：窗口结束时组内只有一条通知则照常下发；
+ * 多于一条时清除 SDK 逐条展示的通知，改为展示一条汇总通知，并向 dart 层只下发一个 onReceiveNotificationGroup 事件。
+ * groupKey 先在 extras 顶层查找，再在 cn.jpush.android.EXTRA 的自定义字段中查找，找不到的通知不参与分组。
+ * 汇总通知的摘要文字（{count} 替换为通知条数）与 Android 8.0 以上的通知渠道名称可以配置。
+ * 配置保存在 SharedPreferences 中，dart 层未启动时收到的通知同样会被汇总。所有方法都需要在主线程调用。
+ */
+class JPushNotificationAggregator {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    private static final String PREFS_NAME = "jpush_flutter_aggregation";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_GROUP_KEY = "groupKey";
+    private static final String KEY_WINDOW = "window";
+    private static final String KEY_SUMMARY_TEXT = "summaryText";
+    private static final String KEY_CHANNEL_NAME = "channelName";
+
+    static final String DEFAULT_SUMMARY_TEXT = "{count} notifications";
+    static final String DEFAULT_CHANNEL_NAME = "Notifications";
+
+    private static final String CHANNEL_ID = "jpush_flutter_summary";
+    // compileSdkVersion 28 中没有 PendingIntent.FLAG_IMMUTABLE
+    private static final int FLAG_IMMUTABLE = 1 << 26;
+    // 事件中最多携带的通知条数，超出的只计数
+    private static final int MAX_GROUP_EVENTS = 100;
+    private static final int SUMMARY_LINES = 5;
+
+    interface Listener {
+        void onNotification(Map<String, Object> notification);
+
+        void onNotificationGroup(Map<String, Object> group);
+    }
+
+    private static final class Group {
+        final String key;
+        final List<Map<String, Object>> notifications = new ArrayList<>();
+        final List<Integer> notificationIds = new ArrayList<>();
+        int count;
+
+        Group(String key) {
+            this.key = key;
+        }
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+
+    private Context context;
+    private SharedPreferences prefs;
+
+    private boolean enabled;
+    private String groupKey;
+    private long window;
+    private String summaryText;
+    private String channelName;
+
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+
+    private long rawEvents;
+    private long passedThrough;
+    private long aggregatedEvents;
+    private long aggregatedNotifications;
+    private long summariesPosted;
+
+    JPushNotificationAggregator(Listener listener) {
+        this.listener = listener;
+    }
+
+    void setContext(Context context) {
+        if (prefs != null) {
+            return;
+        }
+        this.context = context.getApplicationContext();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        enabled = prefs.getBoolean(KEY_ENABLED, false);
+        groupKey = prefs.getString(KEY_GROUP_KEY, null);
+        window = prefs.getLong(KEY_WINDOW, 3000);
+        summaryText = prefs.getString(KEY_SUMMARY_TEXT, DEFAULT_SUMMARY_TEXT);
+        channelName = prefs.getString(KEY_CHANNEL_NAME, DEFAULT_CHANNEL_NAME);
+    }
+
+    /**
+     * summaryText、channelName 为 null 或空时保持原值。
+     */
+    void configure(boolean enable, String groupKey, long window, String summaryText, String channelName) {
+        this.enabled = enable;
+        this.groupKey = groupKey;
+        if (window > 0) {
+            this.window = window;
+        }
+        if (summaryText != null && !summaryText.isEmpty()) {
+            this.summaryText = summaryText;
+        }
+        if (channelName != null && !channelName.isEmpty()) {
+            this.channelName = channelName;
+        }
+        prefs.edit()
+                .putBoolean(KEY_ENABLED, enabled)
+                .putString(KEY_GROUP_KEY, groupKey)
+                .putLong(KEY_WINDOW, this.window)
+                .putString(KEY_SUMMARY_TEXT, this.summaryText)
+                .putString(KEY_CHANNEL_NAME, this.channelName)
+                .apply();
+        if (!enabled) {
+            flushAll();
+        }
+    }
+
+    /**
+     * 收到通知时调用，参与分组时返回 true，由窗口结束时统一下发。
+     */
+    @SuppressWarnings("unchecked")
+    boolean offer(Map<String, Object> notification) {
+        rawEvents += 1;
+        if (!enabled || groupKey == null || groupKey.isEmpty()) {
+            passedThrough += 1;
+            return false;
+        }
+        Map<String, Object> extras = (Map<String, Object>) notification.get("extras");
+        String key = groupOf(extras);
+        if (key == null) {
+            passedThrough += 1;
+            return false;
+        }
+
+        Group group = groups.get(key);
+        if (group == null) {
+            group = new Group(key);
+            groups.put(key, group);
+            final Group flushing = group;
+            handler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    if (groups.get(flushing.key) == flushing) {
+                        groups.remove(flushing.key);
+                        flush(flushing);
+                    }
+                }
+            }, window);
+        }
+        group.count += 1;
+        if (group.notifications.size() < MAX_GROUP_EVENTS) {
+            group.notifications.add(notification);
+        }
+        Object id = extras.get(JPushInterface.EXTRA_NOTIFICATION_ID);
+        if (id instanceof Integer) {
+            group.notificationIds.add((Integer) id);
+        }
+        return true;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("groupKey", groupKey);
+        stats.put("window", window);
+        stats.put("summaryText", summaryText);
+        stats.put("channelName", channelName);
+        stats.put("pendingGroups", groups.size());
+        stats.put("rawEvents", rawEvents);
+        stats.put("passedThrough", passedThrough);
+        stats.put("aggregatedEvents", aggregatedEvents);
+        stats.put("aggregatedNotifications", aggregatedNotifications);
+        stats.put("summariesPosted", summariesPosted);
+        return stats;
+    }
+
+    private void flushAll() {
+        List<Group> pending = new ArrayList<>(groups.values());
+        groups.clear();
+        for (Group group : pending) {
+            flush(group);
+        }
+    }
+
+    private void flush(Group group) {
+        if (group.count == 1) {
+            passedThrough += 1;
+            listener.onNotification(group.notifications.get(0));
+            return;
+        }
+        aggregatedEvents += 1;
+        aggregatedNotifications += group.count;
+        for (Integer id : group.notificationIds) {
+            JPushInterface.clearNotificationById(context, id);
+        }
+        postSummary(group);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("groupKey", groupKey);
+        event.put("group", group.key);
+        event.put("count", group.count);
+        event.put("notifications", group.notifications);
+        listener.onNotificationGroup(event);
+    }
+
+    private void postSummary(Group group) {
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager == null) {
+            return;
+        }
+        Notification.Builder builder;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, channelName,
+                    NotificationManager.IMPORTANCE_DEFAULT));
+            builder = new Notification.Builder(context, CHANNEL_ID);
+        } else {
+            builder = new Notification.Builder(context);
+        }
+
+        Map<String, Object> latest = group.notifications.get(group.notifications.size() - 1);
+        Notification.InboxStyle style = new Notification.InboxStyle();
+        int lines = Math.min(group.notifications.size(), SUMMARY_LINES);
+        for (int i = group.notifications.size() - 1; i >= group.notifications.size() - lines; i--) {
+            Object alert = group.notifications.get(i).get("alert");
+            if (alert != null) {
+                style.addLine(alert.toString());
+            }
+        }
+        String summary = summaryText.replace("{count}", String.valueOf(group.count));
+        style.setSummaryText(summary);
+
+        builder.setSmallIcon(context.getApplicationInfo().icon)
+                .setContentTitle((String) latest.get("title"))
+                .setContentText(summary)
+                .setNumber(group.count)
+                .setStyle(style)
+                .setAutoCancel(true)
+                .setOnlyAlertOnce(true);
+
+        Intent launch = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+        if (launch != null) {
+            int flags = PendingIntent.FLAG_UPDATE_CURRENT | (Build.VERSION.SDK_INT >= 23 ? FLAG_IMMUTABLE : 0);
+            builder.setContentIntent(PendingIntent.getActivity(context, summaryId(group.key), launch, flags));
+        }
+        // 同一分组的汇总通知复用同一个 id，后续窗口直接更新
+        manager.notify(summaryId(group.key), builder.build());
+        summariesPosted += 1;
+        if (JPushPlugin.debugLogging) {
+            Log.d(TAG, "post summary notification, group=" + group.key + " count=" + group.count);
+        }
+    }
+
+    private static int summaryId(String group) {
+        return ("jpush_flutter_group:" + group).hashCode();
+    }
+
+    private String groupOf(Map<String, Object> extras) {
+        if (extras == null) {
+            return null;
+        }
+        Object value = extras.get(groupKey);
+        if (value == null) {
+            Map<String, Object> custom = JPushExtrasParser.customFields(extras);
+            if (custom != null) {
+                value = custom.get(groupKey);
+            }
+        }
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package com.jiguang.jpush;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import cn.jpush.android.api.JPushInterface;
+
+/**
+ * 接收事件的延迟加载。
+ * 开启后 onReceiveNotification / onReceiveMessage 只下发精简的事件头：除 extras 外的字段原样保留，
+ * extras 只保留 msgId 与配置的 headerKeys（先在 extras 顶层查找，再在 cn.jpush.android.EXTRA 的自定义字段中查找），
+ * 并带上 lazy: true。完整数据按 msgId 保存在容量有限的 LRU 表中，dart 层需要时通过 getEventPayload 获取。
+ * 没有 msgId 的事件照常完整下发。所有方法都需要在主线程调用。
+ */
+class JPushPayloadStore {
+
+    private boolean enabled = false;
+    private Set<String> headerKeys = new HashSet<>();
+    private int capacity = 256;
+
+    private final LinkedHashMap<String, Map<String, Object>> payloads =
+            new LinkedHashMap<String, Map<String, Object>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {
+                    if (size() > capacity) {
+                        evictions += 1;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private long stored;
+    private long evictions;
+    private long fetches;
+    private long hits;
+
+    void configure(boolean enable, List<String> headerKeys, int capacity) {
+        this.enabled = enable;
+        this.headerKeys = headerKeys == null ? new HashSet<String>() : new HashSet<>(headerKeys);
+        if (capacity > 0) {
+            this.capacity = capacity;
+            while (payloads.size() > capacity) {
+                String eldest = payloads.keySet().iterator().next();
+                payloads.remove(eldest);
+                evictions += 1;
+            }
+        }
+        if (!enable) {
+            payloads.clear();
+        }
+    }
+
+    /**
+     * 返回实际下发的数据：开启时保存完整数据并返回事件头，否则原样返回。
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> offer(Map<String, Object> payload) {
+        if (!enabled) {
+            return payload;
+        }
+        Map<String, Object> extras = (Map<String, Object>) payload.get("extras");
+        Object msgId = extras == null ? null : extras.get(JPushInterface.EXTRA_MSG_ID);
+        if (!(msgId instanceof String) || ((String) msgId).isEmpty()) {
+            return payload;
+        }
+        // 多个引擎下发同一事件时只保存一次
+        if (payloads.get(msgId) != payload) {
+            payloads.put((String) msgId, payload);
+            stored += 1;
+        }
+
+        Map<String, Object> header = new HashMap<>();
+        for (Map.Entry<String, Object> entry : payload.entrySet()) {
+            if (!"extras".equals(entry.getKey())) {
+                header.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Map<String, Object> headerExtras = new HashMap<>();
+        headerExtras.put(JPushInterface.EXTRA_MSG_ID, msgId);
+        if (!headerKeys.isEmpty()) {
+            Map<String, Object> custom = JPushExtrasParser.customFields(extras);
+            for (String key : headerKeys) {
+                if (extras.containsKey(key)) {
+                    headerExtras.put(key, extras.get(key));
+                } else if (custom != null && custom.containsKey(key)) {
+                    headerExtras.put(key, custom.get(key));
+                }
+            }
+        }
+        header.put("extras", headerExtras);
+        header.put("msgId", msgId);
+        header.put("lazy", true);
+        return header;
+    }
+
+    /**
+     * 返回 msgId 对应的完整数据，已被淘汰或不存在时返回 null。
+     */
+    Map<String, Object> get(String msgId) {
+        fetches += 1;
+        Map<String, Object> payload = msgId == null ? null : payloads.get(msgId);
+        if (payload != null) {
+            hits += 1;
+        }
+        return payload;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", payloads.size());
+        stats.put("capacity", capacity);
+        stats.put("stored", stored);
+        stats.put("evictions", evictions);
+        stats.put("fetches", fetches);
+        stats.put("hits", hits);
+        stats.put("hitRate", fetches == 0 ? 0.0 : (double) hits / fetches);
+        return stats;
+    }
+}
@@ -0,0 +1,131 @@
+package com.jiguang.jpush;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * tag/alias 等异步操作的待回调请求表。
+ * sequence 由原子计数器生成，以 sequence 为下标在定长槽位表中开放寻址存放，读写均为 CAS，
+ * 可在平台线程注册、在 SDK 回调线程取出。超过 deadline 未回调的请求会以 timeout 错误结束。
+ */
+class JPushPendingRequests {
+
+    static final String ERROR_TIMEOUT = "timeout";
+    static final String ERROR_BUSY = "busy";
+
+    private static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+    private static final long SWEEP_INTERVAL = 1000;
+
+    private static final class Entry {
+        final int sequence;
+        final Result result;
+        final long deadline;
+        final long registeredAt = System.nanoTime();
+
+        Entry(int sequence, Result result, long deadline) {
+            this.sequence = sequence;
+            this.result = result;
+            this.deadline = deadline;
+        }
+    }
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicBoolean sweepScheduled = new AtomicBoolean();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable sweepTask = new Runnable() {
+        @Override
+        public void run() {
+            sweepScheduled.set(false);
+            sweep();
+        }
+    };
+
+    private volatile long timeout = 30 * 1000;
+
+    void setTimeout(long timeout) {
+        if (timeout > 0) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * 注册一个待回调请求，返回分配给它的 sequence；表已满时返回 -1。
+     */
+    int register(Result result) {
+        int seq = sequence.incrementAndGet() & Integer.MAX_VALUE;
+        Entry entry = new Entry(seq, result, SystemClock.elapsedRealtime() + timeout);
+        for (int i = 0; i < CAPACITY; i++) {
+            int index = (seq + i) & MASK;
+            if (slots.compareAndSet(index, null, entry)) {
+                inFlight.incrementAndGet();
+                scheduleSweep();
+                return seq;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 取出并移除 sequence 对应的回调，同一请求只会被取出一次。
+     */
+    Result take(int seq) {
+        for (int i = 0; i < CAPACITY; i++) {
+            int index = (seq + i) & MASK;
+            Entry entry = slots.get(index);
+            if (entry != null && entry.sequence == seq && slots.compareAndSet(index, entry, null)) {
+                inFlight.decrementAndGet();
+                JPushMetrics.record(JPushMetrics.CALLBACK_RESOLVE, System.nanoTime() - entry.registeredAt);
+                return entry.result;
+            }
+        }
+        return null;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("inFlight", inFlight.get());
+        stats.put("timedOut", timedOut.get());
+        stats.put("timeout", timeout);
+        return stats;
+    }
+
+    private void scheduleSweep() {
+        if (sweepScheduled.compareAndSet(false, true)) {
+            handler.postDelayed(sweepTask, SWEEP_INTERVAL);
+        }
+    }
+
+    // 在主线程执行，超时的请求直接回调错误
+    private void sweep() {
+        long now = SystemClock.elapsedRealtime();
+        for (int i = 0; i < CAPACITY; i++) {
+            Entry entry = slots.get(i);
+            if (entry != null && entry.deadline <= now && slots.compareAndSet(i, entry, null)) {
+                inFlight.decrementAndGet();
+                timedOut.incrementAndGet();
+                entry.result.error(ERROR_TIMEOUT, "sequence " + entry.sequence + " timed out", null);
+            }
+        }
+        if (inFlight.get() > 0) {
+            scheduleSweep();
+        }
+    }
+}
@@ -3,14 +3,10 @@ package com.jiguang.jpush;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
-import org.json.JSONObject;
-
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -18,7 +14,6 @@ import java.util.Map;
 import java.util.Set;
 
 import cn.jpush.android.api.JPushInterface;
-import cn.jpush.android.data.JPushLocalNotification;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
@@ -33,25 +28,200 @@ public class JPushPlugin implements FlutterPlugin, MethodCallHandler {
 
     private static String TAG = "| JPUSH | Flutter | Android | ";
 
+    // 最晚挂载的引擎，仅为兼容保留；事件按 engines 的路由规则分发到各个引擎
     public static JPushPlugin instance;
+    static final JPushEngineRegistry engines = new JPushEngineRegistry();
+
+    // 没有挂载的引擎时用于写入事件日志
+    private static Context appContext;
 
-    static List<Map<String, Object>> openNotificationCache = new ArrayList<>();
+    // 调试日志开关，由 setup 的 debug 参数控制；关闭时日志语句不会拼接字符串
+    static volatile boolean debugLogging = false;
 
     private boolean dartIsReady = false;
     private boolean jpushDidinit = false;
 
-    private List<Result> getRidCache;
-
     private Context context;
     private MethodChannel channel;
-    public Map<Integer, Result> callbackMap;
-    private int sequence;
+    private JPushMessageStream messageStream;
+    static final JPushPendingRequests pendingRequests = new JPushPendingRequests();
+    static final JPushTagAliasCache tagAliasCache = new JPushTagAliasCache();
+    static final JPushTagAliasQueue tagAliasQueue = new JPushTagAliasQueue(pendingRequests, tagAliasCache);
+    static final JPushRegistrationIdResolver registrationIdResolver = new JPushRegistrationIdResolver();
+    static final JPushPayloadStore payloadStore = new JPushPayloadStore();
+    static final JPushLocalNotificationScheduler localNotificationScheduler = new JPushLocalNotificationScheduler();
+    static final JPushNotificationAggregator notificationAggregator = new JPushNotificationAggregator(
+            new JPushNotificationAggregator.Listener() {
+                @Override
+                public void onNotification(Map<String, Object> notification) {
+                    deliverNotificationReceive(notification);
+                }
+
+                @Override
+                public void onNotificationGroup(Map<String, Object> group) {
+                    dispatchToEngines("onReceiveNotificationGroup", group);
+                }
+            });
+
+    static {
+        registrationIdResolver.setListener(new JPushRegistrationIdResolver.Listener() {
+            @Override
+            public void onRegistrationIdChanged(String rid) {
+                Map<String, Object> event = new HashMap<>();
+                event.put("registrationId", rid);
+                dispatchToEngines("onRegistrationIdChanged", event);
+            }
+        });
+        JPushMetrics.gauge("pendingRequests", new JPushMetrics.Gauge() {
+            @Override
+            public long value() {
+                return pendingRequests.inFlight();
+            }
+        });
+        JPushMetrics.gauge("eventBufferDepth", new JPushMetrics.Gauge() {
+            @Override
+            public long value() {
+                long depth = 0;
+                for (JPushPlugin engine : engines.engines()) {
+                    depth += engine.eventBuffer.size();
+                }
+                return depth;
+            }
+        });
+        JPushMetrics.gauge("eventsInFlight", new JPushMetrics.Gauge() {
+            @Override
+            public long value() {
+                long inFlight = 0;
+                for (JPushPlugin engine : engines.engines()) {
+                    inFlight += engine.eventsInFlight;
+                }
+                return inFlight;
+            }
+        });
+    }
+
+    private final JPushEventBatcher eventBatcher;
+    private final JPushInitializer initializer = new JPushInitializer(new JPushInitializer.Callback() {
+        @Override
+        public void onInitialized(String registrationId) {
+            registrationIdResolver.onRegistrationId(registrationId);
+        }
+
+        @Override
+        public void replay(MethodCall call, Result result) {
+            onMethodCall(call, result);
+        }
+    });
+    private final JPushEventBuffer eventBuffer = new JPushEventBuffer();
+    private final JPushDeliveryLanes lanes = new JPushDeliveryLanes(new Runnable() {
+        @Override
+        public void run() {
+            drainEventBuffer();
+        }
+    });
+
+    private boolean attached = false;
+    private boolean eventHandlerReady = false;
+    private int eventsInFlight = 0;
+    private int maxEventsInFlight = 64;
+
+    private int engineId;
+    private long eventsDelivered;
+    private long callbacksDropped;
+
+    // dart 回调执行完后的应答，同时记录 channel 调用的往返耗时与各通道从到达到回调完成的耗时
+    private final class EventAck implements Result {
+        private final long sentAt = System.nanoTime();
+        private final int lane;
+        private final long arrivedAt;
+        private final List<Map<String, Object>> batch;
+        private final List<Long> arrivals;
+        private final boolean hasBulk;
+
+        EventAck(int lane, long arrivedAt) {
+            this.lane = lane;
+            this.arrivedAt = arrivedAt;
+            this.batch = null;
+            this.arrivals = null;
+            this.hasBulk = false;
+        }
+
+        EventAck(List<Map<String, Object>> batch, List<Long> arrivals) {
+            this.lane = JPushDeliveryLanes.DEFAULT;
+            this.arrivedAt = 0;
+            this.batch = batch;
+            this.arrivals = arrivals;
+            boolean bulk = false;
+            for (Map<String, Object> event : batch) {
+                if (JPushDeliveryLanes.laneOf((String) event.get("method")) == JPushDeliveryLanes.BULK) {
+                    bulk = true;
+                    break;
+                }
+            }
+            this.hasBulk = bulk;
+        }
+
+        @Override
+        public void success(Object o) {
+            onEventAck(this);
+        }
+
+        @Override
+        public void error(String s, String s1, Object o) {
+            onEventAck(this);
+        }
+
+        @Override
+        public void notImplemented() {
+            onEventAck(this);
+        }
+    }
+
+    // tag/alias 请求的回调归属于发起请求的引擎，引擎卸载后不再回调，不影响其他引擎的请求
+    private final class EngineResult implements Result {
+        private final Result result;
+
+        EngineResult(Result result) {
+            this.result = result;
+        }
+
+        @Override
+        public void success(Object o) {
+            if (attached) {
+                result.success(o);
+            } else {
+                callbacksDropped += 1;
+            }
+        }
+
+        @Override
+        public void error(String s, String s1, Object o) {
+            if (attached) {
+                result.error(s, s1, o);
+            } else {
+                callbacksDropped += 1;
+            }
+        }
+
+        @Override
+        public void notImplemented() {
+            if (attached) {
+                result.notImplemented();
+            } else {
+                callbacksDropped += 1;
+            }
+        }
+    }
 
     public JPushPlugin() {
-        this.callbackMap = new HashMap<>();
-        this.sequence = 0;
-        this.getRidCache = new ArrayList<>();
-        instance = this;
+        this.eventBatcher = new JPushEventBatcher(new JPushEventBatcher.Sink() {
+            @Override
+            public void deliverBatch(List<Map<String, Object>> batch, List<Long> arrivals) {
+                EventAck ack = new EventAck(batch, arrivals);
+                lanes.onBatchSent(ack.hasBulk);
+                invokeTracked(JPushEventBatcher.BATCH_METHOD, batch, ack);
+            }
+        });
     }
 
 
@@ -59,19 +229,59 @@ public class JPushPlugin implements FlutterPlugin, MethodCallHandler {
     public void onAttachedToEngine(FlutterPluginBinding flutterPluginBinding) {
         channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "jpush");
         channel.setMethodCallHandler(this);
+        messageStream = new JPushMessageStream(flutterPluginBinding.getBinaryMessenger());
         context = flutterPluginBinding.getApplicationContext();
+        appContext = context;
+        attached = true;
+        engineId = engines.attach(this);
+        instance = this;
+        tagAliasCache.setContext(context);
+        tagAliasQueue.setContext(context);
+        localNotificationScheduler.setContext(context);
+        notificationAggregator.setContext(context);
+        registrationIdResolver.setContext(context);
     }
 
 
     @Override
     public void onDetachedFromEngine(FlutterPluginBinding binding) {
+        eventBatcher.flush();
         channel.setMethodCallHandler(null);
-        instance.dartIsReady = false;
+        dartIsReady = false;
+        // 不再向该引擎分发事件；已缓冲的事件写入事件日志，dart 就绪后回放，
+        // 仍有其他引擎时只转交按 first/last 路由的事件，all 路由下其他引擎已各自收到
+        attached = false;
+        eventHandlerReady = false;
+        eventsInFlight = 0;
+        lanes.reset();
+        engines.detach(this);
+        if (instance == this) {
+            instance = engines.latest();
+        }
+        JPushEventBuffer.Entry entry;
+        while ((entry = eventBuffer.poll()) != null) {
+            if (engines.isEmpty() || !engines.isFanOut(entry.method)) {
+                dispatchToEngines(entry.method, entry.arguments);
+            }
+        }
     }
 
     @Override
     public void onMethodCall(MethodCall call, Result result) {
-        Log.i(TAG, call.method);
+        long start = System.nanoTime();
+        handleMethodCall(call, result);
+        JPushMetrics.recordMethod(call.method, System.nanoTime() - start);
+    }
+
+    private void handleMethodCall(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.i(TAG, call.method);
+        }
+        // 异步初始化期间的调用先排队，SDK 初始化完成后按顺序重放
+        if (initializer.isRunning() && !call.method.equals("getStartupStats")) {
+            initializer.enqueue(call, result);
+            return;
+        }
         if (call.method.equals("getPlatformVersion")) {
             result.success("Android " + android.os.Build.VERSION.RELEASE);
         } else if (call.method.equals("setup")) {
@@ -111,6 +321,100 @@ public class JPushPlugin implements FlutterPlugin, MethodCallHandler {
             isNotificationEnabled(call, result);
         } else if (call.method.equals("openSettingsForNotification")) {
             openSettingsForNotification(call, result);
+        } else if (call.method.equals("setEventBatching")) {
+            setEventBatching(call, result);
+        } else if (call.method.equals("getEventBatchingStats")) {
+            getEventBatchingStats(call, result);
+        } else if (call.method.equals("setPendingRequestTimeout")) {
+            setPendingRequestTimeout(call, result);
+        } else if (call.method.equals("getPendingRequestStats")) {
+            getPendingRequestStats(call, result);
+        } else if (call.method.equals("setTagAliasRateLimit")) {
+            setTagAliasRateLimit(call, result);
+        } else if (call.method.equals("getTagAliasQueueStats")) {
+            getTagAliasQueueStats(call, result);
+        } else if (call.method.equals("setTagAliasCacheStaleTime")) {
+            setTagAliasCacheStaleTime(call, result);
+        } else if (call.method.equals("getTagAliasCacheStats")) {
+            getTagAliasCacheStats(call, result);
+        } else if (call.method.equals("setEventJournalConfig")) {
+            setEventJournalConfig(call, result);
+        } else if (call.method.equals("getEventJournalStats")) {
+            getEventJournalStats(call, result);
+        } else if (call.method.equals("getEventPipelineStats")) {
+            getEventPipelineStats(call, result);
+        } else if (call.method.equals("setExtrasParsing")) {
+            setExtrasParsing(call, result);
+        } else if (call.method.equals("getPayloadStats")) {
+            getPayloadStats(call, result);
+        } else if (call.method.equals("setMessageStreamEnabled")) {
+            setMessageStreamEnabled(call, result);
+        } else if (call.method.equals("getMessageStreamStats")) {
+            getMessageStreamStats(call, result);
+        } else if (call.method.equals("setMessageDeduplication")) {
+            setMessageDeduplication(call, result);
+        } else if (call.method.equals("getMessageDeduplicationStats")) {
+            getMessageDeduplicationStats(call, result);
+        } else if (call.method.equals("setEventHandlerReady")) {
+            setEventHandlerReady(call, result);
+        } else if (call.method.equals("setEventBufferPolicy")) {
+            setEventBufferPolicy(call, result);
+        } else if (call.method.equals("getEventBufferStats")) {
+            getEventBufferStats(call, result);
+        } else if (call.method.equals("registerBackgroundMessageHandler")) {
+            registerBackgroundMessageHandler(call, result);
+        } else if (call.method.equals("getBackgroundEngineStats")) {
+            getBackgroundEngineStats(call, result);
+        } else if (call.method.equals("getStartupStats")) {
+            getStartupStats(call, result);
+        } else if (call.method.equals("setRegistrationIdTimeout")) {
+            setRegistrationIdTimeout(call, result);
+        } else if (call.method.equals("getRegistrationIdStats")) {
+            getRegistrationIdStats(call, result);
+        } else if (call.method.equals("scheduleLocalNotifications")) {
+            scheduleLocalNotifications(call, result);
+        } else if (call.method.equals("getScheduledLocalNotifications")) {
+            getScheduledLocalNotifications(call, result);
+        } else if (call.method.equals("cancelLocalNotifications")) {
+            cancelLocalNotifications(call, result);
+        } else if (call.method.equals("setNotificationAggregation")) {
+            setNotificationAggregation(call, result);
+        } else if (call.method.equals("getNotificationAggregationStats")) {
+            getNotificationAggregationStats(call, result);
+        } else if (call.method.equals("getMetrics")) {
+            getMetrics(call, result);
+        } else if (call.method.equals("setEventRouting")) {
+            setEventRouting(call, result);
+        } else if (call.method.equals("getEngineStats")) {
+            getEngineStats(call, result);
+        } else if (call.method.equals("setMainThreadDispatch")) {
+            setMainThreadDispatch(call, result);
+        } else if (call.method.equals("getMainThreadDispatchStats")) {
+            getMainThreadDispatchStats(call, result);
+        } else if (call.method.equals("setInboxConfig")) {
+            setInboxConfig(call, result);
+        } else if (call.method.equals("queryInbox")) {
+            queryInbox(call, result);
+        } else if (call.method.equals("markInboxRead")) {
+            markInboxRead(call, result);
+        } else if (call.method.equals("compactInbox")) {
+            compactInbox(call, result);
+        } else if (call.method.equals("getInboxStats")) {
+            getInboxStats(call, result);
+        } else if (call.method.equals("setDeliveryLanes")) {
+            setDeliveryLanes(call, result);
+        } else if (call.method.equals("getDeliveryLaneStats")) {
+            getDeliveryLaneStats(call, result);
+        } else if (call.method.equals("setMessageRules")) {
+            setMessageRules(call, result);
+        } else if (call.method.equals("getMessageRuleStats")) {
+            getMessageRuleStats(call, result);
+        } else if (call.method.equals("setLazyPayload")) {
+            setLazyPayload(call, result);
+        } else if (call.method.equals("getEventPayload")) {
+            getEventPayload(call, result);
+        } else if (call.method.equals("getPayloadStoreStats")) {
+            getPayloadStoreStats(call, result);
         } else {
             result.notImplemented();
         }
@@ -118,157 +422,197 @@ public class JPushPlugin implements FlutterPlugin, MethodCallHandler {
 
     // 主线程再返回数据
     public void runMainThread(final Map<String, Object> map, final Result result, final String method) {
-        Log.d(TAG, "runMainThread:" + "map = " + map + ",method =" + method);
-        android.os.Handler handler = new Handler(Looper.getMainLooper());
-        handler.post(new Runnable() {
-            @Override
-            public void run() {
-                if (result == null && method != null) {
-                    channel.invokeMethod(method, map);
-                } else {
-                    result.success(map);
+        if (debugLogging) {
+            Log.d(TAG, "runMainThread:" + "map = " + map + ",method =" + method);
+        }
+        if (result != null) {
+            JPushMainDispatcher.success(result, map);
+            return;
+        }
+        if (method != null) {
+            JPushMainDispatcher.run(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchEvent(method, map);
                 }
-            }
-        });
+            });
+        }
     }
 
     public void setup(MethodCall call, Result result) {
-        Log.d(TAG, "setup :" + call.arguments);
+        if (debugLogging) {
+            Log.d(TAG, "setup :" + call.arguments);
+        }
 
         HashMap<String, Object> map = call.arguments();
         boolean debug = (boolean) map.get("debug");
-        JPushInterface.setDebugMode(debug);
+        String channel = (String) map.get("channel");
+        debugLogging = debug;
+        boolean asyncInit = Boolean.TRUE.equals(map.get("asyncInit"));
 
-        JPushInterface.init(context);            // 初始化 JPush
+        dartIsReady = true;
 
-        String channel = (String) map.get("channel");
-        JPushInterface.setChannel(context, channel);
+        if (asyncInit) {
+            // SDK 在后台线程初始化，rid 缓存在初始化完成后处理，这里只回放日志
+            initializer.init(context, debug, channel, true);
+            JPushEventJournal.getInstance(context).replay(journalConsumer);
+            return;
+        }
 
-        JPushPlugin.instance.dartIsReady = true;
+        initializer.init(context, debug, channel, false);
 
         // try to clean getRid cache
         scheduleCache();
     }
 
     public void scheduleCache() {
-        Log.d(TAG, "scheduleCache:");
-
-        List<Object> tempList = new ArrayList<Object>();
-
-        if (dartIsReady) {
-            // try to shedule notifcation cache
-            List<Map<String, Object>> openNotificationCacheList = JPushPlugin.openNotificationCache;
-            for (Map<String, Object> notification : openNotificationCacheList) {
-                JPushPlugin.instance.channel.invokeMethod("onOpenNotification", notification);
-                tempList.add(notification);
-            }
-            openNotificationCacheList.removeAll(tempList);
+        if (debugLogging) {
+            Log.d(TAG, "scheduleCache:");
         }
 
         if (context == null) {
-            Log.d(TAG, "scheduleCache，register context is nil.");
+            if (debugLogging) {
+                Log.d(TAG, "scheduleCache，register context is nil.");
+            }
             return;
         }
 
-        String rid = JPushInterface.getRegistrationID(context);
-        boolean ridAvailable = rid != null && !rid.isEmpty();
-        if (ridAvailable && dartIsReady) {
-            // try to schedule get rid cache
-            tempList.clear();
-            List<Result> resultList = JPushPlugin.instance.getRidCache;
-            for (Result res : resultList) {
-                Log.d(TAG, "scheduleCache rid = " + rid);
-                res.success(rid);
-                tempList.add(res);
-            }
-            resultList.removeAll(tempList);
+        if (dartIsReady) {
+            // try to replay events journaled before dart was ready
+            JPushEventJournal.getInstance(context).replay(journalConsumer);
         }
+
+        // 校正缓存的 rid，并结束等待中的 getRegistrationID
+        registrationIdResolver.refresh();
     }
 
+    // 回放的事件与实时事件走同样的路由、缓冲与通道，没有已订阅的引擎时重新写入日志
+    private final JPushEventJournal.Consumer journalConsumer = new JPushEventJournal.Consumer() {
+        @Override
+        public void onReplay(int type, Map<String, Object> event) {
+            if (type == JPushEventJournal.TYPE_OPEN_NOTIFICATION) {
+                transmitNotificationOpen(context, event);
+            } else if (type == JPushEventJournal.TYPE_MESSAGE) {
+                transmitMessageReceive(context, event);
+            } else if (type == JPushEventJournal.TYPE_EVENT) {
+                String method = (String) event.get("method");
+                @SuppressWarnings("unchecked")
+                Map<String, Object> journaled = (Map<String, Object>) event.get("arguments");
+                // 标记为回放的事件，dart 层据此区分实时事件
+                Map<String, Object> arguments = journaled == null
+                        ? new HashMap<String, Object>() : new HashMap<>(journaled);
+                arguments.put("replayed", true);
+                if ("onReceiveNotification".equals(method)) {
+                    deliverNotificationReceive(arguments);
+                } else {
+                    dispatchToEngines(method, arguments);
+                }
+            }
+        }
+    };
+
     public void setTags(MethodCall call, Result result) {
-        Log.d(TAG, "setTags：");
+        if (debugLogging) {
+            Log.d(TAG, "setTags：");
+        }
 
         List<String> tagList = call.arguments();
         Set<String> tags = new HashSet<>(tagList);
-        sequence += 1;
-        callbackMap.put(sequence, result);
-        JPushInterface.setTags(context, sequence, tags);
+        tagAliasQueue.setTags(tags, new EngineResult(result));
     }
 
     public void cleanTags(MethodCall call, Result result) {
-        Log.d(TAG, "cleanTags:");
+        if (debugLogging) {
+            Log.d(TAG, "cleanTags:");
+        }
 
-        sequence += 1;
-        callbackMap.put(sequence, result);
-        JPushInterface.cleanTags(context, sequence);
+        tagAliasQueue.cleanTags(new EngineResult(result));
     }
 
     public void addTags(MethodCall call, Result result) {
-        Log.d(TAG, "addTags: " + call.arguments);
+        if (debugLogging) {
+            Log.d(TAG, "addTags: " + call.arguments);
+        }
 
         List<String> tagList = call.arguments();
         Set<String> tags = new HashSet<>(tagList);
-        sequence += 1;
-        callbackMap.put(sequence, result);
-        JPushInterface.addTags(context, sequence, tags);
+        tagAliasQueue.addTags(tags, new EngineResult(result));
     }
 
     public void deleteTags(MethodCall call, Result result) {
-        Log.d(TAG, "deleteTags： " + call.arguments);
+        if (debugLogging) {
+            Log.d(TAG, "deleteTags： " + call.arguments);
+        }
 
         List<String> tagList = call.arguments();
         Set<String> tags = new HashSet<>(tagList);
-        sequence += 1;
-        callbackMap.put(sequence, result);
-        JPushInterface.deleteTags(context, sequence, tags);
+        tagAliasQueue.deleteTags(tags, new EngineResult(result));
     }
 
     public void getAllTags(MethodCall call, Result result) {
-        Log.d(TAG, "getAllTags： ");
+        if (debugLogging) {
+            Log.d(TAG, "getAllTags： ");
+        }
 
-        sequence += 1;
-        callbackMap.put(sequence, result);
-        JPushInterface.getAllTags(context, sequence);
+        // refresh 为 true 时强制请求服务器，否则优先使用未过期的本地镜像
+        Boolean refresh = call.argument("refresh");
+        if ((refresh == null || !refresh) && !tagAliasQueue.hasPendingTagMutation()) {
+            List<String> tags = tagAliasCache.freshTags();
+            if (tags != null) {
+                Map<String, Object> res = new HashMap<>();
+                res.put("tags", tags);
+                result.success(res);
+                return;
+            }
+        }
+        tagAliasQueue.getAllTags(new EngineResult(result));
     }
 
     public void setAlias(MethodCall call, Result result) {
-        Log.d(TAG, "setAlias: " + call.arguments);
+        if (debugLogging) {
+            Log.d(TAG, "setAlias: " + call.arguments);
+        }
 
         String alias = call.arguments();
-        sequence += 1;
-        callbackMap.put(sequence, result);
-        JPushInterface.setAlias(context, sequence, alias);
+        tagAliasQueue.setAlias(alias, new EngineResult(result));
     }
 
     public void deleteAlias(MethodCall call, Result result) {
-        Log.d(TAG, "deleteAlias:");
+        if (debugLogging) {
+            Log.d(TAG, "deleteAlias:");
+        }
 
-        String alias = call.arguments();
-        sequence += 1;
-        callbackMap.put(sequence, result);
-        JPushInterface.deleteAlias(context, sequence);
+        tagAliasQueue.deleteAlias(new EngineResult(result));
     }
 
     public void stopPush(MethodCall call, Result result) {
-        Log.d(TAG, "stopPush:");
+        if (debugLogging) {
+            Log.d(TAG, "stopPush:");
+        }
 
         JPushInterface.stopPush(context);
     }
 
     public void resumePush(MethodCall call, Result result) {
-        Log.d(TAG, "resumePush:");
+        if (debugLogging) {
+            Log.d(TAG, "resumePush:");
+        }
 
         JPushInterface.resumePush(context);
     }
 
     public void clearAllNotifications(MethodCall call, Result result) {
-        Log.d(TAG, "clearAllNotifications: ");
+        if (debugLogging) {
+            Log.d(TAG, "clearAllNotifications: ");
+        }
 
         JPushInterface.clearAllNotifications(context);
     }
 
     public void clearNotification(MethodCall call, Result result) {
-        Log.d(TAG, "clearNotification: ");
+        if (debugLogging) {
+            Log.d(TAG, "clearNotification: ");
+        }
         Object id = call.arguments;
         if (id != null) {
             JPushInterface.clearNotificationById(context, (int) id);
@@ -276,57 +620,78 @@ public class JPushPlugin implements FlutterPlugin, MethodCallHandler {
     }
 
     public void getLaunchAppNotification(MethodCall call, Result result) {
-        Log.d(TAG, "");
+        if (debugLogging) {
+            Log.d(TAG, "");
+        }
 
 
     }
 
     public void getRegistrationID(MethodCall call, Result result) {
-        Log.d(TAG, "getRegistrationID: ");
+        if (debugLogging) {
+            Log.d(TAG, "getRegistrationID: ");
+        }
 
         if (context == null) {
-            Log.d(TAG, "register context is nil.");
+            if (debugLogging) {
+                Log.d(TAG, "register context is nil.");
+            }
             return;
         }
 
-        String rid = JPushInterface.getRegistrationID(context);
-        if (rid == null || rid.isEmpty()) {
-            getRidCache.add(result);
+        registrationIdResolver.get(result);
+    }
+
+
+    public void sendLocalNotification(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "sendLocalNotification: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        Map<String, Object> itemResult = localNotificationScheduler.schedule(
+                Collections.<Map<String, Object>>singletonList(map)).get(0);
+        if (Boolean.TRUE.equals(itemResult.get("ok"))) {
+            result.success(null);
         } else {
-            result.success(rid);
+            result.error("invalid_argument", (String) itemResult.get("error"), null);
         }
     }
 
+    public void scheduleLocalNotifications(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "scheduleLocalNotifications: ");
+        }
 
-    public void sendLocalNotification(MethodCall call, Result result) {
-        Log.d(TAG, "sendLocalNotification: " + call.arguments);
+        List<Map<String, Object>> list = call.arguments();
+        result.success(localNotificationScheduler.schedule(list));
+    }
 
-        try {
-            HashMap<String, Object> map = call.arguments();
-
-            JPushLocalNotification ln = new JPushLocalNotification();
-            ln.setBuilderId((Integer) map.get("buildId"));
-            ln.setNotificationId((Integer) map.get("id"));
-            ln.setTitle((String) map.get("title"));
-            ln.setContent((String) map.get("content"));
-            HashMap<String, Object> extra = (HashMap<String, Object>) map.get("extra");
-
-            if (extra != null) {
-                JSONObject json = new JSONObject(extra);
-                ln.setExtras(json.toString());
-            }
+    public void getScheduledLocalNotifications(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getScheduledLocalNotifications: " + call.arguments);
+        }
 
-            long date = (long) map.get("fireTime");
-            ln.setBroadcastTime(date);
+        HashMap<String, Object> map = call.arguments();
+        Number from = (Number) map.get("from");
+        Number to = (Number) map.get("to");
+        result.success(localNotificationScheduler.query(from == null ? 0 : from.longValue(),
+                to == null ? Long.MAX_VALUE : to.longValue()));
+    }
 
-            JPushInterface.addLocalNotification(context, ln);
-        } catch (Exception e) {
-            e.printStackTrace();
+    public void cancelLocalNotifications(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "cancelLocalNotifications: " + call.arguments);
         }
+
+        List<Integer> ids = call.arguments();
+        result.success(localNotificationScheduler.cancel(ids));
     }
 
     public void setBadge(MethodCall call, Result result) {
-        Log.d(TAG, "setBadge: " + call.arguments);
+        if (debugLogging) {
+            Log.d(TAG, "setBadge: " + call.arguments);
+        }
 
         HashMap<String, Object> map = call.arguments();
         Object numObject = map.get("badge");
@@ -339,7 +704,9 @@ public class JPushPlugin implements FlutterPlugin, MethodCallHandler {
 
     /// 检查当前应用的通知开关是否开启
     private void isNotificationEnabled(MethodCall call, Result result) {
-        Log.d(TAG, "isNotificationEnabled: ");
+        if (debugLogging) {
+            Log.d(TAG, "isNotificationEnabled: ");
+        }
         int isEnabled = JPushInterface.isNotificationEnabled(context);
         //1表示开启，0表示关闭，-1表示检测失败
         HashMap<String, Object> map = new HashMap();
@@ -349,154 +716,920 @@ public class JPushPlugin implements FlutterPlugin, MethodCallHandler {
     }
 
     private void openSettingsForNotification(MethodCall call, Result result) {
-        Log.d(TAG, "openSettingsForNotification: ");
+        if (debugLogging) {
+            Log.d(TAG, "openSettingsForNotification: ");
+        }
 
         JPushInterface.goToAppNotificationSettings(context);
 
     }
 
+    private void setEventBatching(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setEventBatching: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        boolean enable = (boolean) map.get("enable");
+        long flushInterval = ((Number) map.get("flushInterval")).longValue();
+        int maxBatchSize = ((Number) map.get("maxBatchSize")).intValue();
+        eventBatcher.configure(enable, flushInterval, maxBatchSize);
+        result.success(null);
+    }
+
+    private void getEventBatchingStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getEventBatchingStats: ");
+        }
+
+        result.success(eventBatcher.stats());
+    }
+
+    private void setPendingRequestTimeout(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setPendingRequestTimeout: " + call.arguments);
+        }
+
+        Number timeout = call.arguments();
+        pendingRequests.setTimeout(timeout.longValue());
+        result.success(null);
+    }
+
+    private void getPendingRequestStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getPendingRequestStats: ");
+        }
+
+        result.success(pendingRequests.stats());
+    }
+
+    private void setTagAliasRateLimit(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setTagAliasRateLimit: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        long minInterval = ((Number) map.get("minInterval")).longValue();
+        int maxRetries = ((Number) map.get("maxRetries")).intValue();
+        long retryBackoff = ((Number) map.get("retryBackoff")).longValue();
+        tagAliasQueue.configure(minInterval, maxRetries, retryBackoff);
+        result.success(null);
+    }
+
+    private void getTagAliasQueueStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getTagAliasQueueStats: ");
+        }
+
+        result.success(tagAliasQueue.stats());
+    }
+
+    private void setTagAliasCacheStaleTime(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setTagAliasCacheStaleTime: " + call.arguments);
+        }
+
+        Number staleTime = call.arguments();
+        tagAliasCache.setStaleTime(staleTime.longValue());
+        result.success(null);
+    }
+
+    private void getTagAliasCacheStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getTagAliasCacheStats: ");
+        }
+
+        result.success(tagAliasCache.stats());
+    }
+
+    private void setEventJournalConfig(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setEventJournalConfig: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        int maxEntries = ((Number) map.get("maxEntries")).intValue();
+        String evictionPolicy = (String) map.get("evictionPolicy");
+        boolean journalDetachedEvents = !Boolean.FALSE.equals(map.get("journalDetachedEvents"));
+        JPushEventJournal.getInstance(context).configure(maxEntries, evictionPolicy, journalDetachedEvents);
+        result.success(null);
+    }
+
+    private void getEventJournalStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getEventJournalStats: ");
+        }
+
+        result.success(JPushEventJournal.getInstance(context).stats());
+    }
+
+    private void getEventPipelineStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getEventPipelineStats: ");
+        }
+
+        result.success(JPushEventPipeline.stats());
+    }
+
+    private void setExtrasParsing(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setExtrasParsing: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        boolean enable = (boolean) map.get("enable");
+        List<String> keys = (List<String>) map.get("keys");
+        JPushExtrasParser.configure(enable, keys);
+        result.success(null);
+    }
+
+    private void getPayloadStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getPayloadStats: ");
+        }
+
+        result.success(JPushExtrasParser.stats());
+    }
+
+    private void setMessageStreamEnabled(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setMessageStreamEnabled: " + call.arguments);
+        }
+
+        boolean enabled = call.arguments();
+        messageStream.setEnabled(enabled);
+        result.success(null);
+    }
+
+    private void getMessageStreamStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getMessageStreamStats: ");
+        }
+
+        result.success(messageStream.stats());
+    }
+
+    private void setMessageDeduplication(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setMessageDeduplication: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        boolean enable = (boolean) map.get("enable");
+        int capacity = ((Number) map.get("capacity")).intValue();
+        boolean persist = (boolean) map.get("persist");
+        JPushMessageDeduplicator.getInstance(context).configure(enable, capacity, persist);
+        result.success(null);
+    }
+
+    private void getMessageDeduplicationStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getMessageDeduplicationStats: ");
+        }
+
+        result.success(JPushMessageDeduplicator.getInstance(context).stats());
+    }
+
+    private void setEventHandlerReady(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setEventHandlerReady: ");
+        }
+
+        eventHandlerReady = true;
+        drainEventBuffer();
+        result.success(null);
+    }
+
+    private void setEventBufferPolicy(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setEventBufferPolicy: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        String event = (String) map.get("event");
+        if (event != null) {
+            eventBuffer.configure(event, (String) map.get("policy"), ((Number) map.get("capacity")).intValue());
+        }
+        Number maxInFlight = (Number) map.get("maxInFlight");
+        if (maxInFlight != null && maxInFlight.intValue() > 0) {
+            maxEventsInFlight = maxInFlight.intValue();
+            drainEventBuffer();
+        }
+        result.success(null);
+    }
+
+    private void getEventBufferStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getEventBufferStats: ");
+        }
+
+        Map<String, Object> stats = eventBuffer.stats();
+        stats.put("inFlight", eventsInFlight);
+        stats.put("maxInFlight", maxEventsInFlight);
+        stats.put("attached", attached);
+        stats.put("eventHandlerReady", eventHandlerReady);
+        result.success(stats);
+    }
+
+    private void registerBackgroundMessageHandler(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "registerBackgroundMessageHandler: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        long dispatcherHandle = ((Number) map.get("dispatcherHandle")).longValue();
+        long callbackHandle = ((Number) map.get("callbackHandle")).longValue();
+        Number idleTimeout = (Number) map.get("idleTimeout");
+        JPushBackgroundExecutor.getInstance(context).register(dispatcherHandle, callbackHandle,
+                idleTimeout == null ? -1 : idleTimeout.longValue());
+        result.success(null);
+    }
+
+    private void getBackgroundEngineStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getBackgroundEngineStats: ");
+        }
+
+        result.success(JPushBackgroundExecutor.getInstance(context).stats());
+    }
+
+    private void getStartupStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getStartupStats: ");
+        }
+
+        result.success(initializer.stats());
+    }
+
+    private void setRegistrationIdTimeout(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setRegistrationIdTimeout: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        registrationIdResolver.setTimeout(((Number) map.get("timeout")).longValue());
+        result.success(null);
+    }
+
+    private void getRegistrationIdStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getRegistrationIdStats: ");
+        }
+
+        result.success(registrationIdResolver.stats());
+    }
+
+    private void setNotificationAggregation(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setNotificationAggregation: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        boolean enable = (boolean) map.get("enable");
+        String groupKey = (String) map.get("groupKey");
+        long window = ((Number) map.get("window")).longValue();
+        notificationAggregator.configure(enable, groupKey, window,
+                (String) map.get("summaryText"), (String) map.get("channelName"));
+        result.success(null);
+    }
+
+    private void getNotificationAggregationStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getNotificationAggregationStats: ");
+        }
+
+        result.success(notificationAggregator.stats());
+    }
+
+    private void getMetrics(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getMetrics: " + call.arguments);
+        }
+
+        Map<String, Object> metrics = JPushMetrics.snapshot();
+        if (Boolean.TRUE.equals(call.argument("reset"))) {
+            JPushMetrics.reset();
+        }
+        result.success(metrics);
+    }
+
+    private void setEventRouting(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setEventRouting: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        engines.configure((String) map.get("defaultRoute"), (Map<String, String>) map.get("routes"));
+        result.success(null);
+    }
+
+    private void getEngineStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getEngineStats: ");
+        }
+
+        Map<String, Object> stats = engines.stats();
+        stats.put("current", engineId);
+        result.success(stats);
+    }
+
+    private void setMainThreadDispatch(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setMainThreadDispatch: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        JPushMainDispatcher.setCoalesce((boolean) map.get("coalesce"));
+        result.success(null);
+    }
+
+    private void getMainThreadDispatchStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getMainThreadDispatchStats: ");
+        }
+
+        result.success(JPushMainDispatcher.stats());
+    }
+
+    private void setInboxConfig(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setInboxConfig: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        boolean enable = (boolean) map.get("enable");
+        long ttl = ((Number) map.get("ttl")).longValue();
+        JPushInbox.getInstance(context).configure(enable, ttl);
+        result.success(null);
+    }
+
+    private void queryInbox(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "queryInbox: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        Number before = (Number) map.get("before");
+        int limit = ((Number) map.get("limit")).intValue();
+        String type = (String) map.get("type");
+        int typeCode = "message".equals(type) ? JPushInbox.TYPE_MESSAGE
+                : ("notification".equals(type) ? JPushInbox.TYPE_NOTIFICATION : 0);
+        boolean unreadOnly = (boolean) map.get("unreadOnly");
+        JPushInbox.getInstance(context).query(before == null ? 0 : before.longValue(), limit, typeCode,
+                unreadOnly, result);
+    }
+
+    private void markInboxRead(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "markInboxRead: " + call.arguments);
+        }
+
+        List<Number> ids = call.arguments();
+        JPushInbox.getInstance(context).markRead(ids, result);
+    }
+
+    private void compactInbox(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "compactInbox: ");
+        }
+
+        JPushInbox.getInstance(context).compact(result);
+    }
+
+    private void getInboxStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getInboxStats: ");
+        }
+
+        JPushInbox.getInstance(context).stats(result);
+    }
+
+    private void setLazyPayload(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setLazyPayload: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        boolean enable = (boolean) map.get("enable");
+        List<String> headerKeys = (List<String>) map.get("headerKeys");
+        int capacity = ((Number) map.get("capacity")).intValue();
+        payloadStore.configure(enable, headerKeys, capacity);
+        result.success(null);
+    }
+
+    private void getEventPayload(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getEventPayload: " + call.arguments);
+        }
+
+        String msgId = call.arguments();
+        result.success(payloadStore.get(msgId));
+    }
+
+    private void getPayloadStoreStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getPayloadStoreStats: ");
+        }
+
+        result.success(payloadStore.stats());
+    }
+
+    private void setDeliveryLanes(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setDeliveryLanes: " + call.arguments);
+        }
+
+        HashMap<String, Object> map = call.arguments();
+        lanes.configure(((Number) map.get("bulkRate")).doubleValue(), ((Number) map.get("bulkBurst")).intValue(),
+                ((Number) map.get("bulkMaxInFlight")).intValue());
+        drainEventBuffer();
+        result.success(null);
+    }
+
+    private void getDeliveryLaneStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getDeliveryLaneStats: ");
+        }
+
+        result.success(lanes.stats(eventBuffer));
+    }
+
+    private void setMessageRules(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "setMessageRules: " + call.arguments);
+        }
+
+        Object rules = call.arguments;
+        try {
+            if (rules != null && !(rules instanceof List)) {
+                throw new IllegalArgumentException("rules must be a list");
+            }
+            JPushMessageRules.getInstance(context).configure((List<?>) rules);
+            result.success(null);
+        } catch (IllegalArgumentException e) {
+            result.error("invalid_argument", e.getMessage(), null);
+        }
+    }
+
+    private void getMessageRuleStats(MethodCall call, Result result) {
+        if (debugLogging) {
+            Log.d(TAG, "getMessageRuleStats: ");
+        }
+
+        result.success(JPushMessageRules.getInstance(context).stats());
+    }
+
+    boolean isSubscribed() {
+        return dartIsReady || eventHandlerReady;
+    }
+
+    Map<String, Object> engineStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("id", engineId);
+        stats.put("subscribed", isSubscribed());
+        stats.put("eventHandlerReady", eventHandlerReady);
+        stats.put("bufferDepth", eventBuffer.size());
+        stats.put("inFlight", eventsInFlight);
+        stats.put("eventsDelivered", eventsDelivered);
+        stats.put("callbacksDropped", callbacksDropped);
+        return stats;
+    }
+
+    // 开启二进制事件流时自定义消息走 BasicMessageChannel，否则走 onReceiveMessage
+    private void deliverMessage(Map<String, Object> msg) {
+        if (messageStream.isEnabled() && attached) {
+            messageStream.send(msg);
+            return;
+        }
+        dispatchEvent("onReceiveMessage", msg);
+    }
+
+    // dart 层未挂载、未注册回调或处理不过来时事件进入缓冲区；同一通道的缓冲区非空时新事件也排队，保证通道内的顺序
+    private void dispatchEvent(String method, Map<String, Object> arguments) {
+        int lane = JPushDeliveryLanes.laneOf(method);
+        if (!canDeliver(lane) || !eventBuffer.isEmpty(lane)) {
+            eventBuffer.offer(method, arguments);
+            return;
+        }
+        deliverEvent(method, arguments, lane, System.nanoTime());
+    }
+
+    // interactive 通道不受 in-flight 上限限制，bulk 通道另有自己的 in-flight 上限与限速
+    private boolean canDeliver(int lane) {
+        if (!attached || !eventHandlerReady) {
+            return false;
+        }
+        if (lane == JPushDeliveryLanes.INTERACTIVE) {
+            return true;
+        }
+        return eventsInFlight < maxEventsInFlight && (lane != JPushDeliveryLanes.BULK || lanes.canSendBulk());
+    }
+
+    // 开启批量下发时，除 interactive 通道外的事件先进入批次，否则直接下发。
+    // 接收事件在这里才替换为延迟加载的 header，缓冲中的事件在卸载引擎时写入日志的仍是完整数据
+    private void deliverEvent(String method, Map<String, Object> arguments, int lane, long arrivedAt) {
+        if ("onReceiveMessage".equals(method) || "onReceiveNotification".equals(method)) {
+            arguments = payloadStore.offer(arguments);
+        }
+        boolean batched = lane != JPushDeliveryLanes.INTERACTIVE && eventBatcher.isEnabled();
+        lanes.onSent(lane, batched);
+        if (batched) {
+            eventBatcher.add(method, arguments, arrivedAt);
+            return;
+        }
+        invokeTracked(method, arguments, new EventAck(lane, arrivedAt));
+    }
+
+    private void invokeTracked(String method, Object arguments, EventAck ack) {
+        eventsInFlight += 1;
+        eventsDelivered += 1;
+        JPushMetrics.increment(method);
+        channel.invokeMethod(method, arguments, ack);
+    }
+
+    private void onEventAck(EventAck ack) {
+        JPushMetrics.record(JPushMetrics.CHANNEL_INVOKE, System.nanoTime() - ack.sentAt);
+        if (ack.batch == null) {
+            lanes.onAck(ack.lane, ack.arrivedAt);
+        } else {
+            for (int i = 0; i < ack.batch.size(); i++) {
+                lanes.record(JPushDeliveryLanes.laneOf((String) ack.batch.get(i).get("method")), ack.arrivals.get(i));
+            }
+            lanes.onBatchAck(ack.hasBulk);
+        }
+        if (eventsInFlight > 0) {
+            eventsInFlight -= 1;
+        }
+        drainEventBuffer();
+    }
+
+    // 按优先级从高到低下发各通道中缓冲的事件
+    private void drainEventBuffer() {
+        for (int lane = 0; lane < JPushDeliveryLanes.COUNT; lane++) {
+            while (!eventBuffer.isEmpty(lane) && canDeliver(lane)) {
+                JPushEventBuffer.Entry entry = eventBuffer.poll(lane);
+                deliverEvent(entry.method, entry.arguments, lane, entry.arrivedAt);
+            }
+        }
+    }
+
     /**
      * 接收自定义消息,通知,通知点击事件等事件的广播
      * 文档链接:http://docs.jiguang.cn/client/android_api/
      */
     public static class JPushReceiver extends BroadcastReceiver {
 
-        private static final List<String> IGNORED_EXTRAS_KEYS = Arrays.asList("cn.jpush.android.TITLE",
-                "cn.jpush.android.MESSAGE", "cn.jpush.android.APPKEY", "cn.jpush.android.NOTIFICATION_CONTENT_TITLE", "key_show_entity", "platform");
+        private static final Set<String> IGNORED_EXTRAS_KEYS = new HashSet<>(Arrays.asList("cn.jpush.android.TITLE",
+                "cn.jpush.android.MESSAGE", "cn.jpush.android.APPKEY", "cn.jpush.android.NOTIFICATION_CONTENT_TITLE", "key_show_entity", "platform"));
 
         public JPushReceiver() {
         }
 
 
         @Override
-        public void onReceive(Context context, Intent intent) {
+        public void onReceive(final Context context, final Intent intent) {
+            // extras 的解析与下发数据的构造放到后台线程，主线程只负责最终的 channel 调用
+            final PendingResult pendingResult = goAsync();
+            final long receivedAt = System.nanoTime();
+            JPushEventPipeline.execute(new Runnable() {
+                @Override
+                public void run() {
+                    JPushMetrics.record(JPushMetrics.RECEIVE, System.nanoTime() - receivedAt);
+                    try {
+                        handlingReceive(context, intent, pendingResult);
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "handlingReceive failed", e);
+                        JPushEventPipeline.finish(pendingResult);
+                    }
+                }
+            });
+        }
+
+        private void handlingReceive(final Context context, Intent intent, PendingResult pendingResult) {
             String action = intent.getAction();
 
-            if (action.equals(JPushInterface.ACTION_REGISTRATION_ID)) {
-                String rId = intent.getStringExtra(JPushInterface.EXTRA_REGISTRATION_ID);
-                Log.d("JPushPlugin", "on get registration");
-                JPushPlugin.transmitReceiveRegistrationId(rId);
-
-            } else if (action.equals(JPushInterface.ACTION_MESSAGE_RECEIVED)) {
-                handlingMessageReceive(intent);
-            } else if (action.equals(JPushInterface.ACTION_NOTIFICATION_RECEIVED)) {
-                handlingNotificationReceive(context, intent);
-            } else if (action.equals(JPushInterface.ACTION_NOTIFICATION_OPENED)) {
-                handlingNotificationOpen(context, intent);
+            // 广播由 :pushcore 进程中的 SDK 发出，Intent 自身的 Bundle 在首次读取某个值时才反序列化，这里单独计时；
+            // getExtras 只拷贝尚未反序列化的数据，不会触发反序列化，之后 parse 阶段的读取不再包含这部分开销
+            long start = System.nanoTime();
+            intent.getStringExtra(JPushInterface.EXTRA_MSG_ID);
+            JPushMetrics.record(JPushMetrics.BROADCAST_UNPARCEL, System.nanoTime() - start);
+
+            if (JPushInterface.ACTION_REGISTRATION_ID.equals(action)) {
+                final String rId = intent.getStringExtra(JPushInterface.EXTRA_REGISTRATION_ID);
+                if (debugLogging) {
+                    Log.d("JPushPlugin", "on get registration");
+                }
+                JPushEventPipeline.postToMain(new Runnable() {
+                    @Override
+                    public void run() {
+                        JPushPlugin.transmitReceiveRegistrationId(context, rId);
+                    }
+                }, pendingResult);
+            } else if (JPushInterface.ACTION_MESSAGE_RECEIVED.equals(action)) {
+                handlingMessageReceive(context, intent, pendingResult);
+            } else if (JPushInterface.ACTION_NOTIFICATION_RECEIVED.equals(action)) {
+                handlingNotificationReceive(context, intent, pendingResult);
+            } else if (JPushInterface.ACTION_NOTIFICATION_OPENED.equals(action)) {
+                handlingNotificationOpen(context, intent, pendingResult);
+            } else {
+                JPushEventPipeline.finish(pendingResult);
             }
         }
 
-        private void handlingMessageReceive(Intent intent) {
-            Log.d(TAG, "handlingMessageReceive " + intent.getAction());
+        private void handlingMessageReceive(final Context context, Intent intent, PendingResult pendingResult) {
+            if (debugLogging) {
+                Log.d(TAG, "handlingMessageReceive " + intent.getAction());
+            }
+
+            if (isDuplicate(context, JPushMessageDeduplicator.KIND_MESSAGE, intent, pendingResult)) {
+                return;
+            }
 
             String msg = intent.getStringExtra(JPushInterface.EXTRA_MESSAGE);
             Map<String, Object> extras = getNotificationExtras(intent);
-            JPushPlugin.transmitMessageReceive(msg, extras);
+            final JPushMessageRules.Rule rule = JPushMessageRules.getInstance(context)
+                    .evaluate(JPushMessageRules.KIND_MESSAGE, extras);
+            if (isFiltered(context, rule, extras, pendingResult)) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            final Map<String, Object> message = new HashMap<>();
+            message.put("message", msg);
+            message.put("extras", extras);
+            JPushExtrasParser.recordPayload(message);
+            JPushEventPipeline.record(JPushEventPipeline.STAGE_BUILD, System.nanoTime() - start);
+            JPushInbox.getInstance(context).append(JPushInbox.TYPE_MESSAGE,
+                    intent.getStringExtra(JPushInterface.EXTRA_MSG_ID), message);
+
+            JPushEventPipeline.postToMain(new Runnable() {
+                @Override
+                public void run() {
+                    if (rule != null) {
+                        JPushPlugin.transmitRuleMatch(context, rule, JPushMessageRules.KIND_MESSAGE, message);
+                    } else {
+                        JPushPlugin.transmitMessageReceive(context, message);
+                    }
+                }
+            }, pendingResult);
         }
 
-        private void handlingNotificationOpen(Context context, Intent intent) {
-            Log.d(TAG, "handlingNotificationOpen " + intent.getAction());
+        private void handlingNotificationOpen(final Context context, Intent intent, PendingResult pendingResult) {
+            if (debugLogging) {
+                Log.d(TAG, "handlingNotificationOpen " + intent.getAction());
+            }
 
-            String title = intent.getStringExtra(JPushInterface.EXTRA_NOTIFICATION_TITLE);
-            String alert = intent.getStringExtra(JPushInterface.EXTRA_ALERT);
-            Map<String, Object> extras = getNotificationExtras(intent);
-            JPushPlugin.transmitNotificationOpen(title, alert, extras);
+            final Map<String, Object> notification = buildNotification(intent);
+
+            JPushEventPipeline.postToMain(new Runnable() {
+                @Override
+                public void run() {
+                    JPushPlugin.transmitNotificationOpen(context, notification);
 
-            Intent launch = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
-            if (launch != null) {
-                launch.addCategory(Intent.CATEGORY_LAUNCHER);
-                launch.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-                context.startActivity(launch);
+                    Intent launch = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+                    if (launch != null) {
+                        launch.addCategory(Intent.CATEGORY_LAUNCHER);
+                        launch.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+                        context.startActivity(launch);
+                    }
+                }
+            }, pendingResult);
+        }
+
+        private void handlingNotificationReceive(final Context context, Intent intent, PendingResult pendingResult) {
+            if (debugLogging) {
+                Log.d(TAG, "handlingNotificationReceive " + intent.getAction());
+            }
+
+            if (isDuplicate(context, JPushMessageDeduplicator.KIND_NOTIFICATION, intent, pendingResult)) {
+                return;
+            }
+
+            final Map<String, Object> notification = buildNotification(intent);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> extras = (Map<String, Object>) notification.get("extras");
+            final JPushMessageRules.Rule rule = JPushMessageRules.getInstance(context)
+                    .evaluate(JPushMessageRules.KIND_NOTIFICATION, extras);
+            if (isFiltered(context, rule, extras, pendingResult)) {
+                return;
+            }
+            JPushInbox.getInstance(context).append(JPushInbox.TYPE_NOTIFICATION,
+                    intent.getStringExtra(JPushInterface.EXTRA_MSG_ID), notification);
+
+            JPushEventPipeline.postToMain(new Runnable() {
+                @Override
+                public void run() {
+                    if (rule != null) {
+                        JPushPlugin.transmitRuleMatch(context, rule, JPushMessageRules.KIND_NOTIFICATION, notification);
+                    } else {
+                        JPushPlugin.transmitNotificationReceive(context, notification);
+                    }
+                }
+            }, pendingResult);
+        }
+
+        // 命中 drop 规则或被 collapse 规则合并的事件不再下发，也不写入收件箱
+        private boolean isFiltered(Context context, JPushMessageRules.Rule rule, Map<String, Object> extras,
+                                   PendingResult pendingResult) {
+            if (rule == null) {
+                return false;
+            }
+            boolean filtered = rule.action == JPushMessageRules.ACTION_DROP
+                    || (rule.action == JPushMessageRules.ACTION_COLLAPSE
+                    && JPushMessageRules.getInstance(context).collapse(rule, extras));
+            if (filtered) {
+                if (debugLogging) {
+                    Log.d(TAG, "filtered by rule " + rule.id);
+                }
+                JPushEventPipeline.finish(pendingResult);
             }
+            return filtered;
         }
 
-        private void handlingNotificationReceive(Context context, Intent intent) {
-            Log.d(TAG, "handlingNotificationReceive " + intent.getAction());
+        // 厂商通道与 JPush 通道可能重复投递同一条消息，重复的直接丢弃
+        private boolean isDuplicate(Context context, int kind, Intent intent, PendingResult pendingResult) {
+            String msgId = intent.getStringExtra(JPushInterface.EXTRA_MSG_ID);
+            if (JPushMessageDeduplicator.getInstance(context).isDuplicate(kind, msgId)) {
+                if (debugLogging) {
+                    Log.d(TAG, "drop duplicate message, msgId = " + msgId);
+                }
+                JPushEventPipeline.finish(pendingResult);
+                return true;
+            }
+            return false;
+        }
 
+        Map<String, Object> buildNotification(Intent intent) {
             String title = intent.getStringExtra(JPushInterface.EXTRA_NOTIFICATION_TITLE);
             String alert = intent.getStringExtra(JPushInterface.EXTRA_ALERT);
             Map<String, Object> extras = getNotificationExtras(intent);
-            JPushPlugin.transmitNotificationReceive(title, alert, extras);
+
+            long start = System.nanoTime();
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("title", title);
+            notification.put("alert", alert);
+            notification.put("extras", extras);
+            JPushExtrasParser.recordPayload(notification);
+            JPushEventPipeline.record(JPushEventPipeline.STAGE_BUILD, System.nanoTime() - start);
+            return notification;
         }
 
-        private Map<String, Object> getNotificationExtras(Intent intent) {
-            Log.d(TAG, "");
+        Map<String, Object> getNotificationExtras(Intent intent) {
+            long start = System.nanoTime();
 
             Map<String, Object> extrasMap = new HashMap<String, Object>();
             for (String key : intent.getExtras().keySet()) {
                 if (!IGNORED_EXTRAS_KEYS.contains(key)) {
                     if (key.equals(JPushInterface.EXTRA_NOTIFICATION_ID)) {
                         extrasMap.put(key, intent.getIntExtra(key, 0));
+                    } else if (JPushExtrasParser.isExtraKey(key)) {
+                        extrasMap.put(key, JPushExtrasParser.parseExtra(intent.getStringExtra(key)));
                     } else {
                         extrasMap.put(key, intent.getStringExtra(key));
                     }
                 }
             }
+
+            JPushEventPipeline.record(JPushEventPipeline.STAGE_PARSE, System.nanoTime() - start);
             return extrasMap;
         }
     }
 
 
-    static void transmitMessageReceive(String message, Map<String, Object> extras) {
-        Log.d(TAG, "transmitMessageReceive " + "message=" + message + "extras=" + extras);
+    static void transmitMessageReceive(Context context, Map<String, Object> msg) {
+        if (debugLogging) {
+            Log.d(TAG, "transmitMessageReceive " + "message=" + msg);
+        }
 
-        if (instance == null) {
+        // 没有界面运行时交给后台引擎处理，未注册后台回调时写入日志等待 dart 就绪后回放
+        if (engines.isEmpty() && JPushBackgroundExecutor.getInstance(context).deliver(msg)) {
+            return;
+        }
+        List<JPushPlugin> targets = engines.route("onReceiveMessage", true);
+        if (targets.isEmpty()) {
+            JPushEventJournal.getInstance(context).append(JPushEventJournal.TYPE_MESSAGE, msg);
             return;
         }
-        Map<String, Object> msg = new HashMap<>();
-        msg.put("message", message);
-        msg.put("extras", extras);
 
-        JPushPlugin.instance.channel.invokeMethod("onReceiveMessage", msg);
+        for (JPushPlugin engine : targets) {
+            engine.deliverMessage(msg);
+        }
     }
 
-    static void transmitNotificationOpen(String title, String alert, Map<String, Object> extras) {
-        Log.d(TAG, "transmitNotificationOpen " + "title=" + title + "alert=" + alert + "extras=" + extras);
-
-        Map<String, Object> notification = new HashMap<>();
-        notification.put("title", title);
-        notification.put("alert", alert);
-        notification.put("extras", extras);
-        JPushPlugin.openNotificationCache.add(notification);
+    // route 规则以 onRuleEvent 下发，background 规则交给后台回调；没有可用的目标时按普通事件下发
+    static void transmitRuleMatch(Context context, JPushMessageRules.Rule rule, int kind, Map<String, Object> payload) {
+        if (debugLogging) {
+            Log.d(TAG, "transmitRuleMatch " + "rule=" + rule.id);
+        }
 
-        if (instance == null) {
-            Log.d("JPushPlugin", "the instance is null");
+        appContext = context.getApplicationContext();
+        if (rule.action == JPushMessageRules.ACTION_ROUTE && !engines.isEmpty()) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("handler", rule.handler);
+            event.put("rule", rule.id);
+            event.put("type", kind == JPushMessageRules.KIND_MESSAGE ? "message" : "notification");
+            event.put("payload", payload);
+            dispatchToEngines("onRuleEvent", event);
             return;
         }
+        if (rule.action == JPushMessageRules.ACTION_BACKGROUND
+                && JPushBackgroundExecutor.getInstance(context).deliver(payload)) {
+            return;
+        }
+        if (kind == JPushMessageRules.KIND_MESSAGE) {
+            transmitMessageReceive(context, payload);
+        } else {
+            transmitNotificationReceive(context, payload);
+        }
+    }
 
-        if (instance.dartIsReady) {
-            Log.d("JPushPlugin", "instance.dartIsReady is true");
-            JPushPlugin.instance.channel.invokeMethod("onOpenNotification", notification);
-            JPushPlugin.openNotificationCache.remove(notification);
+    static void transmitNotificationOpen(Context context, Map<String, Object> notification) {
+        if (debugLogging) {
+            Log.d(TAG, "transmitNotificationOpen " + "notification=" + notification);
+        }
+
+        List<JPushPlugin> targets = engines.route("onOpenNotification", true);
+        if (!targets.isEmpty()) {
+            if (debugLogging) {
+                Log.d("JPushPlugin", "deliver to " + targets.size() + " engine(s)");
+            }
+            for (JPushPlugin engine : targets) {
+                engine.dispatchEvent("onOpenNotification", notification);
+            }
+            return;
         }
 
+        if (debugLogging) {
+            Log.d("JPushPlugin", "dart is not ready, journal the notification");
+        }
+        JPushEventJournal.getInstance(context).append(JPushEventJournal.TYPE_OPEN_NOTIFICATION, notification);
     }
 
-    static void transmitNotificationReceive(String title, String alert, Map<String, Object> extras) {
-        Log.d(TAG, "transmitNotificationReceive " + "title=" + title + "alert=" + alert + "extras=" + extras);
+    static void transmitNotificationReceive(Context context, Map<String, Object> notification) {
+        if (debugLogging) {
+            Log.d(TAG, "transmitNotificationReceive " + "notification=" + notification);
+        }
 
-        if (instance == null) {
+        appContext = context.getApplicationContext();
+        notificationAggregator.setContext(context);
+        if (notificationAggregator.offer(notification)) {
             return;
         }
-
-        Map<String, Object> notification = new HashMap<>();
-        notification.put("title", title);
-        notification.put("alert", alert);
-        notification.put("extras", extras);
-        JPushPlugin.instance.channel.invokeMethod("onReceiveNotification", notification);
+        deliverNotificationReceive(notification);
     }
 
-    static void transmitReceiveRegistrationId(String rId) {
-        Log.d(TAG, "transmitReceiveRegistrationId： " + rId);
+    // 缓冲区与事件日志中保存的都是完整的通知，下发时才按当前配置生成 header，见 deliverEvent
+    private static void deliverNotificationReceive(Map<String, Object> notification) {
+        if (journalIfDetached("onReceiveNotification", notification)) {
+            return;
+        }
+        dispatchToEngines("onReceiveNotification", notification);
+    }
 
-        if (instance == null) {
+    // 按路由规则分发到各个引擎，没有已订阅的引擎时进入已挂载引擎的缓冲区，没有挂载的引擎时写入事件日志
+    static void dispatchToEngines(String method, Map<String, Object> arguments) {
+        if (journalIfDetached(method, arguments)) {
             return;
         }
+        for (JPushPlugin engine : engines.route(method, false)) {
+            engine.dispatchEvent(method, arguments);
+        }
+    }
 
-        JPushPlugin.instance.jpushDidinit = true;
+    // rid 已由 JPushRegistrationIdResolver 持久化，不需要写入日志；关闭 journalDetachedEvents 时照常丢弃
+    private static boolean journalIfDetached(String method, Map<String, Object> arguments) {
+        if (!engines.isEmpty() || appContext == null || "onRegistrationIdChanged".equals(method)) {
+            return false;
+        }
+        JPushEventJournal journal = JPushEventJournal.getInstance(appContext);
+        if (!journal.isJournalingEvents()) {
+            return false;
+        }
+        if (debugLogging) {
+            Log.d(TAG, "no engine attached, journal " + method);
+        }
+        Map<String, Object> event = new HashMap<>();
+        event.put("method", method);
+        event.put("arguments", arguments);
+        journal.append(JPushEventJournal.TYPE_EVENT, event);
+        return true;
+    }
 
-        // try to clean getRid cache
-        JPushPlugin.instance.scheduleCache();
+    static void transmitReceiveRegistrationId(Context context, String rId) {
+        if (debugLogging) {
+            Log.d(TAG, "transmitReceiveRegistrationId： " + rId);
+        }
+
+        // rid 会持久化，插件未挂载时也不需要再写入事件日志
+        registrationIdResolver.setContext(context);
+        registrationIdResolver.onRegistrationId(rId);
+
+        for (JPushPlugin engine : engines.engines()) {
+            engine.jpushDidinit = true;
+
+            // try to clean getRid cache
+            engine.scheduleCache();
+        }
     }
 
 }
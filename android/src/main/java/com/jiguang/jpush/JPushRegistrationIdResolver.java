@@ -0,0 +1,199 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * registrationId 的获取与缓存。
+ * rid 保存在内存与 SharedPreferences 中，有值时 getRegistrationID 直接返回，不再每次查询 SDK。
+ * 还没有 rid 时只查询一次 SDK，之后的等待者合并到同一次解析上，等待 SDK 的注册广播；
+ * 超过 timeout 仍未拿到时最后查询一次，仍为空则以 "timeout" 结束所有等待者，不会一直挂起。
+ * rid 变化时通过 Listener 通知插件。所有方法都需要在主线程调用。
+ */
+class JPushRegistrationIdResolver {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    static final String ERROR_TIMEOUT = "timeout";
+
+    private static final String PREFS_NAME = "jpush_flutter_rid";
+    private static final String KEY_RID = "rid";
+    private static final String KEY_TIME_TO_RID = "timeToRid";
+
+    interface Listener {
+        void onRegistrationIdChanged(String rid);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private Context context;
+    private SharedPreferences prefs;
+    private Listener listener;
+
+    private String rid;
+    private long timeout = 30 * 1000;
+    private final List<Result> waiters = new ArrayList<>();
+    private long resolveStartAt;
+
+    private long sdkQueries;
+    private long resolutions;
+    private long coalesced;
+    private long timeouts;
+    private long changes;
+    private long timeToRid;
+
+    void setContext(Context context) {
+        if (prefs != null) {
+            return;
+        }
+        this.context = context.getApplicationContext();
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        rid = prefs.getString(KEY_RID, null);
+        timeToRid = prefs.getLong(KEY_TIME_TO_RID, -1);
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    void setTimeout(long timeout) {
+        if (timeout > 0) {
+            this.timeout = timeout;
+        }
+    }
+
+    void get(Result result) {
+        if (!isEmpty(rid)) {
+            result.success(rid);
+            return;
+        }
+        if (!waiters.isEmpty()) {
+            coalesced += 1;
+            waiters.add(result);
+            return;
+        }
+        if (update(query())) {
+            result.success(rid);
+            return;
+        }
+        waiters.add(result);
+        resolutions += 1;
+        resolveStartAt = SystemClock.elapsedRealtime();
+        handler.postDelayed(timeoutTask, timeout);
+    }
+
+    /**
+     * 重新查询一次 SDK，用于 SDK 初始化之后校正缓存的 rid。
+     */
+    void refresh() {
+        update(query());
+    }
+
+    /**
+     * 收到注册广播或 SDK 初始化完成时调用。
+     */
+    void onRegistrationId(String newRid) {
+        update(newRid);
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cached", !isEmpty(rid));
+        stats.put("timeout", timeout);
+        stats.put("waiting", waiters.size());
+        stats.put("sdkQueries", sdkQueries);
+        stats.put("resolutions", resolutions);
+        stats.put("coalesced", coalesced);
+        stats.put("timeouts", timeouts);
+        stats.put("changes", changes);
+        stats.put("timeToRidMillis", timeToRid);
+        return stats;
+    }
+
+    private String query() {
+        if (context == null) {
+            return null;
+        }
+        sdkQueries += 1;
+        return JPushInterface.getRegistrationID(context);
+    }
+
+    // 返回更新后是否已有 rid
+    private boolean update(String newRid) {
+        if (isEmpty(newRid)) {
+            return !isEmpty(rid);
+        }
+        if (!newRid.equals(rid)) {
+            boolean first = isEmpty(rid);
+            rid = newRid;
+            changes += 1;
+            SharedPreferences.Editor editor = prefs.edit().putString(KEY_RID, rid);
+            if (first && timeToRid < 0) {
+                timeToRid = sinceInstall();
+                editor.putLong(KEY_TIME_TO_RID, timeToRid);
+            }
+            editor.apply();
+            if (listener != null) {
+                listener.onRegistrationIdChanged(rid);
+            }
+        }
+        completeWaiters();
+        return true;
+    }
+
+    private void completeWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        handler.removeCallbacks(timeoutTask);
+        if (JPushPlugin.debugLogging) {
+            Log.d(TAG, "registrationId resolved in " + (SystemClock.elapsedRealtime() - resolveStartAt) + "ms");
+        }
+        List<Result> results = new ArrayList<>(waiters);
+        waiters.clear();
+        for (Result result : results) {
+            result.success(rid);
+        }
+    }
+
+    private long sinceInstall() {
+        try {
+            long installedAt = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).firstInstallTime;
+            return System.currentTimeMillis() - installedAt;
+        } catch (PackageManager.NameNotFoundException e) {
+            return -1;
+        }
+    }
+
+    private final Runnable timeoutTask = new Runnable() {
+        @Override
+        public void run() {
+            if (update(query())) {
+                return;
+            }
+            timeouts += 1;
+            List<Result> results = new ArrayList<>(waiters);
+            waiters.clear();
+            for (Result result : results) {
+                result.error(ERROR_TIMEOUT, "registrationId is not available after " + timeout + "ms", null);
+            }
+        }
+    };
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,116 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 本机 tags/alias 的本地镜像。
+ * 由 tag/alias 操作成功的结果更新并持久化到 SharedPreferences，在 staleTime 内的 getAllTags 直接由内存返回，
+ * 不再请求服务器。只有 setTags/cleanTags/getAllTags 成功后 tags 才被认为是完整的，此前的增量操作不会产生命中。
+ * 所有方法都需要在主线程调用。
+ */
+class JPushTagAliasCache {
+
+    private static final String PREFS_NAME = "jpush_flutter_tag_alias";
+    private static final String KEY_TAGS = "tags";
+    private static final String KEY_TAGS_SYNCED_AT = "tagsSyncedAt";
+    private static final String KEY_ALIAS = "alias";
+    private static final String KEY_ALIAS_SYNCED_AT = "aliasSyncedAt";
+
+    private SharedPreferences prefs;
+
+    private Set<String> tags;
+    private long tagsSyncedAt;
+    private String alias;
+    private long aliasSyncedAt;
+
+    private long staleTime = 10 * 60 * 1000;
+
+    private long hits;
+    private long misses;
+
+    void setContext(Context context) {
+        if (prefs != null) {
+            return;
+        }
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        tagsSyncedAt = prefs.getLong(KEY_TAGS_SYNCED_AT, 0);
+        if (tagsSyncedAt > 0) {
+            tags = new HashSet<>(prefs.getStringSet(KEY_TAGS, new HashSet<String>()));
+        }
+        aliasSyncedAt = prefs.getLong(KEY_ALIAS_SYNCED_AT, 0);
+        alias = prefs.getString(KEY_ALIAS, null);
+    }
+
+    void setStaleTime(long staleTime) {
+        if (staleTime >= 0) {
+            this.staleTime = staleTime;
+        }
+    }
+
+    /**
+     * 在有效期内返回本地镜像的 tags，否则返回 null 并记一次未命中。
+     */
+    List<String> freshTags() {
+        if (tags != null && System.currentTimeMillis() - tagsSyncedAt <= staleTime) {
+            hits += 1;
+            return new ArrayList<>(tags);
+        }
+        misses += 1;
+        return null;
+    }
+
+    /**
+     * 服务端返回或覆盖了完整的 tags，刷新同步时间。
+     */
+    void onTagsReplaced(Set<String> newTags) {
+        tags = new HashSet<>(newTags);
+        tagsSyncedAt = System.currentTimeMillis();
+        saveTags();
+    }
+
+    /**
+     * 增量修改只更新镜像内容，不刷新同步时间，已过期的镜像仍需从服务端重新获取。
+     */
+    void onTagsChanged(Set<String> adds, Set<String> deletes) {
+        if (tags == null) {
+            return;
+        }
+        tags.addAll(adds);
+        tags.removeAll(deletes);
+        saveTags();
+    }
+
+    void onAliasChanged(String newAlias) {
+        alias = newAlias;
+        aliasSyncedAt = System.currentTimeMillis();
+        if (prefs != null) {
+            prefs.edit().putString(KEY_ALIAS, alias).putLong(KEY_ALIAS_SYNCED_AT, aliasSyncedAt).apply();
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("staleTime", staleTime);
+        stats.put("tagsSyncedAt", tagsSyncedAt);
+        stats.put("tags", tags == null ? null : new ArrayList<>(tags));
+        stats.put("aliasSyncedAt", aliasSyncedAt);
+        stats.put("alias", alias);
+        return stats;
+    }
+
+    private void saveTags() {
+        if (prefs != null) {
+            prefs.edit().putStringSet(KEY_TAGS, new HashSet<>(tags)).putLong(KEY_TAGS_SYNCED_AT, tagsSyncedAt).apply();
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.jiguang.jpush;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import cn.jpush.android.api.JPushInterface;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * tag/alias 操作队列。
+ * SDK 对 tag/alias 接口有调用频率限制（过快会返回 6002/6014），这里将 dart 层的调用串行化后按最小间隔下发，
+ * 尚未下发的操作会尽量合并：连续的 add/delete 合并为一次增量，setTags/cleanTags 覆盖之前的修改，
+ * setAlias/deleteAlias 覆盖之前未下发的 alias 操作。被合并的调用以合并后操作的结果回调。
+ * 被限流的操作按指数退避重试。所有方法都需要在主线程调用。
+ */
+class JPushTagAliasQueue {
+
+    private static final String TAG = "| JPUSH | Flutter | Android | ";
+
+    static final int SET_TAGS = 1;
+    static final int CLEAN_TAGS = 2;
+    static final int DELTA_TAGS = 3;
+    static final int GET_ALL_TAGS = 4;
+    static final int SET_ALIAS = 5;
+    static final int DELETE_ALIAS = 6;
+
+    // 6002: 设置超时, 6014: 服务器繁忙
+    private static final Set<String> RETRYABLE_CODES = new HashSet<>(Arrays.asList("6002", "6014"));
+
+    private static final class Operation implements Result {
+        final JPushTagAliasQueue queue;
+        int kind;
+        Set<String> tags;
+        Set<String> deletes;
+        String alias;
+        final List<Result> waiters = new ArrayList<>();
+        int attempts;
+        // DELTA_TAGS 分两步下发：先 addTags，再 deleteTags
+        boolean addsDone;
+
+        Operation(JPushTagAliasQueue queue, int kind) {
+            this.queue = queue;
+            this.kind = kind;
+        }
+
+        boolean isTagOperation() {
+            return kind <= GET_ALL_TAGS;
+        }
+
+        boolean isTagMutation() {
+            return kind == SET_TAGS || kind == CLEAN_TAGS || kind == DELTA_TAGS;
+        }
+
+        @Override
+        public void success(Object result) {
+            queue.onOperationSuccess(this, result);
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            queue.onOperationError(this, errorCode, errorMessage, errorDetails);
+        }
+
+        @Override
+        public void notImplemented() {
+            error("notImplemented", "", null);
+        }
+    }
+
+    private final JPushPendingRequests pendingRequests;
+    private final JPushTagAliasCache cache;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable dispatchTask = new Runnable() {
+        @Override
+        public void run() {
+            dispatchScheduled = false;
+            dispatchNext();
+        }
+    };
+
+    private Context context;
+    private final ArrayDeque<Operation> pending = new ArrayDeque<>();
+    private Operation inFlight;
+    private boolean dispatchScheduled;
+    private long lastDispatchAt;
+
+    private long minInterval = 500;
+    private int maxRetries = 3;
+    private long retryBackoff = 1000;
+
+    private long operationsQueued;
+    private long operationsMerged;
+    private long dispatched;
+    private long retries;
+
+    JPushTagAliasQueue(JPushPendingRequests pendingRequests, JPushTagAliasCache cache) {
+        this.pendingRequests = pendingRequests;
+        this.cache = cache;
+    }
+
+    void setContext(Context context) {
+        this.context = context;
+    }
+
+    void configure(long minInterval, int maxRetries, long retryBackoff) {
+        if (minInterval >= 0) {
+            this.minInterval = minInterval;
+        }
+        if (maxRetries >= 0) {
+            this.maxRetries = maxRetries;
+        }
+        if (retryBackoff > 0) {
+            this.retryBackoff = retryBackoff;
+        }
+    }
+
+    void setTags(Set<String> tags, Result result) {
+        Operation op = new Operation(this, tags.isEmpty() ? CLEAN_TAGS : SET_TAGS);
+        op.tags = tags;
+        enqueueTagMutation(op, result);
+    }
+
+    void cleanTags(Result result) {
+        Operation op = new Operation(this, CLEAN_TAGS);
+        op.tags = new HashSet<>();
+        enqueueTagMutation(op, result);
+    }
+
+    void addTags(Set<String> tags, Result result) {
+        Operation op = new Operation(this, DELTA_TAGS);
+        op.tags = tags;
+        op.deletes = new HashSet<>();
+        enqueueTagMutation(op, result);
+    }
+
+    void deleteTags(Set<String> tags, Result result) {
+        Operation op = new Operation(this, DELTA_TAGS);
+        op.tags = new HashSet<>();
+        op.deletes = tags;
+        enqueueTagMutation(op, result);
+    }
+
+    void getAllTags(Result result) {
+        operationsQueued += 1;
+        Operation last = lastPending(true);
+        if (last != null && last.kind == GET_ALL_TAGS) {
+            operationsMerged += 1;
+            last.waiters.add(result);
+            return;
+        }
+        Operation op = new Operation(this, GET_ALL_TAGS);
+        op.waiters.add(result);
+        pending.add(op);
+        schedule();
+    }
+
+    void setAlias(String alias, Result result) {
+        Operation op = new Operation(this, SET_ALIAS);
+        op.alias = alias;
+        enqueueAlias(op, result);
+    }
+
+    void deleteAlias(Result result) {
+        enqueueAlias(new Operation(this, DELETE_ALIAS), result);
+    }
+
+    // 是否有尚未完成的 tag 修改，此时本地镜像不能作为 getAllTags 的结果
+    boolean hasPendingTagMutation() {
+        if (inFlight != null && inFlight.isTagMutation()) {
+            return true;
+        }
+        for (Operation op : pending) {
+            if (op.isTagMutation()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("inFlight", inFlight != null);
+        stats.put("operationsQueued", operationsQueued);
+        stats.put("operationsMerged", operationsMerged);
+        stats.put("dispatched", dispatched);
+        stats.put("retries", retries);
+        stats.put("minInterval", minInterval);
+        stats.put("maxRetries", maxRetries);
+        stats.put("retryBackoff", retryBackoff);
+        return stats;
+    }
+
+    // 尚未下发的最后一个 tag（或 alias）操作；两类操作互不影响，合并时互相跳过
+    private Operation lastPending(boolean tagOperation) {
+        Iterator<Operation> it = pending.descendingIterator();
+        while (it.hasNext()) {
+            Operation op = it.next();
+            if (op.isTagOperation() == tagOperation) {
+                return op;
+            }
+        }
+        return null;
+    }
+
+    private void enqueueTagMutation(Operation op, Result result) {
+        operationsQueued += 1;
+        Operation last = lastPending(true);
+        if (last == null || !last.isTagMutation()) {
+            op.waiters.add(result);
+            pending.add(op);
+            schedule();
+            return;
+        }
+
+        operationsMerged += 1;
+        last.waiters.add(result);
+        if (op.kind != DELTA_TAGS) {
+            // setTags/cleanTags 覆盖之前所有未下发的修改
+            last.kind = op.kind;
+            last.tags = op.tags;
+            last.deletes = null;
+        } else if (last.kind == DELTA_TAGS) {
+            last.deletes.removeAll(op.tags);
+            last.tags.addAll(op.tags);
+            last.tags.removeAll(op.deletes);
+            last.deletes.addAll(op.deletes);
+        } else {
+            Set<String> tags = new HashSet<>(last.tags);
+            tags.addAll(op.tags);
+            tags.removeAll(op.deletes);
+            last.tags = tags;
+            last.kind = tags.isEmpty() ? CLEAN_TAGS : SET_TAGS;
+        }
+    }
+
+    private void enqueueAlias(Operation op, Result result) {
+        operationsQueued += 1;
+        Operation last = lastPending(false);
+        if (last == null) {
+            op.waiters.add(result);
+            pending.add(op);
+            schedule();
+            return;
+        }
+
+        operationsMerged += 1;
+        last.waiters.add(result);
+        last.kind = op.kind;
+        last.alias = op.alias;
+    }
+
+    private void schedule() {
+        if (inFlight != null || pending.isEmpty() || dispatchScheduled) {
+            return;
+        }
+        long wait = Math.max(0, lastDispatchAt + minInterval - SystemClock.elapsedRealtime());
+        dispatchScheduled = true;
+        handler.postDelayed(dispatchTask, wait);
+    }
+
+    private void dispatchNext() {
+        if (inFlight != null) {
+            return;
+        }
+        inFlight = pending.poll();
+        if (inFlight != null) {
+            dispatch(inFlight);
+        }
+    }
+
+    private void dispatch(Operation op) {
+        if (op.kind == DELTA_TAGS && (op.addsDone || op.tags.isEmpty()) && op.deletes.isEmpty()) {
+            Map<String, Object> res = new HashMap<>();
+            res.put("tags", new ArrayList<>(op.tags));
+            complete(op, res, null, null);
+            return;
+        }
+
+        int sequence = pendingRequests.register(op);
+        if (sequence < 0) {
+            complete(op, null, JPushPendingRequests.ERROR_BUSY, "too many pending requests");
+            return;
+        }
+
+        lastDispatchAt = SystemClock.elapsedRealtime();
+        dispatched += 1;
+        switch (op.kind) {
+            case SET_TAGS:
+                JPushInterface.setTags(context, sequence, op.tags);
+                break;
+            case CLEAN_TAGS:
+                JPushInterface.cleanTags(context, sequence);
+                break;
+            case DELTA_TAGS:
+                if (!op.addsDone && !op.tags.isEmpty()) {
+                    JPushInterface.addTags(context, sequence, op.tags);
+                } else {
+                    op.addsDone = true;
+                    JPushInterface.deleteTags(context, sequence, op.deletes);
+                }
+                break;
+            case GET_ALL_TAGS:
+                JPushInterface.getAllTags(context, sequence);
+                break;
+            case SET_ALIAS:
+                JPushInterface.setAlias(context, sequence, op.alias);
+                break;
+            case DELETE_ALIAS:
+                JPushInterface.deleteAlias(context, sequence);
+                break;
+        }
+    }
+
+    private void onOperationSuccess(final Operation op, Object result) {
+        if (op.kind == DELTA_TAGS && !op.addsDone && !op.deletes.isEmpty()) {
+            op.addsDone = true;
+            op.attempts = 0;
+            redispatch(op, minInterval);
+            return;
+        }
+        complete(op, result, null, null);
+    }
+
+    private void onOperationError(Operation op, String errorCode, String errorMessage, Object errorDetails) {
+        if (RETRYABLE_CODES.contains(errorCode) && op.attempts < maxRetries) {
+            long delay = retryBackoff << op.attempts;
+            op.attempts += 1;
+            retries += 1;
+            if (JPushPlugin.debugLogging) {
+                Log.d(TAG, "tag/alias operation throttled, code = " + errorCode + ", retry in " + delay + "ms");
+            }
+            redispatch(op, delay);
+            return;
+        }
+        complete(op, null, errorCode, errorMessage);
+    }
+
+    private void redispatch(final Operation op, long delay) {
+        handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                dispatch(op);
+            }
+        }, delay);
+    }
+
+    private void complete(Operation op, Object result, String errorCode, String errorMessage) {
+        if (errorCode == null) {
+            updateCache(op, result);
+        }
+        for (Result waiter : op.waiters) {
+            if (errorCode == null) {
+                waiter.success(result);
+            } else {
+                waiter.error(errorCode, errorMessage, "");
+            }
+        }
+        if (inFlight == op) {
+            inFlight = null;
+        }
+        schedule();
+    }
+
+    private void updateCache(Operation op, Object result) {
+        switch (op.kind) {
+            case SET_TAGS:
+            case CLEAN_TAGS:
+                cache.onTagsReplaced(op.tags);
+                break;
+            case DELTA_TAGS:
+                cache.onTagsChanged(op.tags, op.deletes);
+                break;
+            case GET_ALL_TAGS:
+                if (result instanceof Map) {
+                    Object tags = ((Map<?, ?>) result).get("tags");
+                    if (tags instanceof List) {
+                        Set<String> allTags = new HashSet<>();
+                        for (Object tag : (List<?>) tags) {
+                            allTags.add((String) tag);
+                        }
+                        cache.onTagsReplaced(allTags);
+                    }
+                }
+                break;
+            case SET_ALIAS:
+                cache.onAliasChanged(op.alias);
+                break;
+            case DELETE_ALIAS:
+                cache.onAliasChanged(null);
+                break;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+// 对比自定义消息经 MethodChannel（StandardMessageCodec 编码的嵌套 Map）与
+// 二进制事件流（JPushMessageStream 格式）两种下发方式的编解码耗时。
+//
+// 运行：flutter test benchmark/message_stream_benchmark.dart
+
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+import 'package:jpush_flutter/jpush_flutter.dart';
+import 'package:test/test.dart';
+
+const int iterations = 20000;
+
+Map<String, dynamic> sampleMessage(int extraBytes) {
+  return <String, dynamic>{
+    'message': 'order 10086 has been shipped',
+    'extras': <String, dynamic>{
+      'cn.jpush.android.MSG_ID': '20266582751',
+      'cn.jpush.android.CONTENT_TYPE': 'text',
+      'cn.jpush.android.EXTRA':
+          jsonEncode({'route': '/order/detail', 'payload': 'x' * extraBytes}),
+    },
+  };
+}
+
+// 与 android 端 JPushMessageStream.encode 相同的布局
+ByteData encodeBinary(Map<String, dynamic> msg) {
+  final BytesBuilder builder = new BytesBuilder(copy: false);
+  final ByteData scratch = new ByteData(4);
+
+  void putInt(int value) {
+    scratch.setInt32(0, value, Endian.little);
+    builder.add(scratch.buffer.asUint8List(0, 4).toList());
+  }
+
+  void putString(String? value) {
+    if (value == null) {
+      putInt(-1);
+      return;
+    }
+    final List<int> bytes = utf8.encode(value);
+    putInt(bytes.length);
+    builder.add(bytes);
+  }
+
+  final Map<String, dynamic> extras = msg['extras'];
+  builder.addByte(1);
+  putString(extras['cn.jpush.android.MSG_ID']);
+  putString(msg['message']);
+  putInt(extras.length);
+  extras.forEach((String key, dynamic value) {
+    putString(key);
+    builder.addByte(1);
+    putString(value as String);
+  });
+  return builder.toBytes().buffer.asByteData();
+}
+
+void measure(String name, void Function() body) {
+  for (int i = 0; i < iterations ~/ 10; i++) {
+    body();
+  }
+  final Stopwatch stopwatch = new Stopwatch()..start();
+  for (int i = 0; i < iterations; i++) {
+    body();
+  }
+  stopwatch.stop();
+  print('$name: ${(stopwatch.elapsedMicroseconds * 1000 / iterations).toStringAsFixed(0)} ns/op');
+}
+
+void main() {
+  test('message stream codec benchmark', () {
+    const StandardMessageCodec standard = StandardMessageCodec();
+
+    for (int extraBytes in <int>[64, 1024, 8192]) {
+      final Map<String, dynamic> msg = sampleMessage(extraBytes);
+      final ByteData standardBytes = standard.encodeMessage(msg)!;
+      final ByteData binaryBytes = encodeBinary(msg);
+
+      print('extra payload $extraBytes bytes: '
+          'standard ${standardBytes.lengthInBytes} B, binary ${binaryBytes.lengthInBytes} B');
+      measure('  standard encode', () => standard.encodeMessage(msg));
+      measure('  binary encode  ', () => encodeBinary(msg));
+      measure('  standard decode', () => standard.decodeMessage(standardBytes));
+      measure('  binary decode  ', () => JPushMessage.decode(binaryBytes));
+
+      final JPushMessage decoded = JPushMessage.decode(binaryBytes);
+      expect(decoded.message, msg['message']);
+      expect(decoded.extras, msg['extras']);
+    }
+  });
+}
@@ -1,9 +1,15 @@
 import 'dart:async';
+import 'dart:convert';
+import 'dart:typed_data';
+import 'dart:ui' show CallbackHandle, PluginUtilities;
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
+import 'package:flutter/widgets.dart' show WidgetsFlutterBinding;
 import 'package:platform/platform.dart';
 
 typedef Future<dynamic> EventHandler(Map<String, dynamic> event);
+typedef Future<dynamic> BatchEventHandler(List<Map<String, dynamic>> events);
+typedef Future<dynamic> BackgroundMessageHandler(Map<String, dynamic> message);
 
 class JPush {
   static const String flutter_log = "| JPUSH | Flutter | ";
@@ -25,12 +31,23 @@ class JPush {
   EventHandler? _onOpenNotification;
   EventHandler? _onReceiveMessage;
   EventHandler? _onReceiveNotificationAuthorization;
+  EventHandler? _onReceiveNotificationGroup;
+  BatchEventHandler? _onReceiveBatch;
+  final Map<String, EventHandler> _ruleHandlers = {};
+
+  final BasicMessageChannel<ByteData> _messageChannel =
+      const BasicMessageChannel<ByteData>(
+          'jpush/message_stream', BinaryCodec());
+  StreamController<JPushMessage>? _messageStreamController;
+  final StreamController<String> _registrationIdController =
+      new StreamController<String>.broadcast();
 
   void setup({
     String appKey = '',
     bool production = false,
     String channel = '',
     bool debug = false,
+    bool asyncInit = false,
   }) {
     print(flutter_log + "setup:");
 
@@ -38,7 +55,8 @@ class JPush {
       'appKey': appKey,
       'channel': channel,
       'production': production,
-      'debug': debug
+      'debug': debug,
+      'asyncInit': asyncInit
     });
   }
 
@@ -50,6 +68,8 @@ class JPush {
     EventHandler? onOpenNotification,
     EventHandler? onReceiveMessage,
     EventHandler? onReceiveNotificationAuthorization,
+    EventHandler? onReceiveNotificationGroup,
+    BatchEventHandler? onReceiveBatch,
   }) {
     print(flutter_log + "addEventHandler:");
 
@@ -57,7 +77,14 @@ class JPush {
     _onOpenNotification = onOpenNotification;
     _onReceiveMessage = onReceiveMessage;
     _onReceiveNotificationAuthorization = onReceiveNotificationAuthorization;
+    _onReceiveNotificationGroup = onReceiveNotificationGroup;
+    _onReceiveBatch = onReceiveBatch;
     _channel.setMethodCallHandler(_handleMethod);
+
+    // Android 端在回调注册之前收到的事件会先缓冲，注册后再按顺序下发
+    if (_platform.isAndroid) {
+      _channel.invokeMethod('setEventHandlerReady');
+    }
   }
 
   Future<dynamic> _handleMethod(MethodCall call) async {
@@ -73,11 +100,68 @@ class JPush {
       case "onReceiveNotificationAuthorization":
         return _onReceiveNotificationAuthorization!(
             call.arguments.cast<String, dynamic>());
+      case "onReceiveNotificationGroup":
+        return _handleNotificationGroup(call.arguments.cast<String, dynamic>());
+      case "onReceiveBatch":
+        return _handleBatch(call.arguments);
+      case "onRegistrationIdChanged":
+        _registrationIdController.add(call.arguments['registrationId']);
+        return null;
+      case "onRuleEvent":
+        return _handleRuleEvent(call.arguments.cast<String, dynamic>());
       default:
         throw new UnsupportedError("Unrecognized Event");
     }
   }
 
+  Future<dynamic> _handleNotificationGroup(Map<String, dynamic> group) async {
+    if (_onReceiveNotificationGroup != null) {
+      return _onReceiveNotificationGroup!(group);
+    }
+
+    // 未注册 onReceiveNotificationGroup 时逐条回调 onReceiveNotification
+    for (dynamic notification in group["notifications"]) {
+      await _onReceiveNotification!(
+          (notification as Map).cast<String, dynamic>());
+    }
+  }
+
+  Future<dynamic> _handleRuleEvent(Map<String, dynamic> event) async {
+    final Map<String, dynamic> payload =
+        (event["payload"] as Map).cast<String, dynamic>();
+    final EventHandler? handler = _ruleHandlers[event["handler"]];
+    if (handler != null) {
+      return handler(payload);
+    }
+
+    // 未注册对应的处理函数时按原事件回调
+    if (event["type"] == "message") {
+      return _onReceiveMessage!(payload);
+    }
+    return _onReceiveNotification!(payload);
+  }
+
+  Future<dynamic> _handleBatch(List<dynamic> batch) async {
+    final List<Map<String, dynamic>> events =
+        batch.map((e) => (e as Map).cast<String, dynamic>()).toList();
+
+    if (_onReceiveBatch != null) {
+      // registrationId 的变化始终通过 onRegistrationIdChanged 下发
+      events.removeWhere((Map<String, dynamic> event) {
+        if (event["method"] != "onRegistrationIdChanged") {
+          return false;
+        }
+        _registrationIdController.add(event["arguments"]['registrationId']);
+        return true;
+      });
+      return _onReceiveBatch!(events);
+    }
+
+    for (Map<String, dynamic> event in events) {
+      await _handleMethod(new MethodCall(event["method"], event["arguments"]));
+    }
+  }
+
   ///
   /// iOS Only
   /// 申请推送权限，注意这个方法只会向用户弹出一次推送权限请求（如果用户不同意，之后只能用户到设置页面里面勾选相应权限），需要开发者选择合适的时机调用。
@@ -155,15 +239,16 @@ class JPush {
 
   ///
   /// 获取所有当前绑定的 tags
+  /// Android 端在本地镜像未过期时直接返回本地结果，refresh 为 true 时强制向服务器查询。
   ///
   /// @param {Function} success = ({"tags":[String]}) => {  }
   /// @param {Function} fail = ({"errorCode":int}) => {  }
   ///
-  Future<Map<dynamic, dynamic>> getAllTags() async {
+  Future<Map<dynamic, dynamic>> getAllTags({bool refresh = false}) async {
     print(flutter_log + "getAllTags:");
 
     final Map<dynamic, dynamic> result =
-        await _channel.invokeMethod('getAllTags');
+        await _channel.invokeMethod('getAllTags', {'refresh': refresh});
     return result;
   }
 
@@ -285,6 +370,71 @@ class JPush {
     return notification.toMap().toString();
   }
 
+  ///
+  /// 批量发送本地通知到调度器，一次调用调度多条通知，返回与输入顺序一致的每条结果：
+  /// {"id": 通知 id, "ok": 是否调度成功, "error": 失败原因}。
+  /// 调度已存在的 id 会替换原来的通知。iOS 端逐条调用 sendLocalNotification。
+  ///
+  Future<List<Map<dynamic, dynamic>>> scheduleLocalNotifications(
+      List<LocalNotification> notifications) async {
+    print(flutter_log + "scheduleLocalNotifications:");
+
+    if (!_platform.isAndroid) {
+      final List<Map<dynamic, dynamic>> results = [];
+      for (LocalNotification notification in notifications) {
+        try {
+          await sendLocalNotification(notification);
+          results.add({'id': notification.id, 'ok': true});
+        } on PlatformException catch (e) {
+          results.add({'id': notification.id, 'ok': false, 'error': e.message});
+        }
+      }
+      return results;
+    }
+
+    final List<dynamic> results = await _channel.invokeMethod(
+        'scheduleLocalNotifications',
+        notifications.map((n) => n.toMap()).toList());
+    return results.cast<Map<dynamic, dynamic>>();
+  }
+
+  ///
+  /// Android Only
+  /// 获取触发时间在 [from, to] 之间、已调度未触发的本地通知，按触发时间排序。
+  ///
+  Future<List<Map<dynamic, dynamic>>> getScheduledLocalNotifications(
+      {DateTime? from, DateTime? to}) async {
+    print(flutter_log + "getScheduledLocalNotifications:");
+
+    if (!_platform.isAndroid) {
+      return [];
+    }
+
+    final List<dynamic> result =
+        await _channel.invokeMethod('getScheduledLocalNotifications', {
+      'from': from?.millisecondsSinceEpoch,
+      'to': to?.millisecondsSinceEpoch,
+    });
+    return result.cast<Map<dynamic, dynamic>>();
+  }
+
+  ///
+  /// Android Only
+  /// 批量取消已调度的本地通知，ids 为 null 时取消全部，返回每个 id 的结果：{"id", "ok", "error"}。
+  ///
+  Future<List<Map<dynamic, dynamic>>> cancelLocalNotifications(
+      [List<int>? ids]) async {
+    print(flutter_log + "cancelLocalNotifications:");
+
+    if (!_platform.isAndroid) {
+      return [];
+    }
+
+    final List<dynamic> result =
+        await _channel.invokeMethod('cancelLocalNotifications', ids);
+    return result.cast<Map<dynamic, dynamic>>();
+  }
+
   /// 调用此 API 检测通知授权状态是否打开
   Future<bool> isNotificationEnabled() async {
     final Map<dynamic, dynamic> result =
@@ -297,6 +447,800 @@ class JPush {
   void openSettingsForNotification() {
     _channel.invokeMethod('openSettingsForNotification');
   }
+
+  ///
+  /// Android Only
+  /// 开启或关闭事件批量下发。开启后 onReceiveMessage、onReceiveNotification 事件会合并为批次，
+  /// 每隔 flushInterval 毫秒或累积 maxBatchSize 条时通过一次 onReceiveBatch 下发。
+  /// 未设置 onReceiveBatch 回调时，批次内的事件会逐条分发给对应的回调。
+  ///
+  Future setEventBatching(
+      {bool enable = true, int flushInterval = 100, int maxBatchSize = 20}) async {
+    print(flutter_log + "setEventBatching:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setEventBatching', {
+      'enable': enable,
+      'flushInterval': flushInterval,
+      'maxBatchSize': maxBatchSize
+    });
+  }
+
+  ///
+  /// Android Only
+  /// 获取批量下发的配置与统计：batchesSent 已发送批次数，eventsCoalesced 经批次下发的事件数，pending 当前待发送事件数。
+  ///
+  Future<Map<dynamic, dynamic>> getEventBatchingStats() async {
+    print(flutter_log + "getEventBatchingStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getEventBatchingStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 设置 tag/alias 等异步操作的超时时间（毫秒），超时未收到 SDK 回调的请求会以 code 为 "timeout" 的异常结束。
+  ///
+  Future setPendingRequestTimeout(int timeout) async {
+    print(flutter_log + "setPendingRequestTimeout:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setPendingRequestTimeout', timeout);
+  }
+
+  ///
+  /// Android Only
+  /// 获取待回调请求的统计：inFlight 当前等待回调的请求数，timedOut 累计超时数。
+  ///
+  Future<Map<dynamic, dynamic>> getPendingRequestStats() async {
+    print(flutter_log + "getPendingRequestStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getPendingRequestStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 配置 tag/alias 操作队列：minInterval 两次下发之间的最小间隔（毫秒），
+  /// maxRetries 遇到 6002/6014 限流错误时的最大重试次数，retryBackoff 首次重试的等待时间（毫秒，之后每次翻倍）。
+  ///
+  Future setTagAliasRateLimit(
+      {int minInterval = 500, int maxRetries = 3, int retryBackoff = 1000}) async {
+    print(flutter_log + "setTagAliasRateLimit:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setTagAliasRateLimit', {
+      'minInterval': minInterval,
+      'maxRetries': maxRetries,
+      'retryBackoff': retryBackoff
+    });
+  }
+
+  ///
+  /// Android Only
+  /// 获取 tag/alias 操作队列的统计：operationsQueued 收到的调用数，operationsMerged 被合并的调用数，
+  /// dispatched 实际下发给 SDK 的次数，retries 限流重试次数。
+  ///
+  Future<Map<dynamic, dynamic>> getTagAliasQueueStats() async {
+    print(flutter_log + "getTagAliasQueueStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getTagAliasQueueStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 设置 tags 本地镜像的有效期（毫秒，默认 10 分钟）。有效期内的 getAllTags 不再请求服务器。
+  ///
+  Future setTagAliasCacheStaleTime(int staleTime) async {
+    print(flutter_log + "setTagAliasCacheStaleTime:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setTagAliasCacheStaleTime', staleTime);
+  }
+
+  ///
+  /// Android Only
+  /// 获取 tags/alias 本地镜像的内容与命中统计：hits 命中次数，misses 未命中次数，tags、alias 为当前镜像。
+  ///
+  Future<Map<dynamic, dynamic>> getTagAliasCacheStats() async {
+    print(flutter_log + "getTagAliasCacheStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getTagAliasCacheStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 配置 dart 就绪前事件的磁盘日志：maxEntries 最多保存的事件数，
+  /// evictionPolicy 超出上限时的淘汰策略，"dropOldest" 丢弃最旧的事件，"dropNewest" 丢弃新到的事件。
+  /// journalDetachedEvents 为 false 时，没有挂载 FlutterEngine 时收到的通知、通知分组与规则事件不再写入日志；
+  /// 写入日志后回放的这些事件参数中带有 replayed: true。
+  /// 配置会持久化，下次冷启动时同样生效。
+  ///
+  Future setEventJournalConfig(
+      {int maxEntries = 100,
+      String evictionPolicy = 'dropOldest',
+      bool journalDetachedEvents = true}) async {
+    print(flutter_log + "setEventJournalConfig:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setEventJournalConfig', {
+      'maxEntries': maxEntries,
+      'evictionPolicy': evictionPolicy,
+      'journalDetachedEvents': journalDetachedEvents
+    });
+  }
+
+  ///
+  /// Android Only
+  /// 获取事件日志的统计：entries 当前保存的事件数，appended 累计写入数，evicted 淘汰数，replayed 回放数，syncs fsync 次数。
+  ///
+  Future<Map<dynamic, dynamic>> getEventJournalStats() async {
+    print(flutter_log + "getEventJournalStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getEventJournalStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 获取广播处理流水线各阶段的耗时统计（微秒）：parse 解析 extras，build 构造下发数据，
+  /// mainThreadHop 切换到主线程的等待时间，deliver 主线程下发耗时。与 getMetrics 共用同一份统计，一并清零。
+  ///
+  Future<Map<dynamic, dynamic>> getEventPipelineStats() async {
+    print(flutter_log + "getEventPipelineStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getEventPipelineStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 开启后原生端在后台线程将 extras 中的 cn.jpush.android.EXTRA 解析为 Map 下发，dart 层无需再 jsonDecode。
+  /// 指定 keys 时只下发其中列出的字段。
+  ///
+  Future setExtrasParsing({bool enable = true, List<String>? keys}) async {
+    print(flutter_log + "setExtrasParsing:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel
+        .invokeMethod('setExtrasParsing', {'enable': enable, 'keys': keys});
+  }
+
+  ///
+  /// Android Only
+  /// 获取下发数据量统计（按 StandardMessageCodec 估算的字节数）：payloadBytes 所有事件的总字节数，
+  /// extraRawBytes 为 EXTRA 以原始字符串下发时的字节数，extraSentBytes 为实际下发的字节数。
+  /// 只统计 setExtrasParsing 开启期间的事件。
+  ///
+  Future<Map<dynamic, dynamic>> getPayloadStats() async {
+    print(flutter_log + "getPayloadStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getPayloadStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 自定义消息的二进制事件流。监听后自定义消息改为经由独立的 BasicMessageChannel 以二进制格式下发，
+  /// 不再触发 onReceiveMessage；取消所有监听后恢复原有方式。
+  ///
+  Stream<JPushMessage> get onMessage {
+    if (_messageStreamController == null) {
+      _messageStreamController = new StreamController<JPushMessage>.broadcast(
+          onListen: () {
+        _messageChannel.setMessageHandler((ByteData? data) async {
+          if (data != null) {
+            _messageStreamController!.add(JPushMessage.decode(data));
+          }
+          return new ByteData(0);
+        });
+        if (_platform.isAndroid) {
+          _channel.invokeMethod('setMessageStreamEnabled', true);
+        }
+      }, onCancel: () {
+        if (_platform.isAndroid) {
+          _channel.invokeMethod('setMessageStreamEnabled', false);
+        }
+        _messageChannel.setMessageHandler(null);
+      });
+    }
+    return _messageStreamController!.stream;
+  }
+
+  ///
+  /// Android Only
+  /// 获取二进制事件流的统计：messagesSent 下发的消息数，bytesSent 下发的字节数，avgEncodeMicros 平均编码耗时。
+  ///
+  Future<Map<dynamic, dynamic>> getMessageStreamStats() async {
+    print(flutter_log + "getMessageStreamStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getMessageStreamStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 配置重复消息过滤（默认关闭）。开启后原生端记录最近 capacity 条消息的 msgId，
+  /// 经不同通道重复投递的自定义消息与通知不会再下发到 dart 层。persist 为 true 时最近的 msgId 会批量持久化（每 16 条或 1 秒），重启后依然生效。
+  /// 配置会持久化。
+  ///
+  Future setMessageDeduplication(
+      {bool enable = true, int capacity = 512, bool persist = false}) async {
+    print(flutter_log + "setMessageDeduplication:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setMessageDeduplication',
+        {'enable': enable, 'capacity': capacity, 'persist': persist});
+  }
+
+  ///
+  /// Android Only
+  /// 获取重复消息过滤的统计：checked 检查的消息数，suppressed 被丢弃的重复消息数，size 当前记录的 msgId 数。
+  ///
+  Future<Map<dynamic, dynamic>> getMessageDeduplicationStats() async {
+    print(flutter_log + "getMessageDeduplicationStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getMessageDeduplicationStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 配置事件缓冲。dart 层未注册回调、引擎已分离或未处理完的事件超过 maxInFlight 时，事件进入缓冲区，
+  /// 回调注册或处理跟上后按到达顺序下发。每种事件（event 为事件名，如 "onReceiveMessage"）可单独配置容量与溢出策略：
+  /// "dropOldest" 丢弃最旧的事件，"dropNewest" 丢弃新到的事件，"coalesceLatest" 只保留最新的一条。
+  ///
+  Future setEventBufferPolicy(
+      {String? event,
+      String policy = 'dropOldest',
+      int capacity = 100,
+      int? maxInFlight}) async {
+    print(flutter_log + "setEventBufferPolicy:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setEventBufferPolicy', {
+      'event': event,
+      'policy': policy,
+      'capacity': capacity,
+      'maxInFlight': maxInFlight
+    });
+  }
+
+  ///
+  /// Android Only
+  /// 获取事件缓冲的统计：depth 当前排队的事件数，inFlight 已下发未处理完的事件数，
+  /// 以及每种事件的 depth、buffered（累计进入缓冲区数）、dropped（累计丢弃数）。
+  ///
+  Future<Map<dynamic, dynamic>> getEventBufferStats() async {
+    print(flutter_log + "getEventBufferStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getEventBufferStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 注册后台消息回调。没有界面运行时收到的自定义消息会在后台引擎中交给 handler 处理，
+  /// handler 必须是顶层函数或静态方法。后台引擎处理完消息后保持 idleTimeout 毫秒，超时后销毁。
+  /// 后台引擎中不会自动注册其它插件。
+  ///
+  Future registerBackgroundMessageHandler(BackgroundMessageHandler handler,
+      {int idleTimeout = 60000}) async {
+    print(flutter_log + "registerBackgroundMessageHandler:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    final CallbackHandle? dispatcher =
+        PluginUtilities.getCallbackHandle(_jpushBackgroundDispatcher);
+    final CallbackHandle? callback = PluginUtilities.getCallbackHandle(handler);
+    if (dispatcher == null || callback == null) {
+      throw ArgumentError(
+          'handler must be a top-level function or a static method');
+    }
+
+    await _channel.invokeMethod('registerBackgroundMessageHandler', {
+      'dispatcherHandle': dispatcher.toRawHandle(),
+      'callbackHandle': callback.toRawHandle(),
+      'idleTimeout': idleTimeout
+    });
+  }
+
+  ///
+  /// Android Only
+  /// 获取后台引擎的统计：engineStarts 启动次数，lastStartMillis/avgStartMillis 启动耗时，
+  /// messages 处理的消息数，avgMessageMillis/maxMessageMillis 每条消息的处理耗时。
+  ///
+  Future<Map<dynamic, dynamic>> getBackgroundEngineStats() async {
+    print(flutter_log + "getBackgroundEngineStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getBackgroundEngineStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 获取 setup 中 JPush SDK 初始化的耗时：mode 为 sync 或 async，phases 为各阶段耗时（微秒），
+  /// queuedCalls 为异步初始化期间排队的调用数，maxQueueWaitMillis 为排队调用的最长等待时间。
+  ///
+  Future<Map<dynamic, dynamic>> getStartupStats() async {
+    print(flutter_log + "getStartupStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getStartupStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// registrationId 变化（包括首次获取到）时发出新的 registrationId，需要先调用 addEventHandler。
+  ///
+  Stream<String> get onRegistrationIdChanged => _registrationIdController.stream;
+
+  ///
+  /// Android Only
+  /// 设置 getRegistrationID 的等待超时（毫秒），默认 30000。
+  /// 超时仍未获取到 registrationId 时，getRegistrationID 以 PlatformException（code 为 "timeout"）结束。
+  ///
+  Future setRegistrationIdTimeout(int timeout) async {
+    print(flutter_log + "setRegistrationIdTimeout:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setRegistrationIdTimeout', {'timeout': timeout});
+  }
+
+  ///
+  /// Android Only
+  /// 获取 registrationId 解析的统计：sdkQueries 查询 SDK 的次数，coalesced 合并的等待者数，
+  /// timeouts 超时次数，changes 变化次数，timeToRidMillis 安装后首次获取到 registrationId 的耗时。
+  ///
+  Future<Map<dynamic, dynamic>> getRegistrationIdStats() async {
+    print(flutter_log + "getRegistrationIdStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getRegistrationIdStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 配置通知的分组汇总。开启后按 extras 中 groupKey 字段的值对 window 毫秒内收到的通知分组，
+  /// 同组多条通知只展示一条汇总通知，并只回调一次 onReceiveNotificationGroup。
+  /// summaryText 为汇总通知的摘要文字，其中的 {count} 替换为通知条数，默认为 "{count} notifications"；
+  /// channelName 为汇总通知所在渠道的名称（Android 8.0 以上），默认为 "Notifications"。不传时保持上次的配置。
+  ///
+  Future setNotificationAggregation(
+      {bool enable = true,
+      String? groupKey,
+      int window = 3000,
+      String? summaryText,
+      String? channelName}) async {
+    print(flutter_log + "setNotificationAggregation:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setNotificationAggregation', {
+      'enable': enable,
+      'groupKey': groupKey,
+      'window': window,
+      'summaryText': summaryText,
+      'channelName': channelName
+    });
+  }
+
+  ///
+  /// Android Only
+  /// 获取通知分组汇总的统计：rawEvents 收到的通知数，passedThrough 未汇总直接下发的通知数，
+  /// aggregatedEvents 汇总事件数，aggregatedNotifications 被汇总的通知数，summariesPosted 展示的汇总通知数。
+  ///
+  Future<Map<dynamic, dynamic>> getNotificationAggregationStats() async {
+    print(flutter_log + "getNotificationAggregationStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getNotificationAggregationStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 获取插件内部的指标：counters 各事件的下发次数，stages 各阶段的耗时直方图
+  /// （receive、parse、build、mainThreadHop、deliver、channelInvoke、callbackResolve），
+  /// methods 每个方法调用的耗时直方图，gauges 当前的排队数。reset 为 true 时读取后清零。
+  ///
+  Future<Map<dynamic, dynamic>> getMetrics({bool reset = false}) async {
+    print(flutter_log + "getMetrics:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getMetrics', {'reset': reset});
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 设置多个 FlutterEngine 同时挂载插件时的事件路由：all 下发给所有已调用 setup 或 addEventHandler 的引擎，
+  /// first 只下发给最早挂载的，last 只下发给最晚挂载的。routes 按事件名（如 onReceiveMessage）单独指定。
+  ///
+  Future setEventRouting(
+      {String defaultRoute = 'all', Map<String, String>? routes}) async {
+    print(flutter_log + "setEventRouting:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setEventRouting',
+        {'defaultRoute': defaultRoute, 'routes': routes});
+  }
+
+  ///
+  /// Android Only
+  /// 获取已挂载插件的引擎列表：engines 中每项包含 id、subscribed、bufferDepth、inFlight、
+  /// eventsDelivered、callbacksDropped（引擎卸载后丢弃的 tag/alias 回调数），current 为当前引擎的 id。
+  ///
+  Future<Map<dynamic, dynamic>> getEngineStats() async {
+    print(flutter_log + "getEngineStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getEngineStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 设置 SDK 回调与事件切回主线程的方式。coalesce 为 true（默认）时使用共享的分发队列，
+  /// 在已投递的消息执行之前到达的任务合并为一次主线程调度并复用任务对象；
+  /// 为 false 时每个任务单独投递，用于对比，此时不计入 getMainThreadDispatchStats 与 mainDispatchHop。
+  ///
+  Future setMainThreadDispatch({bool coalesce = true}) async {
+    print(flutter_log + "setMainThreadDispatch:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setMainThreadDispatch', {'coalesce': coalesce});
+  }
+
+  ///
+  /// Android Only
+  /// 获取主线程分发的统计：posted 提交的任务数，looperMessages 实际投递的主线程消息数，
+  /// queueLength 当前排队数，maxBatch 单次处理的最大任务数，poolMisses 对象池未命中次数。
+  /// 切换耗时见 getMetrics 的 stages.mainDispatchHop。
+  ///
+  Future<Map<dynamic, dynamic>> getMainThreadDispatchStats() async {
+    print(flutter_log + "getMainThreadDispatchStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getMainThreadDispatchStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 开启或关闭本地收件箱。开启后收到的自定义消息与通知会写入本地数据库，超过 ttl 毫秒（默认 30 天）的记录会被清理。
+  ///
+  Future setInboxConfig({bool enable = true, int ttl = 30 * 24 * 3600 * 1000}) async {
+    print(flutter_log + "setInboxConfig:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setInboxConfig', {'enable': enable, 'ttl': ttl});
+  }
+
+  ///
+  /// Android Only
+  /// 按收到的先后倒序分页查询收件箱，返回 {items, nextCursor}。
+  /// 每项包含 id、type（message 或 notification）、msgId、receivedAt、read、payload（与事件回调的参数一致）。
+  /// 查询下一页时把上一页的 nextCursor 作为 before 传入，nextCursor 为 null 表示没有更多记录。
+  ///
+  Future<Map<dynamic, dynamic>> queryInbox(
+      {int? before,
+      int limit = 20,
+      String? type,
+      bool unreadOnly = false}) async {
+    print(flutter_log + "queryInbox:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result = await _channel.invokeMethod(
+        'queryInbox', {
+      'before': before,
+      'limit': limit,
+      'type': type,
+      'unreadOnly': unreadOnly
+    });
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 将收件箱中的记录标记为已读，ids 为 null 时标记全部，返回更新的条数。
+  ///
+  Future<int> markInboxRead([List<int>? ids]) async {
+    print(flutter_log + "markInboxRead:");
+
+    if (!_platform.isAndroid) {
+      return 0;
+    }
+
+    final int updated = await _channel.invokeMethod('markInboxRead', ids);
+    return updated;
+  }
+
+  ///
+  /// Android Only
+  /// 立即删除收件箱中超过 ttl 的记录，返回删除的条数。
+  ///
+  Future<int> compactInbox() async {
+    print(flutter_log + "compactInbox:");
+
+    if (!_platform.isAndroid) {
+      return 0;
+    }
+
+    final int deleted = await _channel.invokeMethod('compactInbox');
+    return deleted;
+  }
+
+  ///
+  /// Android Only
+  /// 获取收件箱的统计：entries 记录数，unread 未读数，written 写入条数，transactions 写入事务数，compacted 清理条数。
+  ///
+  Future<Map<dynamic, dynamic>> getInboxStats() async {
+    print(flutter_log + "getInboxStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getInboxStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 开启后 onReceiveNotification / onReceiveMessage 只下发事件头：extras 中只保留 msgId 与 headerKeys 中的字段，并带有 lazy: true。
+  /// 完整数据在原生层按 msgId 保留最近 capacity 条，需要时通过 getEventPayload 获取。
+  ///
+  Future setLazyPayload(
+      {bool enable = true,
+      List<String> headerKeys = const [],
+      int capacity = 256}) async {
+    print(flutter_log + "setLazyPayload:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setLazyPayload',
+        {'enable': enable, 'headerKeys': headerKeys, 'capacity': capacity});
+  }
+
+  ///
+  /// Android Only
+  /// 获取 msgId 对应事件的完整数据，已被淘汰时返回 null。
+  ///
+  Future<Map<dynamic, dynamic>?> getEventPayload(String msgId) async {
+    print(flutter_log + "getEventPayload:");
+
+    if (!_platform.isAndroid) {
+      return null;
+    }
+
+    final Map<dynamic, dynamic>? result =
+        await _channel.invokeMethod('getEventPayload', msgId);
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 获取事件数据缓存的统计：size 当前条数，evictions 淘汰条数，fetches 获取次数，hits 命中次数，hitRate 命中率。
+  ///
+  Future<Map<dynamic, dynamic>> getPayloadStoreStats() async {
+    print(flutter_log + "getPayloadStoreStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getPayloadStoreStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 设置在原生层执行的消息规则，替换之前的全部规则，规则会保存在本地。
+  /// 每条规则包含 id、on（message、notification 或 all）、when（条件列表，每项为 {key, op, value}）、
+  /// action（drop、route、collapse 或 background），route 需要 handler，collapse 可以指定 collapseKey 与 window（毫秒）。
+  ///
+  Future setMessageRules(List<Map<String, dynamic>> rules) async {
+    print(flutter_log + "setMessageRules:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setMessageRules', rules);
+  }
+
+  ///
+  /// Android Only
+  /// 注册 route 规则的处理函数，name 对应规则的 handler。
+  ///
+  void addRuleHandler(String name, EventHandler handler) {
+    print(flutter_log + "addRuleHandler:");
+
+    _ruleHandlers[name] = handler;
+  }
+
+  ///
+  /// Android Only
+  /// 获取消息规则的统计：rules 为每条规则的 matches 命中次数与 collapsed 合并条数，evaluated 为参与匹配的事件数。
+  ///
+  Future<Map<dynamic, dynamic>> getMessageRuleStats() async {
+    print(flutter_log + "getMessageRuleStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getMessageRuleStats');
+    return result;
+  }
+
+  ///
+  /// Android Only
+  /// 设置事件下发的优先级通道。点击通知与通知权限变化优先下发；自定义消息单独限制 in-flight 数量为 bulkMaxInFlight，
+  /// bulkRate 大于 0 时按每秒 bulkRate 条限速，允许 bulkBurst 条的突发。
+  ///
+  Future setDeliveryLanes(
+      {double bulkRate = 0, int bulkBurst = 32, int bulkMaxInFlight = 16}) async {
+    print(flutter_log + "setDeliveryLanes:");
+
+    if (!_platform.isAndroid) {
+      return;
+    }
+
+    await _channel.invokeMethod('setDeliveryLanes', {
+      'bulkRate': bulkRate,
+      'bulkBurst': bulkBurst,
+      'bulkMaxInFlight': bulkMaxInFlight
+    });
+  }
+
+  ///
+  /// Android Only
+  /// 获取各通道（interactive、default、bulk）的缓冲数、下发数与耗时分位数，bulk 还包含限速状态。
+  ///
+  Future<Map<dynamic, dynamic>> getDeliveryLaneStats() async {
+    print(flutter_log + "getDeliveryLaneStats:");
+
+    if (!_platform.isAndroid) {
+      return {};
+    }
+
+    final Map<dynamic, dynamic> result =
+        await _channel.invokeMethod('getDeliveryLaneStats');
+    return result;
+  }
 }
 
 class NotificationSettingsIOS {
@@ -367,3 +1311,122 @@ class LocalNotification {
     }..removeWhere((key, value) => value == null);
   }
 }
+
+/// 二进制事件流中的自定义消息
+/// @property {string} [msgId] - 消息 id
+/// @property {string} [message] - 消息内容
+/// @property {object} [extras] - extras 字段
+class JPushMessage {
+  final String? msgId;
+  final String? message;
+  final Map<String, dynamic> extras;
+
+  const JPushMessage({this.msgId, this.message, this.extras = const {}});
+
+  /// 解码原生端 JPushMessageStream 的二进制格式（小端）：
+  /// [u8 版本][str msgId][str message][i32 extras 数量]{[str key][值]}，
+  /// str 为 [i32 字节数（-1 表示 null）][UTF-8]，值为 [u8 类型][数据]：0 null，1 字符串，2 i32，
+  /// 3 Map（[i32 数量]{[str key][值]}），4 List（[i32 数量]{[值]}），5 i64，6 f64，7 bool。
+  static JPushMessage decode(ByteData data) {
+    int offset = 1;
+
+    String? readString() {
+      final int length = data.getInt32(offset, Endian.little);
+      offset += 4;
+      if (length < 0) {
+        return null;
+      }
+      final String value = utf8.decode(
+          data.buffer.asUint8List(data.offsetInBytes + offset, length));
+      offset += length;
+      return value;
+    }
+
+    dynamic readValue() {
+      final int type = data.getUint8(offset);
+      offset += 1;
+      switch (type) {
+        case 1:
+          return readString();
+        case 2:
+          final int value = data.getInt32(offset, Endian.little);
+          offset += 4;
+          return value;
+        case 3:
+          final int count = data.getInt32(offset, Endian.little);
+          offset += 4;
+          final Map<String, dynamic> map = <String, dynamic>{};
+          for (int i = 0; i < count; i++) {
+            final String key = readString()!;
+            map[key] = readValue();
+          }
+          return map;
+        case 4:
+          final int count = data.getInt32(offset, Endian.little);
+          offset += 4;
+          final List<dynamic> list = <dynamic>[];
+          for (int i = 0; i < count; i++) {
+            list.add(readValue());
+          }
+          return list;
+        case 5:
+          final int value = data.getInt64(offset, Endian.little);
+          offset += 8;
+          return value;
+        case 6:
+          final double value = data.getFloat64(offset, Endian.little);
+          offset += 8;
+          return value;
+        case 7:
+          final bool value = data.getUint8(offset) != 0;
+          offset += 1;
+          return value;
+        default:
+          return null;
+      }
+    }
+
+    final String? msgId = readString();
+    final String? message = readString();
+    final int count = data.getInt32(offset, Endian.little);
+    offset += 4;
+
+    final Map<String, dynamic> extras = <String, dynamic>{};
+    for (int i = 0; i < count; i++) {
+      final String key = readString()!;
+      extras[key] = readValue();
+    }
+
+    return new JPushMessage(msgId: msgId, message: message, extras: extras);
+  }
+
+  Map<String, dynamic> toMap() {
+    return <String, dynamic>{
+      'msgId': msgId,
+      'message': message,
+      'extras': extras
+    };
+  }
+}
+
+// 后台引擎的入口：注册 jpush/background 通道后通知原生端就绪，再把每条消息交给用户注册的回调
+@pragma('vm:entry-point')
+void _jpushBackgroundDispatcher() {
+  WidgetsFlutterBinding.ensureInitialized();
+
+  const MethodChannel channel = MethodChannel('jpush/background');
+  channel.setMethodCallHandler((MethodCall call) async {
+    if (call.method != 'onBackgroundMessage') {
+      return;
+    }
+    final CallbackHandle handle =
+        CallbackHandle.fromRawHandle(call.arguments['handle']);
+    final Function? callback = PluginUtilities.getCallbackFromHandle(handle);
+    if (callback == null) {
+      print(JPush.flutter_log + "background message handler not found");
+      return;
+    }
+    await callback(call.arguments['message'].cast<String, dynamic>());
+  });
+  channel.invokeMethod('backgroundReady');
+}